@@ -0,0 +1,206 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appointments with their lengths, indexed per day, per vet and per exam room so overlap
+ * checks and "what is on in this window" lookups don't scan the whole day.
+ *
+ * A visit with no vet can't overlap anything else that day. A visit for a named vet can
+ * overlap other vets' visits, but not that vet's visits or visits with no vet. Room use
+ * is recorded when visits are put in rooms.
+ *
+ * Visits whose time can't be read have no interval and are left to the SlotCalendar.
+ * Like the calendar, a day's entries must only be used while holding that day's lock in the VetDB.
+ */
+public class AppointmentBook {
+    private ConcurrentHashMap<String, DayBook> days = new ConcurrentHashMap<>();
+
+    /**
+     * Checks if a day has been filled in yet.
+     * @param date String for the day in MM-DD-YYYY
+     * @return true if the day is loaded
+     */
+    public boolean isLoaded(String date) {
+        return days.containsKey(date);
+    }
+
+    /**
+     * Fills in a day from the visits already booked on it.
+     * @param date String for the day in MM-DD-YYYY
+     * @param visits Iterable<Visit> of the day's visits
+     */
+    public void load(String date, Iterable<Visit> visits) {
+        days.computeIfAbsent(date, k -> new DayBook());
+        for (Visit v : visits) {
+            add(v);
+        }
+    }
+
+    /**
+     * Checks if a visit would overlap something it can't share time with.
+     * @param v Visit to check
+     * @return true if it clashes
+     */
+    public boolean conflicts(Visit v) {
+        DayBook day = days.get(v.getDate());
+        int start = v.getMinuteOfDay();
+        if (day == null || start == DateTimeKeys.INVALID) {
+            return false;
+        }
+        int end = v.getEndMinute();
+        if (v.getVet().isEmpty()) {
+            return day.all.overlaps(start, end);
+        }
+        return overlaps(day.byVet.get(""), start, end) || overlaps(day.byVet.get(key(v.getVet())), start, end);
+    }
+
+    /**
+     * Finds the earliest start where a visit for a vet fits without clashing, following the
+     * same rules as conflicts(). Other vets' visits don't get in the way.
+     * @param date String for the day in MM-DD-YYYY
+     * @param vet String for the vet, not empty
+     * @param from int for the earliest start
+     * @param to int for the latest end
+     * @param duration int for how many minutes the visit takes
+     * @param step int for starts to be a multiple of, at least 1
+     * @return int for the start, DateTimeKeys.INVALID if nothing fits before to
+     */
+    public int findFree(String date, String vet, int from, int to, int duration, int step) {
+        DayBook day = days.get(date);
+        IntervalIndex<Visit> noVet = day == null ? null : day.byVet.get("");
+        IntervalIndex<Visit> sameVet = day == null ? null : day.byVet.get(key(vet));
+        int start = SlotCalendar.roundUp(from, step);
+        while (start + duration <= to) {
+            int clear = Math.max(clearAfter(noVet, start, start + duration), clearAfter(sameVet, start, start + duration));
+            if (clear <= start) {
+                return start;
+            }
+            start = SlotCalendar.roundUp(clear, step); // try again after everything in the way
+        }
+        return DateTimeKeys.INVALID;
+    }
+
+    /**
+     * Adds a booked visit.
+     * @param v Visit that was booked
+     */
+    public void add(Visit v) {
+        int start = v.getMinuteOfDay();
+        if (start == DateTimeKeys.INVALID) {
+            return;
+        }
+        DayBook day = days.computeIfAbsent(v.getDate(), k -> new DayBook());
+        day.all.add(start, v.getEndMinute(), v);
+        day.byVet.computeIfAbsent(key(v.getVet()), k -> new IntervalIndex<>()).add(start, v.getEndMinute(), v);
+    }
+
+    /**
+     * Records that a visit is using an exam room.
+     * @param v Visit put in the room
+     * @param room int for the room number
+     */
+    public void assignRoom(Visit v, int room) {
+        int start = v.getMinuteOfDay();
+        if (start == DateTimeKeys.INVALID) {
+            return;
+        }
+        DayBook day = days.computeIfAbsent(v.getDate(), k -> new DayBook());
+        day.byRoom.computeIfAbsent(room, k -> new IntervalIndex<>()).add(start, v.getEndMinute(), v);
+    }
+
+    /**
+     * Lists the visits on a day overlapping a window.
+     * @param date String for the day in MM-DD-YYYY
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time
+     */
+    public List<Visit> window(String date, int from, int to) {
+        DayBook day = days.get(date);
+        return day == null ? Collections.emptyList() : day.all.window(from, to);
+    }
+
+    /**
+     * Lists a vet's visits on a day overlapping a window.
+     * @param date String for the day in MM-DD-YYYY
+     * @param vet String for the vet, empty for visits with no vet
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time
+     */
+    public List<Visit> vetWindow(String date, String vet, int from, int to) {
+        DayBook day = days.get(date);
+        IntervalIndex<Visit> index = day == null ? null : day.byVet.get(key(vet));
+        return index == null ? Collections.emptyList() : index.window(from, to);
+    }
+
+    /**
+     * Lists the visits that used a room on a day overlapping a window.
+     * @param date String for the day in MM-DD-YYYY
+     * @param room int for the room number
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time
+     */
+    public List<Visit> roomWindow(String date, int room, int from, int to) {
+        DayBook day = days.get(date);
+        IntervalIndex<Visit> index = day == null ? null : day.byRoom.get(room);
+        return index == null ? Collections.emptyList() : index.window(from, to);
+    }
+
+    /**
+     * Drops a day so it gets loaded again next time.
+     * @param date String for the day in MM-DD-YYYY
+     */
+    public void forget(String date) {
+        days.remove(date);
+    }
+
+    /**
+     * Vet names match without case or extra spaces.
+     * @param vet String for the vet
+     * @return String key for the vet
+     */
+    private static String key(String vet) {
+        return vet == null ? "" : vet.trim().toUpperCase();
+    }
+
+    /**
+     * Overlap check that allows a missing index.
+     * @param index IntervalIndex to check, may be null
+     * @param start int for the window start
+     * @param end int for the window end
+     * @return true if something overlaps
+     */
+    private static boolean overlaps(IntervalIndex<Visit> index, int start, int end) {
+        return index != null && index.overlaps(start, end);
+    }
+
+    /**
+     * Finds when everything overlapping a window is over.
+     * @param index IntervalIndex to check, may be null
+     * @param start int for the window start
+     * @param end int for the window end
+     * @return int for the latest end of the overlapping visits, start if nothing overlaps
+     */
+    private static int clearAfter(IntervalIndex<Visit> index, int start, int end) {
+        int clear = start;
+        if (index != null) {
+            for (Visit v : index.window(start, end)) {
+                clear = Math.max(clear, v.getEndMinute());
+            }
+        }
+        return clear;
+    }
+
+    /**
+     * The indexes for one day.
+     */
+    private static class DayBook {
+        private final IntervalIndex<Visit> all = new IntervalIndex<>();
+        private final HashMap<String, IntervalIndex<Visit>> byVet = new HashMap<>();
+        private final HashMap<Integer, IntervalIndex<Visit>> byRoom = new HashMap<>();
+    }
+}
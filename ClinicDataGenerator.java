@@ -0,0 +1,229 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes made up but realistic clinic data in the same formats the VetDB reads: a
+ * PetList.txt, a CompletedVisit.txt with years of history, and day files for today and
+ * the days after it. The same seed always writes the same files so runs can be compared.
+ *
+ * Run as a program:
+ * <pre>
+ * java ClinicDataGenerator outDir pets visits [today MM-DD-YYYY] [scheduleDays] [visitsPerDay] [seed]
+ * </pre>
+ */
+public class ClinicDataGenerator {
+    private static final String[] FIRST_NAMES = {"Olivia", "Liam", "Emma", "Noah", "Ava", "James", "Sophia", "Lucas",
+            "Mia", "Mason", "Harper", "Ethan", "Ella", "Logan", "Grace", "Jack", "Chloe", "Henry", "Nora", "Owen"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Martinez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Henderson",
+            "White", "Harris", "Clark", "Lewis", "Walker", "Young", "Allen", "King"};
+    private static final String[] PET_NAMES = {"Bella", "Max", "Luna", "Charlie", "Lucy", "Cooper", "Daisy", "Milo",
+            "Bailey", "Rocky", "Sadie", "Tucker", "Molly", "Bear", "Stella", "Duke", "Penny", "Oliver", "Zoe", "Toby"};
+    private static final String[][] BREEDS = {
+            {"Dog", "Golden Retriever", "Labrador", "Beagle", "Dalmatian", "Poodle", "Bulldog", "German Shepherd"},
+            {"Cat", "Siamese", "Persian", "Maine Coon", "Tabby", "Sphynx"},
+            {"Bird", "Parakeet", "Cockatiel", "Parrot", "Canary"},
+            {"Rabbit", "Holland Lop", "Rex", "Lionhead"},
+            {"Horse", "Arabian", "Quarter Horse", "Thoroughbred"}};
+    private static final int[] TYPE_WEIGHTS = {50, 35, 7, 5, 3}; // percent of pets of each type
+    private static final String[] STREETS = {"Main St", "Oak Ave", "Maple Dr", "Cedar Ln", "Pine St", "Elm St",
+            "Happy St", "Lake Rd", "Hill Ct", "River Rd"};
+    private static final String[] CITIES = {"Omaha, Nebraska", "Lincoln, Nebraska", "Denver, Colorado",
+            "Newport, Oregon", "Austin, Texas", "Madison, Wisconsin"};
+    private static final String[] REASONS = {"Regular check up.", "Vaccinations.", "Teeth cleaning.",
+            "Limping on back leg.", "Skin rash.", "Not eating.", "Heartworm test.", "Ear infection.", "Spay/neuter.",
+            "Follow up visit."};
+    private static final String[] NOTES = {"Meds current.", "Heartworm test negative.", "Shots given.",
+            "Weight is up a little.", "Follow up in two weeks.", "Prescribed antibiotics.", "All clear.",
+            "Teeth cleaning done, two extractions.", "X-ray shows no fracture.", "Owner to watch diet."};
+    private static final String[] VETS = {"Dr. Adams", "Dr. Baker", "Dr. Chen", "Dr. Diaz"};
+    private static final int[] DURATIONS = {15, 30, 30, 30, 45, 60};
+    private static final int OPEN_MINUTE = 8 * 60;
+    private static final int CLOSE_MINUTE = 18 * 60;
+    private static final int HISTORY_DAYS = 5 * 365;
+    private static final int SAME_OWNER_PERCENT = 35; // chance a pet has the same owner as the pet before it
+
+    private final long seed;
+
+    /**
+     * Main constructor
+     * @param seed long for the random numbers, the same seed writes the same data
+     */
+    public ClinicDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the data files.
+     * @param dir File for the directory to write into
+     * @param pets int for how many pets
+     * @param visits int for how many past visits
+     * @param today String for today's date, MM-DD-YYYY, past visits are before it
+     * @param scheduleDays int for how many day files to write starting with today, 0 for none
+     * @param visitsPerDay int for how many visits to book on each of those days
+     * @return int for the next free visit ID
+     * @throws IOException if a file can't be written
+     */
+    public int generate(File dir, int pets, int visits, String today, int scheduleDays, int visitsPerDay) throws IOException {
+        Random random = new Random(seed);
+        int todayDay = DateTimeKeys.epochDay(today);
+        if (todayDay == DateTimeKeys.INVALID || pets < 1) {
+            throw new IllegalArgumentException("Need a MM-DD-YYYY date and at least one pet");
+        }
+        writePets(new File(dir, "PetList.txt"), pets, random);
+
+        int nextID = 0;
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(new File(dir, "CompletedVisit.txt"), RecordParser.CHARSET)))) {
+            out.println("ID\tDate\tTime\tAnimal ID\tdetails\tduration\tvet");
+            for (; nextID < visits; nextID++) {
+                int day = todayDay - 1 - random.nextInt(HISTORY_DAYS);
+                out.println(nextID + "\t" + DateTimeKeys.formatDate(day) + "\t" + randomTime(random) + "\t" +
+                        skewedPet(random, pets) + "\t" + REASONS[random.nextInt(REASONS.length)] + "~" +
+                        NOTES[random.nextInt(NOTES.length)] + "\t" + DURATIONS[random.nextInt(DURATIONS.length)] + "\t" +
+                        VETS[random.nextInt(VETS.length)]);
+            }
+            out.println(nextID + scheduleDays * visitsPerDay); // next visit ID goes past the booked days too
+        }
+
+        for (int d = 0; d < scheduleDays; d++) {
+            nextID = writeDay(dir, todayDay + d, visitsPerDay, pets, nextID, random);
+        }
+        return nextID;
+    }
+
+    /**
+     * Writes the pet file.
+     * @param file File to write
+     * @param pets int for how many pets
+     * @param random Random to draw from
+     * @throws IOException if the file can't be written
+     */
+    private static void writePets(File file, int pets, Random random) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file, RecordParser.CHARSET)))) {
+            out.println("ID\tName\tType\tSubtype\tOwner\townerAddress\townerContact");
+            String[] owners = new String[pets]; // owner, address and contact of each pet
+            for (int id = 0; id < pets; id++) {
+                String[] breed = BREEDS[weightedType(random)];
+                if (id > 0 && random.nextInt(100) < SAME_OWNER_PERCENT) {
+                    owners[id] = owners[id - 1]; // households bring their animals in together
+                }
+                else {
+                    owners[id] = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " +
+                            LAST_NAMES[random.nextInt(LAST_NAMES.length)] + "\t" + (1 + random.nextInt(9999)) + " " +
+                            STREETS[random.nextInt(STREETS.length)] + " " + CITIES[random.nextInt(CITIES.length)] + "\t" +
+                            phone(random);
+                }
+                out.println(id + "\t" + PET_NAMES[random.nextInt(PET_NAMES.length)] + "\t" + breed[0] + "\t" +
+                        breed[1 + random.nextInt(breed.length - 1)] + "\t" + owners[id]);
+            }
+        }
+    }
+
+    /**
+     * Writes a day file with visits split across the vets so no vet is double booked.
+     * @param dir File for the directory to write into
+     * @param day int for the epoch day
+     * @param count int for how many visits
+     * @param pets int for how many pets there are
+     * @param nextID int for the first visit ID to use
+     * @param random Random to draw from
+     * @return int for the next free visit ID
+     * @throws IOException if the file can't be written
+     */
+    private static int writeDay(File dir, int day, int count, int pets, int nextID, Random random) throws IOException {
+        int[] vetFree = new int[VETS.length];
+        Arrays.fill(vetFree, OPEN_MINUTE);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(new File(dir, DateTimeKeys.formatDate(day) + ".txt"), RecordParser.CHARSET)))) {
+            out.println("ID\tTime\tanimalID\tdetails\tduration\tvet");
+            for (int i = 0; i < count; i++) {
+                int vet = i % VETS.length;
+                int duration = DURATIONS[random.nextInt(DURATIONS.length)];
+                int start = vetFree[vet] + 15 * random.nextInt(2); // sometimes a gap between visits
+                if (start + duration > CLOSE_MINUTE) {
+                    continue; // this vet's day is full
+                }
+                vetFree[vet] = start + duration;
+                out.println(nextID++ + "\t" + DateTimeKeys.formatTime(start) + "\t" + skewedPet(random, pets) + "\t" +
+                        REASONS[random.nextInt(REASONS.length)] + "\t" + duration + "\t" + VETS[vet]);
+            }
+        }
+        return nextID;
+    }
+
+    /**
+     * Picks a type by TYPE_WEIGHTS.
+     * @param random Random to draw from
+     * @return int index into BREEDS
+     */
+    private static int weightedType(Random random) {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < TYPE_WEIGHTS.length; i++) {
+            roll -= TYPE_WEIGHTS[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Picks a pet, some pets come in far more than others like a real practice.
+     * @param random Random to draw from
+     * @param pets int for how many pets there are
+     * @return int for the pet ID
+     */
+    private static int skewedPet(Random random, int pets) {
+        double r = random.nextDouble();
+        return (int) (r * r * pets); // low IDs are the regulars
+    }
+
+    /**
+     * A time in clinic hours on the quarter hour.
+     * @param random Random to draw from
+     * @return String of the time
+     */
+    private static String randomTime(Random random) {
+        return DateTimeKeys.formatTime(OPEN_MINUTE + 15 * random.nextInt((CLOSE_MINUTE - OPEN_MINUTE) / 15));
+    }
+
+    /**
+     * A phone number written the way people type them.
+     * @param random Random to draw from
+     * @return String of the number
+     */
+    private static String phone(Random random) {
+        return (200 + random.nextInt(800)) + "-" + (200 + random.nextInt(800)) + "-" + (1000 + random.nextInt(9000));
+    }
+
+    /**
+     * Writes data from the command line.
+     * @param args outDir pets visits [today] [scheduleDays] [visitsPerDay] [seed]
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java ClinicDataGenerator outDir pets visits [today MM-DD-YYYY] [scheduleDays] [visitsPerDay] [seed]");
+            return;
+        }
+        try {
+            File dir = new File(args[0]);
+            dir.mkdirs();
+            String today = args.length > 3 ? args[3] : "06-15-2025";
+            int days = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+            int perDay = args.length > 5 ? Integer.parseInt(args[5]) : 40;
+            long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+            long start = System.nanoTime();
+            int nextID = new ClinicDataGenerator(seed).generate(dir, Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    today, days, perDay);
+            System.out.println("Wrote " + args[1] + " pets, " + args[2] + " visits and " + days + " days to " + dir +
+                    " in " + (System.nanoTime() - start) / 1_000_000 + " ms, next visit ID " + nextID);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error generating data: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock free queue that any number of threads can enqueue to and dequeue from,
+ * for when several check in terminals feed the same schedule. Each slot has a sequence
+ * number that says whose turn it is, so producers and consumers only race on a single
+ * compare and set of the tail or head counter.
+ * @param <E> the type of elements held in this queue
+ */
+public class ConcurrentRingQueue<E> {
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next position to dequeue
+    private final AtomicLong tail = new AtomicLong(); // next position to enqueue
+
+    /**
+     * Main constructor
+     * @param capacity int for the most elements held, rounded up to a power of two
+     */
+    public ConcurrentRingQueue(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size *= 2;
+        }
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element to the end if there is room.
+     * @param element the element to be added, can't be null
+     * @return true if added, false if the queue is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Can't queue null");
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) { // slot is free for this position
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.set(index, element);
+                    sequences.set(index, pos + 1); // hands the slot to consumers
+                    return true;
+                }
+                pos = tail.get();
+            }
+            else if (diff < 0) {
+                return false; // a whole lap behind, so full
+            }
+            else {
+                pos = tail.get(); // another producer got here first
+            }
+        }
+    }
+
+    /**
+     * Adds an element to the end.
+     * @param element the element to be added, can't be null
+     * @throws IllegalStateException if the queue is full
+     */
+    public void enqueue(E element) {
+        if (!offer(element)) {
+            throw new IllegalStateException("Queue is full");
+        }
+    }
+
+    /**
+     * Removes and returns the element at the front of the queue.
+     * @return the element at the front of the queue, or null if the queue is empty
+     */
+    public E dequeue() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) { // slot holds the element for this position
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = items.get(index);
+                    items.set(index, null);
+                    sequences.set(index, pos + mask + 1); // hands the slot to the producer one lap on
+                    return element;
+                }
+                pos = head.get();
+            }
+            else if (diff < 0) {
+                return null; // nothing written here yet, so empty
+            }
+            else {
+                pos = head.get(); // another consumer got here first
+            }
+        }
+    }
+
+    /**
+     * Returns the element at the front without removing it. Other threads can take it
+     * right after, so this is only a hint.
+     * @return the element at the front of the queue, or null if the queue is empty
+     */
+    public E peek() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        return sequences.get(index) == pos + 1 ? items.get(index) : null;
+    }
+
+    /**
+     * Returns the number of elements in the queue, only exact when no one else is using it.
+     * @return the size of the queue
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * Checks if the queue is empty.
+     * @return true if the queue is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the most elements the queue can hold.
+     * @return int for the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
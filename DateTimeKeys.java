@@ -0,0 +1,196 @@
+/**
+ * Turns the MM-DD-YYYY date and h:mmAM time strings used across the system into primitive
+ * keys and back.
+ * Parses straight from the characters so it is cheap enough to run on every loaded row.
+ */
+public class DateTimeKeys {
+    /** Returned when a string is not a valid date or time. */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private DateTimeKeys() {
+        // only static helpers
+    }
+
+    /**
+     * Converts a MM-DD-YYYY date to days since 01-01-1970.
+     * @param date String in MM-DD-YYYY format
+     * @return int for the epoch day, INVALID if the date can't be read
+     */
+    public static int epochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '-' || date.charAt(5) != '-') {
+            return INVALID;
+        }
+        int month = digits(date, 0, 2);
+        int day = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+        if (month < 1 || month > 12 || day < 1 || year < 0 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        return (int) civilToEpochDay(year, month, day);
+    }
+
+    /**
+     * Formats days since 01-01-1970 back to MM-DD-YYYY.
+     * @param epochDay int for the epoch day
+     * @return String of the date
+     */
+    public static String formatDate(int epochDay) {
+        // civil from days, see Howard Hinnant's date algorithms
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] out = new char[10];
+        out[0] = (char) ('0' + month / 10);
+        out[1] = (char) ('0' + month % 10);
+        out[2] = '-';
+        out[3] = (char) ('0' + day / 10);
+        out[4] = (char) ('0' + day % 10);
+        out[5] = '-';
+        out[6] = (char) ('0' + year / 1000 % 10);
+        out[7] = (char) ('0' + year / 100 % 10);
+        out[8] = (char) ('0' + year / 10 % 10);
+        out[9] = (char) ('0' + year % 10);
+        return new String(out);
+    }
+
+    /**
+     * Converts a time like 4:00PM, 4:00 pm, 4pm or 16:00 to minutes since midnight.
+     * Case and spaces don't matter so 4:00pm and 4:00PM give the same minute.
+     * @param time String of the time
+     * @return int for the minute of the day 0-1439, INVALID if the time can't be read
+     */
+    public static int minuteOfDay(String time) {
+        if (time == null) {
+            return INVALID;
+        }
+        int i = 0;
+        int length = time.length();
+        while (i < length && time.charAt(i) == ' ') {
+            i++;
+        }
+        int hour = 0;
+        int hourDigits = 0;
+        while (i < length && Character.isDigit(time.charAt(i)) && hourDigits < 3) {
+            hour = hour * 10 + time.charAt(i++) - '0';
+            hourDigits++;
+        }
+        int minute = 0;
+        if (i < length && (time.charAt(i) == ':' || time.charAt(i) == '.')) {
+            i++;
+            if (i + 2 > length || !Character.isDigit(time.charAt(i)) || !Character.isDigit(time.charAt(i + 1))) {
+                return INVALID;
+            }
+            minute = (time.charAt(i) - '0') * 10 + time.charAt(i + 1) - '0';
+            i += 2;
+        }
+        while (i < length && time.charAt(i) == ' ') {
+            i++;
+        }
+        int half = 0; // 0 for 24 hour, 1 for am, 2 for pm
+        if (i < length) {
+            char c = Character.toLowerCase(time.charAt(i));
+            if (c != 'a' && c != 'p') {
+                return INVALID;
+            }
+            half = c == 'a' ? 1 : 2;
+            i++;
+            if (i < length && time.charAt(i) == '.') {
+                i++;
+            }
+            if (i < length && Character.toLowerCase(time.charAt(i)) == 'm') {
+                i++;
+            }
+            if (i < length && time.charAt(i) == '.') {
+                i++;
+            }
+            while (i < length && time.charAt(i) == ' ') {
+                i++;
+            }
+        }
+        if (i != length || hourDigits == 0 || minute > 59) {
+            return INVALID;
+        }
+        if (half == 0) {
+            return hour > 23 ? INVALID : hour * 60 + minute;
+        }
+        if (hour < 1 || hour > 12) {
+            return INVALID;
+        }
+        return (hour % 12 + (half == 2 ? 12 : 0)) * 60 + minute;
+    }
+
+    /**
+     * Formats minutes since midnight the way times are typed in, like 4:00PM.
+     * @param minuteOfDay int for the minute of the day 0-1439
+     * @return String of the time
+     */
+    public static String formatTime(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        int clock = hour % 12 == 0 ? 12 : hour % 12;
+        return clock + ":" + (minute < 10 ? "0" : "") + minute + (hour < 12 ? "AM" : "PM");
+    }
+
+    /**
+     * Days since 01-01-1970 for a year, month and day.
+     * @param year int for the year
+     * @param month int for the month 1-12
+     * @param day int for the day of month
+     * @return long for the epoch day
+     */
+    private static long civilToEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Number of days in a month.
+     * @param year int for the year, for February
+     * @param month int for the month 1-12
+     * @return int for the days in the month
+     */
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Reads a run of digits.
+     * @param s String to read from
+     * @param start int for first char
+     * @param end int for one past last char
+     * @return int value, -1 if something isn't a digit
+     */
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
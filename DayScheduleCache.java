@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size bounded, least recently used cache of parsed day schedules for days other than
+ * today. Appends are written through to the cached list so it always matches the file.
+ * Safe to share between threads, files are read outside the cache's lock.
+ */
+public class DayScheduleCache {
+    private final int capacity;
+    private final DayLoader loader;
+    private final LinkedHashMap<String, ArrayList<Visit>> days;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Loads a day's visits when it isn't cached.
+     */
+    public interface DayLoader {
+        /**
+         * Reads the visits for a day.
+         * @param date String for the day in MM-DD-YYYY
+         * @return List<Visit> of the day's visits, empty if there is no file yet
+         * @throws IOException if the file can't be read
+         */
+        List<Visit> load(String date) throws IOException;
+    }
+
+    /**
+     * Main constructor
+     * @param capacity int for the most days to keep
+     * @param loader DayLoader to read days that aren't cached
+     */
+    public DayScheduleCache(int capacity, DayLoader loader) {
+        this.capacity = Math.max(1, capacity);
+        this.loader = loader;
+        days = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ArrayList<Visit>> eldest) {
+                if (size() > DayScheduleCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a day's visits, reading the day file on a miss.
+     * @param date String for the day in MM-DD-YYYY
+     * @return List<Visit> read only list of the day's visits
+     * @throws IOException if the file can't be read
+     */
+    public List<Visit> get(String date) throws IOException {
+        synchronized (this) {
+            ArrayList<Visit> visits = days.get(date);
+            if (visits != null) {
+                hits++;
+                return Collections.unmodifiableList(visits);
+            }
+            misses++;
+        }
+        // read the file without holding the cache so other days aren't held up
+        ArrayList<Visit> loaded = new ArrayList<>(loader.load(date));
+        synchronized (this) {
+            ArrayList<Visit> visits = days.putIfAbsent(date, loaded);
+            return Collections.unmodifiableList(visits == null ? loaded : visits);
+        }
+    }
+
+    /**
+     * Writes an appended visit through to the cached day, if the day is cached.
+     * @param v Visit that was appended to its day file
+     */
+    public synchronized void append(Visit v) {
+        ArrayList<Visit> visits = days.get(v.getDate());
+        if (visits != null) {
+            visits.add(v);
+        }
+    }
+
+    /**
+     * Drops a day so the next get() reads the file again.
+     * @param date String for the day in MM-DD-YYYY
+     */
+    public synchronized void invalidate(String date) {
+        days.remove(date);
+    }
+
+    /**
+     * Returns how many gets were served from the cache.
+     * @return long for the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns how many gets had to read a file.
+     * @return long for the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns how many days were pushed out to stay in capacity.
+     * @return long for the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns how many days are cached.
+     * @return int for the cached day count
+     */
+    public synchronized int size() {
+        return days.size();
+    }
+
+    /**
+     * String output of the counters
+     * @return String of the cache stats
+     */
+    public synchronized String toString() {
+        return "Day cache: " + days.size() + "/" + capacity + " days, " + hits + " hits, " + misses + " misses, " +
+                evictions + " evictions";
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * The length, last modified time and a checksum of the contents of a text file, saved
+ * inside a file built from it (the snapshot, the text index) so a stale copy is spotted
+ * when the text file has been changed or replaced since. The length and time are checked
+ * first, they are free; the checksum catches an edit that kept the length within one tick
+ * of the file system's clock. A missing file is stamped with a length of -1.
+ */
+public class FileStamp {
+    private static final long NO_CHECKSUM = -1; // stamps saved before checksums were kept
+    private final String fileName;
+    private final long length;
+    private final long modified;
+    private final long checksum;
+
+    /**
+     * Main constructor
+     * @param fileName String for the file
+     * @param length long for the file length, -1 if missing
+     * @param modified long for the last modified time in millis
+     * @param checksum long for the CRC32C of the contents, -1 if not known
+     */
+    public FileStamp(String fileName, long length, long modified, long checksum) {
+        this.fileName = fileName;
+        this.length = length;
+        this.modified = modified;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Stamps a file as it is now, reading it through once for the checksum.
+     * @param fileName String for the file
+     * @return FileStamp of the file
+     */
+    public static FileStamp of(String fileName) {
+        File f = new File(fileName);
+        if (!f.isFile()) {
+            return new FileStamp(fileName, -1, 0, 0);
+        }
+        return new FileStamp(fileName, f.length(), f.lastModified(), checksum(f));
+    }
+
+    /**
+     * Returns the file name
+     * @return String of the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Checks the file is still the one stamped. The contents are only read when the
+     * length and time match. A stamp with no checksum is never current.
+     * @return true if the length, last modified time and contents are unchanged
+     */
+    public boolean isCurrent() {
+        File f = new File(fileName);
+        if (!f.isFile()) {
+            return length == -1;
+        }
+        if (f.length() != length || f.lastModified() != modified || checksum == NO_CHECKSUM) {
+            return false;
+        }
+        return checksum(f) == checksum;
+    }
+
+    /**
+     * Writes the stamp: str file name, long length, long modified, long checksum.
+     * @param out DataOutputStream to write to
+     * @throws IOException if the write fails
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(fileName);
+        out.writeLong(length);
+        out.writeLong(modified);
+        out.writeLong(checksum);
+    }
+
+    /**
+     * Reads a stamp written by write().
+     * @param in DataInputStream to read from
+     * @return FileStamp that was read
+     * @throws IOException if the read fails
+     */
+    public static FileStamp read(DataInputStream in) throws IOException {
+        return read(in, true);
+    }
+
+    /**
+     * Reads a stamp, which may be from before checksums were written.
+     * @param in DataInputStream to read from
+     * @param withChecksum false for a stamp of just the name, length and time
+     * @return FileStamp that was read, one without a checksum is never current
+     * @throws IOException if the read fails
+     */
+    public static FileStamp read(DataInputStream in, boolean withChecksum) throws IOException {
+        return new FileStamp(in.readUTF(), in.readLong(), in.readLong(), withChecksum ? in.readLong() : NO_CHECKSUM);
+    }
+
+    /**
+     * CRC32C of a file's contents.
+     * @param f File to read
+     * @return long for the checksum, -1 if the file can't be read
+     */
+    private static long checksum(File f) {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(f)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        catch (IOException e) {
+            return NO_CHECKSUM;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Stamps are equal if they are of the same file, length, time and checksum.
+     * @param o Object to compare to
+     * @return true if equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FileStamp)) {
+            return false;
+        }
+        FileStamp s = (FileStamp) o;
+        return fileName.equals(s.fileName) && length == s.length && modified == s.modified && checksum == s.checksum;
+    }
+
+    /**
+     * Hash of the stamp
+     * @return int hash
+     */
+    @Override
+    public int hashCode() {
+        return fileName.hashCode() * 31 + Long.hashCode(length) * 17 + Long.hashCode(modified) * 7 + Long.hashCode(checksum);
+    }
+
+    /**
+     * String output of the stamp
+     * @return String of the file, length, time and checksum
+     */
+    public String toString() {
+        return fileName + " " + length + " bytes, modified " + modified + ", checksum " + Long.toHexString(checksum);
+    }
+}
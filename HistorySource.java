@@ -0,0 +1,24 @@
+import java.io.IOException;
+
+/**
+ * Somewhere a pet's past visits are kept outside the pet, so the pet only builds its
+ * VisitHistory when asked. The VisitHistoryStore reads them from the visit file and the
+ * VisitColumns builds them from its columns.
+ */
+public interface HistorySource {
+    /**
+     * Returns the past visits of a pet.
+     * @param animalID int for the pet ID
+     * @return VisitHistory of the pet's visits oldest first, empty if none
+     * @throws IOException if the visits can't be read
+     */
+    VisitHistory getHistory(int animalID) throws IOException;
+
+    /**
+     * Adds a completed visit.
+     * @param v Visit that is complete
+     * @return int for the bytes written to a file, 0 if kept in memory
+     * @throws IOException if the visit can't be saved
+     */
+    int append(Visit v) throws IOException;
+}
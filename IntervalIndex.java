@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Intervals kept in a balanced tree (AVL) sorted by start, where each node also remembers
+ * the latest end anywhere below it. A lookup skips any subtree whose latest end is at or
+ * before the window start and anything starting at or after the window end, so overlap
+ * checks are O(log n) and window listings O(log n + k) for k intervals found, however
+ * long some of the intervals are.
+ * Intervals with the same start keep the order they were added in. Intervals can't be
+ * taken out. Intervals are half open, [start, end), so back to back appointments don't
+ * overlap.
+ * @param <T> the type of value stored with each interval
+ */
+public class IntervalIndex<T> {
+    private Node<T> root;
+    private int size = 0;
+
+    /**
+     * Adds an interval.
+     * @param start int for the first minute
+     * @param end int for one past the last minute
+     * @param value T stored with it
+     */
+    public void add(int start, int end, T value) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Interval has to end after it starts");
+        }
+        root = insert(root, new Node<>(start, end, value));
+        size++;
+    }
+
+    /**
+     * Checks if anything overlaps a window.
+     * @param start int for the first minute of the window
+     * @param end int for one past the last minute
+     * @return true if some interval overlaps it
+     */
+    public boolean overlaps(int start, int end) {
+        Node<T> n = root;
+        while (n != null && n.maxEnd > start) {
+            if (n.start < end && n.end > start) {
+                return true;
+            }
+            // the left side starts no later, so anything there reaching the window overlaps it
+            // unless this one starts after the window, and then the right side is no use either
+            if (n.left != null && n.left.maxEnd > start) {
+                n = n.left;
+            }
+            else if (n.start < end) {
+                n = n.right;
+            }
+            else {
+                return false; // everything to the right starts after the window
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists everything overlapping a window, ordered by start.
+     * @param start int for the first minute of the window
+     * @param end int for one past the last minute
+     * @return List<T> of the overlapping values
+     */
+    public List<T> window(int start, int end) {
+        List<T> found = new ArrayList<>();
+        collect(root, start, end, found);
+        return found;
+    }
+
+    /**
+     * Returns the number of intervals.
+     * @return int for the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the values of a subtree that overlap a window, in order.
+     * @param n Node at the top of the subtree, may be null
+     * @param start int for the window start
+     * @param end int for the window end
+     * @param found List<T> to add to
+     */
+    private static <T> void collect(Node<T> n, int start, int end, List<T> found) {
+        if (n == null || n.maxEnd <= start) {
+            return; // nothing below reaches the window
+        }
+        collect(n.left, start, end, found);
+        if (n.start >= end) {
+            return; // this one and everything to the right start after the window
+        }
+        if (n.end > start) {
+            found.add(n.value);
+        }
+        collect(n.right, start, end, found);
+    }
+
+    /**
+     * Puts a node in a subtree and rebalances it. Equal starts go right so they keep the
+     * order they were added in.
+     * @param n Node at the top of the subtree, may be null
+     * @param add Node to put in
+     * @return Node at the top of the subtree after
+     */
+    private static <T> Node<T> insert(Node<T> n, Node<T> add) {
+        if (n == null) {
+            return add;
+        }
+        if (add.start < n.start) {
+            n.left = insert(n.left, add);
+        }
+        else {
+            n.right = insert(n.right, add);
+        }
+        return balance(n);
+    }
+
+    /**
+     * Rotates a node whose sides differ in height by two, then updates it.
+     * @param n Node to balance
+     * @return Node at the top after
+     */
+    private static <T> Node<T> balance(Node<T> n) {
+        int lean = height(n.left) - height(n.right);
+        if (lean > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (lean < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        n.update();
+        return n;
+    }
+
+    /**
+     * Lifts the left child above a node.
+     * @param n Node to rotate
+     * @return Node that took its place
+     */
+    private static <T> Node<T> rotateRight(Node<T> n) {
+        Node<T> top = n.left;
+        n.left = top.right;
+        top.right = n;
+        n.update();
+        top.update();
+        return top;
+    }
+
+    /**
+     * Lifts the right child above a node.
+     * @param n Node to rotate
+     * @return Node that took its place
+     */
+    private static <T> Node<T> rotateLeft(Node<T> n) {
+        Node<T> top = n.right;
+        n.right = top.left;
+        top.left = n;
+        n.update();
+        top.update();
+        return top;
+    }
+
+    /**
+     * Height of a subtree.
+     * @param n Node at the top, may be null
+     * @return int for the height, 0 when empty
+     */
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    /**
+     * One stored interval and what is known about the subtree below it.
+     * @param <T> the type of value stored
+     */
+    private static class Node<T> {
+        private final int start;
+        private final int end;
+        private final T value;
+        private int maxEnd;
+        private int height = 1;
+        private Node<T> left;
+        private Node<T> right;
+
+        Node(int start, int end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+        /**
+         * Works out the height and latest end again from the children.
+         */
+        void update() {
+            height = 1 + Math.max(height(left), height(right));
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of nanosecond timings. Buckets are log linear: each power of two is
+ * split into 8 buckets, so any recorded value is known to within 12.5% while the whole
+ * range up to days fits in under 500 counters. Recording is a couple of atomic adds, so it
+ * can sit on every call without showing up in the timings it takes.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8; // per power of two
+    private static final int SUB_BITS = 3;
+    private static final int LINEAR = 2 * SUB_BUCKETS; // values under this get their own bucket
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one timing.
+     * @param nanos long for the time taken, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        total.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Returns how many timings were recorded.
+     * @return long for the count
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the average timing.
+     * @return double for the mean in nanoseconds, 0 if nothing recorded
+     */
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the longest timing.
+     * @return long for the max in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the timing a share of the recorded timings are at or under.
+     * @param p double for the percentile, 0.99 for p99
+     * @return long for the timing in nanoseconds, the middle of its bucket
+     */
+    public long getPercentile(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(max.get(), lowest(i) + (lowest(i + 1) - lowest(i)) / 2);
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Bucket a value falls in.
+     * @param value long for the timing, not negative
+     * @return int for the bucket
+     */
+    private static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // at least 4
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Smallest value that lands in a bucket.
+     * @param bucket int for the bucket
+     * @return long for the lowest value in it
+     */
+    private static long lowest(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        if (exponent > 62) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs a made up clinic day against a VetDB with no console, from many threads at once,
+ * to see how much traffic one VetDB can take. Each thread does a mix of the same things
+ * the front desk does through ScheduleSystem: booking visits, putting the next visit in a
+ * room, completing visits and searching for pets. Throughput and p50/p99/p999 latency of
+ * each kind of operation are printed at the end, followed by the VetDB's own metrics.
+ *
+ * Data is made with the ClinicDataGenerator in the working directory, so run this from
+ * an empty directory, it won't run where a PetList.txt already exists:
+ * <pre>
+ * java LoadSimulator
+ *   -Dsim.threads=8 -Dsim.ops=200000      - threads and operations per thread
+ *   -Dsim.pets=5000 -Dsim.visits=100000   - size of the data
+ *   -Dsim.rooms=8 -Dsim.seed=1            - exam rooms and random seed
+ *   -Dsim.journal=true -Dsim.syncEvery=32 - log to the journal, forcing every this many records
+ * </pre>
+ */
+public class LoadSimulator {
+    private static final String TODAY = "06-15-2025";
+    private static final String[] OPS = {"addVisit", "assignRoom", "completeVisit", "searchPet"};
+    private static final int[] MIX = {30, 20, 20, 30}; // percent of operations of each kind
+    private static final String[] VETS = {"", "Dr. Adams", "Dr. Baker", "Dr. Chen", "Dr. Diaz"};
+
+    private final VetDB db;
+    private final RoomDispatcher rooms;
+    private final int pets;
+
+    /**
+     * Main constructor
+     * @param db VetDB loaded with the data
+     * @param rooms RoomDispatcher for the exam rooms
+     * @param pets int for how many pets there are, IDs run from 0
+     */
+    public LoadSimulator(VetDB db, RoomDispatcher rooms, int pets) {
+        this.db = db;
+        this.rooms = rooms;
+        this.pets = pets;
+    }
+
+    /**
+     * Generates the data, runs the day and prints the report.
+     * @param args not used, see the class comment for settings
+     */
+    public static void main(String[] args) {
+        if (new File("PetList.txt").exists() || new File("CompletedVisit.txt").exists()) {
+            System.out.println("Error, run from an empty directory, the simulator writes its own data files");
+            return;
+        }
+        int threads = Integer.getInteger("sim.threads", 8);
+        int ops = Integer.getInteger("sim.ops", 200000);
+        int pets = Integer.getInteger("sim.pets", 5000);
+        int visits = Integer.getInteger("sim.visits", 100000);
+        long seed = Long.getLong("sim.seed", 1L);
+        try {
+            new ClinicDataGenerator(seed).generate(new File("."), pets, visits, TODAY, 30, 40);
+            VetDB db = new VetDB(TODAY + ".txt");
+            db.readDaySchedule();
+            db.readPastVisits();
+            db.readPets();
+            if (Boolean.parseBoolean(System.getProperty("sim.journal", "true"))) {
+                db.openJournal("VetJournal.log", Integer.getInteger("sim.syncEvery", 32), 0L, Integer.MAX_VALUE);
+            }
+            LoadSimulator sim = new LoadSimulator(db, new RoomDispatcher(Integer.getInteger("sim.rooms", 8)), pets);
+            System.out.println(sim.run(threads, ops, seed));
+            System.out.println();
+            System.out.print(db.getMetrics().getReport());
+            db.close();
+        }
+        catch (Exception e) {
+            System.out.println("Error running simulation: " + e);
+        }
+    }
+
+    /**
+     * Runs the day on the threads and gathers the timings.
+     * @param threads int for how many threads
+     * @param opsPerThread int for how many operations each thread does
+     * @param seed long for the random numbers, each thread gets its own stream
+     * @return String of the report
+     * @throws InterruptedException if interrupted while waiting on the threads
+     */
+    public String run(int threads, int opsPerThread, long seed) throws InterruptedException {
+        long[][][] latencies = new long[threads][OPS.length][];
+        int[][] counts = new int[threads][OPS.length];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            for (int op = 0; op < OPS.length; op++) {
+                latencies[t][op] = new long[opsPerThread];
+            }
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed * 31 + worker);
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    int op = pickOp(random);
+                    long began = System.nanoTime();
+                    runOp(op, random);
+                    latencies[worker][op][counts[worker][op]++] = System.nanoTime() - began;
+                }
+            }, "sim-" + t);
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        StringBuilder report = new StringBuilder();
+        long total = (long) threads * opsPerThread;
+        report.append(String.format("%d ops on %d threads in %d ms, %.0f ops/s%n", total, threads, elapsed / 1_000_000,
+                total * 1e9 / elapsed));
+        report.append(String.format("%-14s %9s %10s %10s %10s %10s%n", "Operation", "Count", "p50 us", "p99 us", "p999 us", "max us"));
+        for (int op = 0; op < OPS.length; op++) {
+            int n = 0;
+            for (int t = 0; t < threads; t++) {
+                n += counts[t][op];
+            }
+            long[] all = new long[n];
+            int at = 0;
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(latencies[t][op], 0, all, at, counts[t][op]);
+                at += counts[t][op];
+            }
+            Arrays.sort(all);
+            report.append(String.format("%-14s %9d %10.1f %10.1f %10.1f %10.1f%n", OPS[op], n, percentile(all, 0.50),
+                    percentile(all, 0.99), percentile(all, 0.999), n == 0 ? 0.0 : all[n - 1] / 1000.0));
+        }
+        report.append("Rooms free ").append(rooms.getFreeRoomCount()).append(", waiting ").append(rooms.getWaitingCount())
+                .append(", left in schedule ").append(db.getDailyScheduleSize());
+        return report.toString();
+    }
+
+    /**
+     * Picks an operation by MIX.
+     * @param random Random to draw from
+     * @return int index into OPS
+     */
+    private static int pickOp(Random random) {
+        int roll = random.nextInt(100);
+        for (int op = 0; op < MIX.length; op++) {
+            roll -= MIX[op];
+            if (roll < 0) {
+                return op;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Does one operation the way ScheduleSystem would.
+     * @param op int index into OPS
+     * @param random Random to draw from
+     */
+    private void runOp(int op, Random random) {
+        switch (op) {
+            case 0 -> addVisit(random);
+            case 1 -> assignRoom();
+            case 2 -> completeVisit(random);
+            default -> searchPet(random);
+        }
+    }
+
+    /**
+     * Books a visit in the next 60 days, often clashing like a busy front desk. One in ten
+     * booked for today is urgent.
+     * @param random Random to draw from
+     */
+    private void addVisit(Random random) {
+        String date = DateTimeKeys.formatDate(DateTimeKeys.epochDay(TODAY) + random.nextInt(60));
+        String time = DateTimeKeys.formatTime(8 * 60 + 5 * random.nextInt(120));
+        Visit v = new Visit(0, date, time, random.nextInt(pets), "Booked by simulator.",
+                15 * (1 + random.nextInt(4)), VETS[random.nextInt(VETS.length)]);
+        if (db.addNewVisit(v) && date.equals(TODAY) && random.nextInt(10) == 0) {
+            rooms.markUrgent(v.getId());
+        }
+    }
+
+    /**
+     * Puts the next scheduled visit in a free room, see ScheduleSystem.assignVisitToRoom.
+     */
+    private void assignRoom() {
+        rooms.fill(db::getNextVisit);
+        int room = rooms.dispatch();
+        if (room > 0) {
+            Visit v = rooms.getVisitInRoom(room);
+            if (v != null) {
+                db.assignRoom(v, room);
+            }
+        }
+    }
+
+    /**
+     * Completes the visit in a random room, see ScheduleSystem.completeVisit.
+     * @param random Random to draw from
+     */
+    private void completeVisit(Random random) {
+        Visit done = rooms.release(1 + random.nextInt(rooms.getRoomCount()));
+        if (done == null) {
+            return;
+        }
+        done.addDetails("Seen by simulator.");
+        if (db.getPet(done.getAnimalID()) != null) {
+            db.completeVisit(done);
+        }
+        rooms.dispatch();
+    }
+
+    /**
+     * Looks up a pet by ID, owner or phone number.
+     * @param random Random to draw from
+     */
+    private void searchPet(Random random) {
+        int id = random.nextInt(pets);
+        Pet p = db.getPet(id);
+        if (p == null) {
+            return;
+        }
+        List<Integer> found = switch (random.nextInt(3)) {
+            case 0 -> db.findPetsByOwner(p.getOwner().substring(0, Math.min(4, p.getOwner().length())));
+            case 1 -> db.findPetsByContact(p.getOwnerContact());
+            default -> List.of(id);
+        };
+        if (found.isEmpty()) {
+            throw new IllegalStateException("Pet " + id + " missing from its own search");
+        }
+    }
+
+    /**
+     * Value at a percentile of sorted nanosecond timings.
+     * @param sorted long[] of timings in order
+     * @param p double for the percentile, 0.99 for p99
+     * @return double for the timing in microseconds
+     */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Loads the visit and pet files by memory mapping them, cutting them into chunks on
+ * line boundaries and parsing the chunks on a fork join pool. Results are merged back
+ * in file order so the loaded data matches what the single threaded readers produce.
+ * Chunks are cut on '\n' bytes, which never show up inside a multi byte UTF-8 character.
+ */
+public class MappedLoader {
+    private static final int MIN_CHUNK = 1 << 20; // 1 MB, smaller chunks aren't worth a task
+    private static final int MAX_CHUNK = 1 << 26; // 64 MB, keeps every mapping well under 2 GB
+    private final ForkJoinPool pool;
+    private final StringDictionary dictionary;
+
+    /**
+     * Loader running on the common pool.
+     */
+    public MappedLoader() {
+        this(ForkJoinPool.commonPool(), new StringDictionary(1 << 16));
+    }
+
+    /**
+     * Loader running on the common pool sharing repeated text through a dictionary.
+     * @param dictionary StringDictionary shared by the chunks
+     */
+    public MappedLoader(StringDictionary dictionary) {
+        this(ForkJoinPool.commonPool(), dictionary);
+    }
+
+    /**
+     * Loader running on the pool sent.
+     * @param pool ForkJoinPool to parse the chunks on
+     * @param dictionary StringDictionary shared by the chunks
+     */
+    public MappedLoader(ForkJoinPool pool, StringDictionary dictionary) {
+        this.pool = pool;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Reads the completed visits file, handing each visit on in file order.
+     * @param fileName String for the visit file
+     * @param into Consumer<Visit> to add the visits to, like a list's add or VisitColumns.add
+     * @param nextVisitID int to return if the file has no next visit ID line
+     * @return int for the last next visit ID line found in the file
+     * @throws IOException if the file can't be mapped
+     */
+    public int readPastVisits(String fileName, Consumer<Visit> into, int nextVisitID) throws IOException {
+        List<Chunk> chunks = parse(fileName, false);
+        for (Chunk c : chunks) {
+            c.visits.forEach(into);
+            if (c.hasNextVisitID) {
+                nextVisitID = c.nextVisitID; // later chunks win, same as reading top to bottom
+            }
+        }
+        return nextVisitID;
+    }
+
+    /**
+     * Reads the pet file, joining each pet to its visits from the index sent. The join is
+     * done in file order as the chunks are merged, taking each history out of the index, so
+     * a pet ID written twice works the same as in the line by line reader: the first line
+     * gets the visits and the last line is the pet kept.
+     * @param fileName String for the pet file
+     * @param visitsByAnimal Map of animal ID to sorted past visits, each taken out as its pet is read
+     * @param into PetRegistry to put the pets into
+     * @throws IOException if the file can't be mapped
+     */
+    public void readPets(String fileName, Map<Integer, VisitHistory> visitsByAnimal, PetRegistry into) throws IOException {
+        List<Chunk> chunks = parse(fileName, true);
+        for (Chunk c : chunks) {
+            for (int i = 0; i < c.pets.size(); i++) {
+                Pet p = c.pets.get(i);
+                VisitHistory visits = visitsByAnimal.remove(c.petIds[i]);
+                if (visits != null) {
+                    p.setPastVisits(visits);
+                }
+                into.put(c.petIds[i], p);
+            }
+        }
+    }
+
+    /**
+     * Maps the file, splits it and runs a task per chunk.
+     * @param fileName String for the file to read
+     * @param pets true when reading the pet file, false for the visit file
+     * @return List<Chunk> of parsed chunks in file order
+     * @throws IOException if the file can't be read
+     */
+    private List<Chunk> parse(String fileName, boolean pets) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long target = size / (pool.getParallelism() * 4L);
+            target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, target));
+
+            long start = 0;
+            while (start < size) {
+                long end = start + target >= size ? size : lineEnd(channel, start + target, size);
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                chunks.add(new Chunk(bytes, start == 0, pets));
+                start = end;
+            }
+        }
+        // mappings stay valid after the channel closes
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(chunks);
+            }
+        });
+        return chunks;
+    }
+
+    /**
+     * Finds the first position after a line break at or past the position sent.
+     * A chunk can grow past MAX_CHUNK by one line, which is fine for any sane line.
+     * @param channel FileChannel to look in
+     * @param from long position to start looking from
+     * @param size long for the file size
+     * @return long position of the first byte of the next line
+     * @throws IOException if reading fails
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = from;
+        while (pos < size) {
+            buf.clear();
+            int read = channel.read(buf, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * One piece of a file, parsed on its own thread with its own RecordParser.
+     * Never serialized, so it has no serialVersionUID.
+     */
+    @SuppressWarnings("serial")
+    private class Chunk extends RecursiveAction {
+        private final MappedByteBuffer bytes;
+        private final boolean hasHeader;
+        private final boolean petFile;
+        private final ArrayList<Visit> visits = new ArrayList<>();
+        private final ArrayList<Pet> pets = new ArrayList<>();
+        private int[] petIds = new int[16];
+        private int nextVisitID;
+        private boolean hasNextVisitID;
+
+        Chunk(MappedByteBuffer bytes, boolean hasHeader, boolean petFile) {
+            this.bytes = bytes;
+            this.hasHeader = hasHeader;
+            this.petFile = petFile;
+        }
+
+        @Override
+        protected void compute() {
+            CharBuffer chars = RecordParser.CHARSET.decode(bytes); // same charset as the plain readers
+            RecordParser data = new RecordParser();
+            int length = chars.length();
+            int start = 0;
+            boolean skip = hasHeader;
+            while (start < length) {
+                int end = start;
+                while (end < length && chars.charAt(end) != '\n') {
+                    end++;
+                }
+                if (skip) {
+                    skip = false;
+                }
+                else if (!data.reset(chars.subSequence(start, end)).isBlank()) {
+                    if (petFile) {
+                        addPet(data);
+                    }
+                    else {
+                        addVisit(data);
+                    }
+                }
+                start = end + 1;
+            }
+        }
+
+        /**
+         * Handles a line of the completed visit file.
+         * @param data RecordParser holding the line
+         */
+        private void addVisit(RecordParser data) {
+            if (data.fieldCount() == 1) { // next visit number line
+                nextVisitID = data.intField(0);
+                hasNextVisitID = true;
+            }
+            else {
+                visits.add(Visit.fromRecord(data, 0, dictionary));
+            }
+        }
+
+        /**
+         * Handles a line of the pet file. Visits are joined on when the chunks are merged.
+         * @param data RecordParser holding the line
+         */
+        private void addPet(RecordParser data) {
+            int id = data.intField(0);
+            Pet p = Pet.fromRecord(data, dictionary, null);
+            if (pets.size() == petIds.length) {
+                int[] grown = new int[petIds.length * 2];
+                System.arraycopy(petIds, 0, grown, 0, petIds.length);
+                petIds = grown;
+            }
+            petIds[pets.size()] = id;
+            pets.add(p);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Owner class that holds a household's name, address and contact once for all of its pets.
+ * Pets point at their Owner instead of carrying their own copies, so a phone number is
+ * changed in one place. Once in an OwnerRegistry the owner gets an ID and keeps the IDs of
+ * its pets, so all the pets of an owner are found without looking at any other pet.
+ */
+public class Owner {
+    private int id; // set when put in an OwnerRegistry
+    private OwnerRegistry registry; // null until put in an OwnerRegistry
+    private String name;
+    private String address;
+    private String contact;
+    private int[] petIds = new int[2];
+    private int petCount = 0;
+
+    /**
+     * Main constructor
+     * @param name String for the owner name
+     * @param address String for the address of the owner
+     * @param contact String for the contact of the owner
+     */
+    public Owner(String name, String address, String contact) {
+        this.name = name;
+        this.address = address;
+        this.contact = contact;
+    }
+
+    /**
+     * Returns the ID the owner is kept under
+     * @return int for the id, 0 if not added to the system yet
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Links the owner to the registry so setters keep it current.
+     * @param id int for the ID the owner is kept under
+     * @param registry OwnerRegistry to tell about changes, null to unlink
+     */
+    void attach(int id, OwnerRegistry registry) {
+        this.id = id;
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the registry the owner is in
+     * @return OwnerRegistry holding the owner, null if none
+     */
+    OwnerRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the owner name
+     * @return String of the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Changes the owner name for every pet of the owner
+     * @param name String for the new name
+     */
+    public void setName(String name) {
+        String old = this.name;
+        this.name = name;
+        if (registry != null) {
+            registry.changed(this, old, address, contact);
+        }
+    }
+
+    /**
+     * Returns the owner address
+     * @return String of the address
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Changes the owner address for every pet of the owner
+     * @param address String for the new address
+     */
+    public void setAddress(String address) {
+        String old = this.address;
+        this.address = address;
+        if (registry != null) {
+            registry.changed(this, name, old, contact);
+        }
+    }
+
+    /**
+     * Returns the owner contact
+     * @return String of the contact
+     */
+    public String getContact() {
+        return contact;
+    }
+
+    /**
+     * Changes the owner contact for every pet of the owner
+     * @param contact String for the new contact
+     */
+    public void setContact(String contact) {
+        String old = this.contact;
+        this.contact = contact;
+        if (registry != null) {
+            registry.changed(this, name, address, old);
+        }
+    }
+
+    /**
+     * Returns the IDs of the owner's pets.
+     * @return List<Integer> of pet IDs in the order they were added
+     */
+    public synchronized List<Integer> getPetIds() {
+        List<Integer> ids = new ArrayList<>(petCount);
+        for (int i = 0; i < petCount; i++) {
+            ids.add(petIds[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns how many pets the owner has.
+     * @return int for the pet count
+     */
+    public synchronized int getPetCount() {
+        return petCount;
+    }
+
+    /**
+     * Adds a pet to the owner, once.
+     * @param petId int for the pet ID
+     */
+    synchronized void addPet(int petId) {
+        if (indexOf(petId) >= 0) {
+            return;
+        }
+        if (petCount == petIds.length) {
+            petIds = Arrays.copyOf(petIds, petCount * 2);
+        }
+        petIds[petCount++] = petId;
+    }
+
+    /**
+     * Takes a pet off the owner.
+     * @param petId int for the pet ID
+     */
+    synchronized void removePet(int petId) {
+        int at = indexOf(petId);
+        if (at >= 0) {
+            System.arraycopy(petIds, at + 1, petIds, at, petCount - at - 1);
+            petCount--;
+        }
+    }
+
+    /**
+     * Finds a pet in the owner's list. Households are small so a scan is fine.
+     * @param petId int for the pet ID
+     * @return int for the place in the list, -1 if not there
+     */
+    private int indexOf(int petId) {
+        for (int i = 0; i < petCount; i++) {
+            if (petIds[i] == petId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a string printout of the owner
+     * @return String of the owner
+     */
+    public String toString() {
+        return "Owner:   " + name + "\nAddress: " + address + "\nContact: " + contact;
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The owners of the pets in a PetRegistry, each kept once under an int ID. Pets put in the
+ * registry with the same owner name, address and contact end up sharing one Owner, so a
+ * household is stored once no matter how many animals it brings in, and the Owner keeps
+ * its pet IDs so "every pet of this owner" is one lookup.
+ *
+ * Owners are matched on all three fields exactly as written. Changing an owner's details
+ * changes them for all of its pets and moves them in the PetIndex; if the new details
+ * match another owner the two are left apart rather than merged. An owner is dropped once
+ * its last pet leaves. All methods are synchronized so setters on any thread are safe.
+ */
+public class OwnerRegistry {
+    private final HashMap<Integer, Owner> byId = new HashMap<>();
+    private final HashMap<String, Owner> byDetails = new HashMap<>();
+    private final PetIndex index;
+    private int nextId = 1;
+
+    /**
+     * Main constructor
+     * @param index PetIndex of the pets, moved along when owner details change
+     */
+    public OwnerRegistry(PetIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns an owner by ID.
+     * @param id int for the owner ID
+     * @return Owner with that ID, null if none
+     */
+    public synchronized Owner get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Finds the owner with exactly these details.
+     * @param name String for the owner name
+     * @param address String for the address
+     * @param contact String for the contact
+     * @return Owner with those details, null if none
+     */
+    public synchronized Owner find(String name, String address, String contact) {
+        return byDetails.get(key(name, address, contact));
+    }
+
+    /**
+     * Returns the IDs of an owner's pets.
+     * @param id int for the owner ID
+     * @return List<Integer> of pet IDs, empty if there is no such owner
+     */
+    public synchronized List<Integer> getPetIds(int id) {
+        Owner o = byId.get(id);
+        return o == null ? new ArrayList<>() : o.getPetIds();
+    }
+
+    /**
+     * Returns the number of owners.
+     * @return int for the size
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Gives a pet its owner: the one already here with the same details, or the one sent
+     * which is then added under a new ID.
+     * @param petId int for the pet ID
+     * @param o Owner the pet came with
+     * @return Owner the pet should point at from now on
+     */
+    synchronized Owner attach(int petId, Owner o) {
+        if (o.getRegistry() != this) {
+            String key = key(o.getName(), o.getAddress(), o.getContact());
+            Owner had = byDetails.get(key);
+            if (had == null) {
+                had = o.getRegistry() == null ? o : new Owner(o.getName(), o.getAddress(), o.getContact());
+                had.attach(nextId++, this);
+                byId.put(had.getId(), had);
+                byDetails.put(key, had);
+            }
+            o = had;
+        }
+        o.addPet(petId);
+        return o;
+    }
+
+    /**
+     * Takes a pet off its owner, dropping the owner if it was the last pet.
+     * @param petId int for the pet ID
+     * @param o Owner the pet pointed at
+     */
+    synchronized void detach(int petId, Owner o) {
+        if (o.getRegistry() != this) {
+            return;
+        }
+        o.removePet(petId);
+        if (o.getPetCount() == 0) {
+            byId.remove(o.getId());
+            byDetails.remove(key(o.getName(), o.getAddress(), o.getContact()), o);
+            o.attach(0, null);
+        }
+    }
+
+    /**
+     * Moves a pet from one owner to another.
+     * @param petId int for the pet ID
+     * @param from Owner the pet pointed at
+     * @param to Owner to move it to
+     * @return Owner the pet should point at from now on
+     */
+    synchronized Owner move(int petId, Owner from, Owner to) {
+        detach(petId, from);
+        return attach(petId, to);
+    }
+
+    /**
+     * Keeps the lookup and the PetIndex current after an owner's details change.
+     * @param o Owner that changed
+     * @param oldName String for the name before
+     * @param oldAddress String for the address before
+     * @param oldContact String for the contact before
+     */
+    synchronized void changed(Owner o, String oldName, String oldAddress, String oldContact) {
+        byDetails.remove(key(oldName, oldAddress, oldContact), o);
+        byDetails.putIfAbsent(key(o.getName(), o.getAddress(), o.getContact()), o);
+        for (int petId : o.getPetIds()) {
+            if (!same(oldName, o.getName())) {
+                index.ownerChanged(petId, oldName, o.getName());
+            }
+            if (!same(oldContact, o.getContact())) {
+                index.contactChanged(petId, oldContact, o.getContact());
+            }
+        }
+    }
+
+    /**
+     * Removes every owner.
+     */
+    public synchronized void clear() {
+        for (Owner o : byId.values()) {
+            o.attach(0, null);
+        }
+        byId.clear();
+        byDetails.clear();
+        nextId = 1;
+    }
+
+    /**
+     * Estimated heap used by the owners, assuming 4 byte compressed references: an entry in
+     * each map, the boxed ID, the details key and the Owner with its pet ID array. The
+     * name, address and contact strings are counted once through the key.
+     * @return long for the bytes used
+     */
+    public synchronized long footprintBytes() {
+        long bytes = 2 * (48 + 16 + 4L * Integer.highestOneBit(Math.max(1, byId.size() * 4 / 3) * 2)); // the two tables
+        for (Map.Entry<String, Owner> e : byDetails.entrySet()) {
+            bytes += 2 * 32 + 16 + 24 + ((16 + e.getKey().length() + 7) & ~7L) + 40 +
+                    ((16 + 4L * e.getValue().getPetCount() + 7) & ~7L);
+        }
+        return bytes;
+    }
+
+    /**
+     * Lookup key of an owner's details. Tabs can't be in a field so they can't run together.
+     * @param name String for the owner name
+     * @param address String for the address
+     * @param contact String for the contact
+     * @return String key
+     */
+    private static String key(String name, String address, String contact) {
+        return name + "\t" + address + "\t" + contact;
+    }
+
+    /**
+     * Null safe equals.
+     * @param a String first
+     * @param b String second
+     * @return true if both are null or equal
+     */
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * String output of the count
+     * @return String of the owner count
+     */
+    public synchronized String toString() {
+        return byId.size() + " owners";
+    }
+}
@@ -1,19 +1,19 @@
-import java.util.Stack;
-import java.util.Collections;
+import java.io.IOException;
 import java.util.List;
+import java.util.Stack;
 
 /**
  * Pet class that holds all the information for the pet.
  */
 public class Pet {
-    // private int ID; // ID is also the key in the Map...do I need this here as well?
+    private int id; // set when put in a PetRegistry so setters can update its indexes
+    private PetIndex index; // null until the pet is put in a PetRegistry
     private String name;
     private String type;
     private String subtype;
-    private String owner;
-    private String ownerAddress;
-    private String ownerContact;
-    Stack<Visit> pastVisits = new Stack<Visit>();
+    private Owner owner; // shared with the owner's other pets once in a PetRegistry
+    private VisitHistory pastVisits = new VisitHistory();
+    private HistorySource history; // set in lazy or columnar mode, past visits are then made from it when needed
 
     /**
      * Main constructor
@@ -23,15 +23,40 @@ public class Pet {
      * @param owner String for the owner name
      * @param ownerAddress String for the address of the owner
      * @param ownerContact String for the contact of the owner
+     * @param pastVisits VisitHistory of the past visits
+     */
+    public Pet(String name, String type, String subtype, String owner, String ownerAddress, String ownerContact, VisitHistory pastVisits) {
+        this(name, type, subtype, new Owner(owner, ownerAddress, ownerContact), pastVisits);
+    }
+
+    /**
+     * Constructor taking the past visits as a Stack, like before they were kept sorted.
+     * The visits are copied into a VisitHistory in date order, the Stack isn't kept.
+     * @param name String for pet's name
+     * @param type String for the type of pet
+     * @param subtype String for the subtype of the pet/breed
+     * @param owner String for the owner name
+     * @param ownerAddress String for the address of the owner
+     * @param ownerContact String for the contact of the owner
      * @param pastVisits Stack of Visit objects
      */
     public Pet(String name, String type, String subtype, String owner, String ownerAddress, String ownerContact, Stack<Visit> pastVisits) {
+        this(name, type, subtype, owner, ownerAddress, ownerContact, VisitHistory.of(pastVisits));
+    }
+
+    /**
+     * Constructor for a pet of an owner already made
+     * @param name String for pet's name
+     * @param type String for the type of pet
+     * @param subtype String for the subtype of the pet/breed
+     * @param owner Owner of the pet
+     * @param pastVisits VisitHistory of the past visits
+     */
+    public Pet(String name, String type, String subtype, Owner owner, VisitHistory pastVisits) {
         this.name = name;
         this.type = type;
         this.subtype = subtype;
         this.owner = owner;
-        this.ownerAddress = ownerAddress;
-        this.ownerContact = ownerContact;
         this.pastVisits = pastVisits;
     }
 
@@ -45,13 +70,55 @@ public class Pet {
      * @param ownerContact String for the owner's contact information
      */
     public Pet(String name, String type, String subtype, String owner, String ownerAddress, String ownerContact) {
-        this.name = name;
-        this.type = type;
-        this.subtype = subtype;
+        this(name, type, subtype, new Owner(owner, ownerAddress, ownerContact), new VisitHistory()); // create new for new pet in system
+    }
+
+    /**
+     * Makes a pet from a pet file line: ID, name, type, subtype, owner, address and contact.
+     * The type and subtype are shared through the dictionary.
+     * @param data RecordParser holding the line
+     * @param dictionary StringDictionary to share repeated text through
+     * @param pastVisits VisitHistory of the pet's visits, null for none
+     * @return Pet made from the line
+     */
+    public static Pet fromRecord(RecordParser data, StringDictionary dictionary, VisitHistory pastVisits) {
+        return new Pet(data.field(1), dictionary.intern(data.field(2)), dictionary.intern(data.field(3)),
+                data.field(4), data.field(5), data.field(6), pastVisits == null ? new VisitHistory() : pastVisits);
+    }
+
+    /**
+     * Returns the ID the pet is kept under
+     * @return int for the id, 0 if not added to the system yet
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Links the pet to the registry's indexes so setters keep them current.
+     * @param id int for the ID the pet is kept under
+     * @param index PetIndex to tell about changes, null to unlink
+     */
+    void attach(int id, PetIndex index) {
+        this.id = id;
+        this.index = index;
+    }
+
+    /**
+     * Points the pet at the owner the registry keeps, without touching the indexes.
+     * @param owner Owner to use
+     */
+    void useOwner(Owner owner) {
         this.owner = owner;
-        this.ownerAddress = ownerAddress;
-        this.ownerContact = ownerContact;
-        pastVisits = new Stack<>(); // create new for new pet in system
+    }
+
+    /**
+     * Gets the past visits from a store when they are needed instead of holding them.
+     * @param history HistorySource to get this pet's visits from, by its ID
+     */
+    void useHistory(HistorySource history) {
+        this.history = history;
+        pastVisits = null;
     }
 
     /**
@@ -83,7 +150,11 @@ public class Pet {
      * @param type String for the new type
      */
     public void setType(String type) {
+        String old = this.type;
         this.type = type;
+        if (index != null) {
+            index.typeChanged(id, old, type);
+        }
     }
 
     /**
@@ -99,23 +170,51 @@ public class Pet {
      * @param subtype String for the new sub type
      */
     public void setSubtype(String subtype) {
+        String old = this.subtype;
         this.subtype = subtype;
+        if (index != null) {
+            index.subtypeChanged(id, old, subtype);
+        }
     }
 
     /**
      * Returns the owner of the pet
+     * @return Owner shared by the owner's pets
+     */
+    public Owner getOwnerRecord() {
+        return owner;
+    }
+
+    /**
+     * Gives the pet to another owner, only this pet moves
+     * @param owner Owner to move the pet to
+     */
+    public void setOwnerRecord(Owner owner) {
+        Owner old = this.owner;
+        OwnerRegistry owners = old.getRegistry();
+        if (index == null || owners == null) {
+            this.owner = owner;
+            return;
+        }
+        this.owner = owners.move(id, old, owner);
+        index.ownerChanged(id, old.getName(), this.owner.getName());
+        index.contactChanged(id, old.getContact(), this.owner.getContact());
+    }
+
+    /**
+     * Returns the owner name of the pet
      * @return String of the owner
      */
     public String getOwner() {
-        return owner;
+        return owner.getName();
     }
 
     /**
-     * Changes the owner of the pet
+     * Changes the owner name, for every pet of the owner
      * @param owner String for the new owner
      */
     public void setOwner(String owner) {
-        this.owner = owner;
+        this.owner.setName(owner);
     }
 
     /**
@@ -123,15 +222,15 @@ public class Pet {
      * @return String of the owner address
      */
     public String getOwnerAddress() {
-        return ownerAddress;
+        return owner.getAddress();
     }
 
     /**
-     * Changes the owner address
+     * Changes the owner address, for every pet of the owner
      * @param ownerAddress String for new owner address
      */
     public void setOwnerAddress(String ownerAddress) {
-        this.ownerAddress = ownerAddress;
+        owner.setAddress(ownerAddress);
     }
 
     /**
@@ -139,31 +238,71 @@ public class Pet {
      * @return String for the contact
      */
     public String getOwnerContact() {
-        return ownerContact;
+        return owner.getContact();
     }
 
     /**
-     * Changes the owner contact
+     * Changes the owner contact, for every pet of the owner
      * @param ownerContact String for new owner contact
      */
     public void setOwnerContact(String ownerContact) {
-        this.ownerContact = ownerContact;
+        owner.setContact(ownerContact);
     }
 
     /**
-     * Returns past visits
+     * Returns the past visit history, made from the store first in lazy or columnar mode.
+     * @return VisitHistory of the past visits
+     */
+    public VisitHistory getHistory() {
+        if (history != null) {
+            try {
+                return history.getHistory(id);
+            }
+            catch (IOException e) {
+                System.out.println("Error reading visit history");
+                return new VisitHistory();
+            }
+        }
+        return pastVisits;
+    }
+
+    /**
+     * Returns past visits as a Stack, like before they were kept sorted. The Stack is a copy
+     * in date order, newest on top, so pushing onto it doesn't add a visit, use addVisit().
      * @return Stack<Visit> of the past visits
      */
     public Stack<Visit> getPastVisits() {
-        return pastVisits;
+        Stack<Visit> visits = new Stack<>();
+        visits.addAll(getSortedPastVisits());
+        return visits;
+    }
+
+    /**
+     * Returns the most recent visits for paging through a long history.
+     * @param page int for the page, 0 is the newest visits
+     * @param perPage int for the visits on a page
+     * @return List<Visit> of the page's visits newest first, read only
+     */
+    public List<Visit> getRecentVisits(int page, int perPage) {
+        return getHistory().page(page, perPage);
     }
 
     /**
      * Changes the past visit
+     * @param pastVisits VisitHistory of new visits
+     */
+    public void setPastVisits(VisitHistory pastVisits) {
+        this.history = null; // held in memory from now on
+        this.pastVisits = pastVisits;
+    }
+
+    /**
+     * Changes the past visit, taking a Stack like before they were kept sorted. The visits
+     * are copied into a VisitHistory in date order, later changes to the Stack aren't seen.
      * @param pastVisits Stack<Visit> of new visits
      */
     public void setPastVisits(Stack<Visit> pastVisits) {
-        this.pastVisits = pastVisits;
+        setPastVisits(VisitHistory.of(pastVisits));
     }
 
     /**
@@ -171,18 +310,25 @@ public class Pet {
      * @param visit Visit that are past ones.
      */
     public void addVisit(Visit visit) {
-        pastVisits.push(visit);
+        if (history != null) {
+            try {
+                history.append(visit);
+            }
+            catch (IOException e) {
+                System.out.println("Error saving visit to history file");
+            }
+            return;
+        }
+        pastVisits.add(visit); // kept in date order as it goes in
     }
 
     /**
-     * Sorts and returns the past visits for better display.
-     * @return List<Visit> of sorted past visits
+     * Returns the past visits in order for better display. The history is kept sorted
+     * so this doesn't copy or sort anything.
+     * @return List<Visit> of the past visits oldest to newest, read only
      */
     public List<Visit> getSortedPastVisits() {
-        List<Visit> sortedVisits = new Stack<>();
-        sortedVisits.addAll(pastVisits);
-        Collections.sort(sortedVisits); // Requires Visit class to implement Comparable
-        return sortedVisits;
+        return getHistory().sorted();
     }
 
     /**
@@ -190,7 +336,7 @@ public class Pet {
      * @return String representation of basic pet information
      */
     public String basicPetString() {
-        return "Name: " + name + " - Type: " + type + " - Subtype: " + subtype + " - Owner: " + owner;
+        return RecordRenderer.render(out -> RecordRenderer.petBasic(out, this));
     }
 
     /**
@@ -198,11 +344,7 @@ public class Pet {
      * @return String of the visit prints
      */
     public String pastVisitsToString() {
-        StringBuilder visits = new StringBuilder();
-        for (Visit visit : getSortedPastVisits()) {
-            visits.append("Visit: \n").append(visit.animalVisitString());
-        }
-        return visits.toString();
+        return RecordRenderer.render(out -> RecordRenderer.pastVisits(out, this));
     }
 
     /**
@@ -210,8 +352,7 @@ public class Pet {
      * @return String of the pet
      */
     public String toString() {
-        return "Name: " + name + "\nType: " + type + " - Subtype: " + subtype + "\nOwner:   " + owner +
-                "\nAddress: " + ownerAddress + "\nContact: " + ownerContact + "\n" + pastVisitsToString();
+        return RecordRenderer.render(out -> RecordRenderer.pet(out, this));
     }
 }
 
@@ -0,0 +1,364 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes over the pets so they can be found by owner, contact, type and
+ * subtype without walking every pet. Kept up to date by the PetRegistry as pets are put
+ * in and by the Pet setters as fields change.
+ *
+ * Owner names are lower cased and kept in a TreeMap, once as the whole name and once per
+ * word, so a prefix of the name or of any word (a last name) is a subMap range. Contacts
+ * are kept as just their digits so "(555) 123-4567" and "555.123.4567" match, contacts
+ * with no digits (emails) are kept lower cased. Types and subtypes are exact matches
+ * ignoring case. The pet IDs under each key are a sorted int[] (a posting list) rather
+ * than a set of boxed Integers, so a key with a few pets costs one small array.
+ * All methods are synchronized so setters on any thread are safe.
+ */
+public class PetIndex {
+    private final TreeMap<String, Postings> owners = new TreeMap<>();
+    private final TreeMap<String, Postings> contacts = new TreeMap<>();
+    private final HashMap<String, Postings> types = new HashMap<>();
+    private final HashMap<String, Postings> subtypes = new HashMap<>();
+
+    /**
+     * Adds every indexed field of a pet.
+     * @param id int for the pet ID
+     * @param p Pet to add
+     */
+    public synchronized void add(int id, Pet p) {
+        ownerChanged(id, null, p.getOwner());
+        contactChanged(id, null, p.getOwnerContact());
+        typeChanged(id, null, p.getType());
+        subtypeChanged(id, null, p.getSubtype());
+    }
+
+    /**
+     * Removes every indexed field of a pet.
+     * @param id int for the pet ID
+     * @param p Pet to remove
+     */
+    public synchronized void remove(int id, Pet p) {
+        ownerChanged(id, p.getOwner(), null);
+        contactChanged(id, p.getOwnerContact(), null);
+        typeChanged(id, p.getType(), null);
+        subtypeChanged(id, p.getSubtype(), null);
+    }
+
+    /**
+     * Moves a pet from its old owner to its new one.
+     * @param id int for the pet ID
+     * @param oldOwner String for the owner before, null if new
+     * @param newOwner String for the owner now, null if removed
+     */
+    public synchronized void ownerChanged(int id, String oldOwner, String newOwner) {
+        for (String key : ownerKeys(oldOwner)) {
+            unlink(owners, key, id);
+        }
+        for (String key : ownerKeys(newOwner)) {
+            link(owners, key, id);
+        }
+    }
+
+    /**
+     * Moves a pet from its old contact to its new one.
+     * @param id int for the pet ID
+     * @param oldContact String for the contact before, null if new
+     * @param newContact String for the contact now, null if removed
+     */
+    public synchronized void contactChanged(int id, String oldContact, String newContact) {
+        if (oldContact != null) {
+            unlink(contacts, contactKey(oldContact), id);
+        }
+        if (newContact != null) {
+            link(contacts, contactKey(newContact), id);
+        }
+    }
+
+    /**
+     * Moves a pet from its old type to its new one.
+     * @param id int for the pet ID
+     * @param oldType String for the type before, null if new
+     * @param newType String for the type now, null if removed
+     */
+    public synchronized void typeChanged(int id, String oldType, String newType) {
+        if (oldType != null) {
+            unlink(types, textKey(oldType), id);
+        }
+        if (newType != null) {
+            link(types, textKey(newType), id);
+        }
+    }
+
+    /**
+     * Moves a pet from its old subtype to its new one.
+     * @param id int for the pet ID
+     * @param oldSubtype String for the subtype before, null if new
+     * @param newSubtype String for the subtype now, null if removed
+     */
+    public synchronized void subtypeChanged(int id, String oldSubtype, String newSubtype) {
+        if (oldSubtype != null) {
+            unlink(subtypes, textKey(oldSubtype), id);
+        }
+        if (newSubtype != null) {
+            link(subtypes, textKey(newSubtype), id);
+        }
+    }
+
+    /**
+     * Finds pets whose owner name, or a word in it, starts with the text sent.
+     * @param prefix String for the start of the name, case doesn't matter
+     * @return List<Integer> of pet IDs in order
+     */
+    public synchronized List<Integer> findByOwner(String prefix) {
+        return prefixSearch(owners, textKey(prefix));
+    }
+
+    /**
+     * Finds pets whose owner contact starts with the number sent, only the digits count.
+     * @param contact String for the start of the contact
+     * @return List<Integer> of pet IDs in order
+     */
+    public synchronized List<Integer> findByContact(String contact) {
+        return prefixSearch(contacts, contactKey(contact));
+    }
+
+    /**
+     * Finds pets of a type.
+     * @param type String for the type, case doesn't matter
+     * @return List<Integer> of pet IDs in order
+     */
+    public synchronized List<Integer> findByType(String type) {
+        return toList(types.get(textKey(type)));
+    }
+
+    /**
+     * Finds pets of a subtype.
+     * @param subtype String for the subtype, case doesn't matter
+     * @return List<Integer> of pet IDs in order
+     */
+    public synchronized List<Integer> findBySubtype(String subtype) {
+        return toList(subtypes.get(textKey(subtype)));
+    }
+
+    /**
+     * Empties every index.
+     */
+    public synchronized void clear() {
+        owners.clear();
+        contacts.clear();
+        types.clear();
+        subtypes.clear();
+    }
+
+    /**
+     * Estimated heap used by the indexes, assuming 4 byte compressed references: a map
+     * entry, a key string and a posting list per key.
+     * @return long for the bytes used
+     */
+    public synchronized long footprintBytes() {
+        return mapBytes(owners, 40) + mapBytes(contacts, 40) + mapBytes(types, 32) + mapBytes(subtypes, 32);
+    }
+
+    /**
+     * Report of the indexes' memory use.
+     * @return String of the footprint report
+     */
+    public synchronized String footprintReport() {
+        return "Pet index: " + (owners.size() + contacts.size() + types.size() + subtypes.size()) + " keys, about " +
+                footprintBytes() + " bytes";
+    }
+
+    /**
+     * Every ID under keys starting with the prefix, each ID once.
+     * @param index TreeMap to look in
+     * @param prefix String already normalized
+     * @return List<Integer> of pet IDs in order
+     */
+    private static List<Integer> prefixSearch(TreeMap<String, Postings> index, String prefix) {
+        if (prefix.isEmpty()) {
+            return new ArrayList<>(); // an empty search would list every pet
+        }
+        Map<String, Postings> range = index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) {
+            return toList(range.values().iterator().next());
+        }
+        int total = 0;
+        for (Postings ids : range.values()) {
+            total += ids.size;
+        }
+        int[] found = new int[total];
+        int n = 0;
+        for (Postings ids : range.values()) {
+            System.arraycopy(ids.ids, 0, found, n, ids.size);
+            n += ids.size;
+        }
+        Arrays.sort(found);
+        List<Integer> list = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            if (i == 0 || found[i] != found[i - 1]) {
+                list.add(found[i]); // a pet under several matching words is listed once
+            }
+        }
+        return list;
+    }
+
+    /**
+     * The IDs of a posting list.
+     * @param ids Postings to copy, may be null
+     * @return List<Integer> of pet IDs in order
+     */
+    private static List<Integer> toList(Postings ids) {
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> list = new ArrayList<>(ids.size);
+        for (int i = 0; i < ids.size; i++) {
+            list.add(ids.ids[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Adds an ID under a key.
+     * @param index Map to add to
+     * @param key String for the key
+     * @param id int for the pet ID
+     */
+    private static void link(Map<String, Postings> index, String key, int id) {
+        index.computeIfAbsent(key, k -> new Postings()).add(id);
+    }
+
+    /**
+     * Removes an ID from under a key, dropping the key once nothing is under it.
+     * @param index Map to remove from
+     * @param key String for the key
+     * @param id int for the pet ID
+     */
+    private static void unlink(Map<String, Postings> index, String key, int id) {
+        Postings ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Estimated heap of one index.
+     * @param index Map to measure
+     * @param entryBytes int for what the map spends on each entry
+     * @return long for the bytes used
+     */
+    private static long mapBytes(Map<String, Postings> index, int entryBytes) {
+        long bytes = 48;
+        for (Map.Entry<String, Postings> e : index.entrySet()) {
+            bytes += entryBytes + 24 + align(16 + e.getKey().length()) + 24 + align(16 + 4L * e.getValue().ids.length);
+        }
+        if (index instanceof HashMap) {
+            bytes += align(16 + 4L * Integer.highestOneBit(Math.max(1, index.size() * 4 / 3) * 2)); // the table
+        }
+        return bytes;
+    }
+
+    /**
+     * Rounds a size up to the 8 bytes objects take.
+     * @param bytes long for the size
+     * @return long rounded up
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * The keys an owner name is found under: the whole name and each word in it.
+     * @param owner String for the owner, may be null
+     * @return List<String> of keys, no repeats
+     */
+    private static List<String> ownerKeys(String owner) {
+        List<String> keys = new ArrayList<>();
+        if (owner == null) {
+            return keys;
+        }
+        String whole = textKey(owner);
+        if (!whole.isEmpty()) {
+            keys.add(whole);
+        }
+        for (String word : whole.split("[\\s.,]+")) {
+            if (!word.isEmpty() && !keys.contains(word)) {
+                keys.add(word);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Normalized form of a name, type or subtype.
+     * @param text String as typed
+     * @return String trimmed and lower cased
+     */
+    private static String textKey(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+
+    /**
+     * Normalized form of a contact: just the digits, or the lower cased text if it has none.
+     * @param contact String as typed
+     * @return String for the key
+     */
+    private static String contactKey(String contact) {
+        if (contact == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(contact.length());
+        for (int i = 0; i < contact.length(); i++) {
+            char c = contact.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() > 0 ? digits.toString() : textKey(contact);
+    }
+
+    /**
+     * Sorted pet IDs under one key, with room to grow.
+     */
+    private static class Postings {
+        private int[] ids = new int[1];
+        private int size = 0;
+
+        /**
+         * Puts an ID in its place, once.
+         * @param id int for the pet ID
+         */
+        void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        /**
+         * Takes an ID out.
+         * @param id int for the pet ID
+         * @return true if it was there
+         */
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
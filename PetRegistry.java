@@ -0,0 +1,337 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Map of int pet ID to Pet using open addressing with linear probing. Keys are kept in a
+ * plain int[] next to a Pet[] so lookups never box the ID and there is no node object
+ * per pet. A slot is empty when its Pet is null, so null pets can't be stored.
+ * Every pet put in is added to a PetIndex for owner, contact, type and subtype searches,
+ * and its owner is put in an OwnerRegistry so pets of the same household share one Owner.
+ */
+public class PetRegistry implements Iterable<Pet> {
+    private static final int MIN_CAPACITY = 16;
+    private int[] keys;
+    private Pet[] values;
+    private int size = 0;
+    private int mask;
+    private final PetIndex index = new PetIndex();
+    private final OwnerRegistry owners = new OwnerRegistry(index);
+
+    /**
+     * Constructor with the default starting capacity.
+     */
+    public PetRegistry() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor sized for a number of pets so loading doesn't resize.
+     * @param expected int for how many pets are expected
+     */
+    public PetRegistry(int expected) {
+        allocate(tableSizeFor(expected));
+    }
+
+    /**
+     * Returns a pet by ID.
+     * @param id int for the pet ID
+     * @return Pet with that ID, null if none
+     */
+    public Pet get(int id) {
+        int i = hash(id) & mask;
+        while (values[i] != null) {
+            if (keys[i] == id) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a pet ID is taken.
+     * @param id int for the pet ID
+     * @return true if a pet has that ID
+     */
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Adds or replaces a pet.
+     * @param id int for the pet ID
+     * @param p Pet to store, can't be null
+     * @return Pet that had the ID before, null if none
+     */
+    public Pet put(int id, Pet p) {
+        if (p == null) {
+            throw new NullPointerException("Can't store a null pet");
+        }
+        int i = hash(id) & mask;
+        while (values[i] != null) {
+            if (keys[i] == id) {
+                Pet old = values[i];
+                values[i] = p;
+                unlink(old);
+                link(id, p);
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = p;
+        link(id, p);
+        size++;
+        if (size * 4 > keys.length * 3) { // keep the load under 75%
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of pets.
+     * @return int for the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no pets.
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every pet and shrinks back to the starting capacity.
+     */
+    public void clear() {
+        for (Pet p : values) {
+            if (p != null) {
+                release(p);
+            }
+        }
+        index.clear();
+        owners.clear();
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Returns the owner, contact, type and subtype indexes of the pets.
+     * @return PetIndex kept up to date with the pets
+     */
+    public PetIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the owners of the pets.
+     * @return OwnerRegistry kept up to date with the pets
+     */
+    public OwnerRegistry getOwners() {
+        return owners;
+    }
+
+    /**
+     * Walks the pets with their IDs.
+     * @return Cursor placed before the first pet
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the pets without their IDs.
+     * @return Iterator<Pet> over the pets
+     */
+    @Override
+    public Iterator<Pet> iterator() {
+        Cursor c = cursor();
+        return new Iterator<>() {
+            private boolean ready = c.next();
+
+            @Override
+            public boolean hasNext() {
+                return ready;
+            }
+
+            @Override
+            public Pet next() {
+                if (!ready) {
+                    throw new NoSuchElementException();
+                }
+                Pet p = c.value();
+                ready = c.next();
+                return p;
+            }
+        };
+    }
+
+    /**
+     * Estimated heap used by the table, assuming 4 byte compressed references.
+     * @return long for the bytes used
+     */
+    public long footprintBytes() {
+        return arrayBytes(keys.length, 4) + arrayBytes(values.length, 4) + 32;
+    }
+
+    /**
+     * Estimated heap a HashMap<Integer, Pet> would use for the same pets: its table
+     * plus a 32 byte node and a 16 byte Integer per pet.
+     * @return long for the bytes a HashMap would use
+     */
+    public long hashMapFootprintBytes() {
+        long table = MIN_CAPACITY;
+        while (table * 3 < size * 4L) {
+            table *= 2;
+        }
+        return arrayBytes(table, 4) + size * (32L + 16L) + 48;
+    }
+
+    /**
+     * Report of the table's memory use next to what a boxed HashMap would need, followed
+     * by the PetIndex and the owners.
+     * @return String of the footprint report
+     */
+    public String footprintReport() {
+        long mine = footprintBytes();
+        long boxed = hashMapFootprintBytes();
+        return "Pet registry: " + size + " pets of " + owners.size() + " owners in " + keys.length + " slots, about " + mine + " bytes" +
+                " (HashMap<Integer, Pet> would be about " + boxed + " bytes, " +
+                (boxed == 0 ? 0 : 100 - mine * 100 / boxed) + "% saved)\n" +
+                index.footprintReport() + "\nOwners: " + owners.size() + " owners, about " + owners.footprintBytes() + " bytes";
+    }
+
+    /**
+     * Indexes a pet that was just stored.
+     * @param id int for the pet ID
+     * @param p Pet stored
+     */
+    private void link(int id, Pet p) {
+        p.attach(id, index);
+        p.useOwner(owners.attach(id, p.getOwnerRecord()));
+        index.add(id, p);
+    }
+
+    /**
+     * Takes a pet that was replaced out of the index.
+     * @param p Pet replaced
+     */
+    private void unlink(Pet p) {
+        index.remove(p.getId(), p);
+        owners.detach(p.getId(), p.getOwnerRecord());
+        release(p);
+    }
+
+    /**
+     * Cuts a pet loose from the registry. It gets its own copy of the owner so changes
+     * to it don't reach the pets still here.
+     * @param p Pet leaving
+     */
+    private void release(Pet p) {
+        Owner o = p.getOwnerRecord();
+        p.useOwner(new Owner(o.getName(), o.getAddress(), o.getContact()));
+        p.attach(0, null);
+    }
+
+    /**
+     * Rehashes into a table of the new capacity.
+     * @param capacity int power of two for the new table size
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Pet[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = hash(oldKeys[i]) & mask;
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Makes new empty arrays.
+     * @param capacity int power of two for the table size
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Pet[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Smallest power of two table that holds the pets under 75% load.
+     * @param expected int for the expected pets
+     * @return int for the table size
+     */
+    private static int tableSizeFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expected * 4L) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the ID bits so sequential IDs don't cluster.
+     * @param id int for the pet ID
+     * @return int for the mixed hash
+     */
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Heap size of an array with a 16 byte header, rounded to 8 bytes.
+     * @param length long for the array length
+     * @param elementBytes int for the size of one element
+     * @return long for the bytes used
+     */
+    private static long arrayBytes(long length, int elementBytes) {
+        return (16 + length * elementBytes + 7) & ~7L;
+    }
+
+    /**
+     * Moves through the occupied slots. Don't add pets while walking.
+     */
+    public class Cursor {
+        private int slot = -1;
+
+        /**
+         * Moves to the next pet.
+         * @return true if there is one, false at the end
+         */
+        public boolean next() {
+            slot++;
+            while (slot < values.length && values[slot] == null) {
+                slot++;
+            }
+            return slot < values.length;
+        }
+
+        /**
+         * Returns the ID of the current pet.
+         * @return int for the pet ID
+         */
+        public int key() {
+            return keys[slot];
+        }
+
+        /**
+         * Returns the current pet.
+         * @return Pet at the cursor
+         */
+        public Pet value() {
+            return values[slot];
+        }
+    }
+}
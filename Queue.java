@@ -1,18 +1,26 @@
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
- * A custom generic Queue implementation.
+ * A custom generic Queue implementation backed by a ring buffer, so enqueue doesn't
+ * allocate a node per element and the array only grows when full.
  * @param <E> the type of elements held in this Queue
  */
-public class Queue<E> {
-    private LinkedList<E> list;
+public class Queue<E> implements Iterable<E> {
+    private static final int MIN_CAPACITY = 16;
+    private Object[] items;
+    private int head = 0; // index of the front element
+    private int size = 0;
 
     /**
      * Constructor to initialize the queue.
      */
     public Queue() {
-        list = new LinkedList<>();
+        items = new Object[MIN_CAPACITY];
     }
 
     /**
@@ -20,7 +28,11 @@ public class Queue<E> {
      * @param element the element to be added
      */
     public void enqueue(E element) {
-        list.add(element);
+        if (size == items.length) {
+            grow(items.length * 2);
+        }
+        items[(head + size) & (items.length - 1)] = element;
+        size++;
     }
 
     /**
@@ -28,7 +40,14 @@ public class Queue<E> {
      * @return the element at the front of the queue, or null if the queue is empty
      */
     public E dequeue() {
-        return list.isEmpty() ? null : list.removeFirst();
+        if (size == 0) {
+            return null;
+        }
+        E element = elementAt(0);
+        items[head] = null; // let it be collected
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return element;
     }
 
     /**
@@ -36,7 +55,7 @@ public class Queue<E> {
      * @return the element at the front of the queue, or null if the queue is empty
      */
     public E peek() {
-        return list.isEmpty() ? null : list.getFirst();
+        return size == 0 ? null : elementAt(0);
     }
 
     /**
@@ -44,7 +63,7 @@ public class Queue<E> {
      * @return the size of the queue
      */
     public int size() {
-        return list.size();
+        return size;
     }
 
     /**
@@ -52,7 +71,7 @@ public class Queue<E> {
      * @return true if the queue is empty, false otherwise
      */
     public boolean isEmpty() {
-        return list.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -60,14 +79,99 @@ public class Queue<E> {
      * @param elements the list of elements to be added
      */
     public void addAll(List<E> elements) {
-        list.addAll(elements);
+        int needed = size + elements.size();
+        if (needed > items.length) {
+            int capacity = items.length;
+            while (capacity < needed) {
+                capacity *= 2;
+            }
+            grow(capacity);
+        }
+        for (E element : elements) {
+            enqueue(element);
+        }
     }
 
     /**
      * Returns a list containing all elements of the queue.
+     * This is a copy, use view() to read the queue without copying.
      * @return a List containing all elements in the queue
      */
     public List<E> toList() {
-        return new LinkedList<>(list);
+        return new ArrayList<>(view());
+    }
+
+    /**
+     * Returns a read only list that looks straight into the queue, front first.
+     * It is not a copy so it shows later changes, don't change the queue while walking it.
+     * @return a List view of the queue
+     */
+    public List<E> view() {
+        return new View();
+    }
+
+    /**
+     * Walks the queue front to back without copying.
+     * @return Iterator over the elements
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elementAt(index++);
+            }
+        };
+    }
+
+    /**
+     * Returns the element a number of places back from the front.
+     * @param index int for places from the front
+     * @return the element there
+     */
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) items[(head + index) & (items.length - 1)];
+    }
+
+    /**
+     * Copies into a bigger array with the front at index 0.
+     * @param capacity int power of two for the new array size
+     */
+    private void grow(int capacity) {
+        Object[] bigger = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            bigger[i] = items[(head + i) & (items.length - 1)];
+        }
+        items = bigger;
+        head = 0;
+    }
+
+    /**
+     * Read only list over the ring buffer.
+     */
+    private class View extends AbstractList<E> implements RandomAccess {
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+            }
+            return elementAt(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 }
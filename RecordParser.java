@@ -0,0 +1,169 @@
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable parser for one tab separated line of the system's text files.
+ * Scans the line once to find the field boundaries, then hands fields back
+ * without regex or split arrays. Details fields use '~' as the new line marker
+ * and are decoded in a single pass into a reused buffer.
+ */
+public class RecordParser {
+    /**
+     * Charset of the text files. Every reader and writer of them uses this one, not the
+     * platform default, so the plain, mapped and lazy loaders see the same text on any
+     * machine. Plain ASCII files, like the ones the system started with, read the same.
+     */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private CharSequence line;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+    private char[] buffer = new char[128];
+
+    /**
+     * Points the parser at a new line and finds where each field starts and ends.
+     * @param line the line to parse, without the line terminator
+     * @return this parser for chaining
+     */
+    public RecordParser reset(CharSequence line) {
+        this.line = line;
+        count = 0;
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            length--; // files saved on windows keep the carriage return
+        }
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == '\t') {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, length);
+        return this;
+    }
+
+    /**
+     * Records a field boundary, growing the arrays when the line has many fields.
+     * @param start int for first char of the field
+     * @param end int for one past the last char
+     */
+    private void addField(int start, int end) {
+        if (count == starts.length) {
+            int[] s = new int[count * 2];
+            int[] e = new int[count * 2];
+            System.arraycopy(starts, 0, s, 0, count);
+            System.arraycopy(ends, 0, e, 0, count);
+            starts = s;
+            ends = e;
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Returns the number of fields on the current line.
+     * @return int for the field count
+     */
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * Checks if the current line has nothing on it, like the blank lines left by appends.
+     * @return true if the line is blank
+     */
+    public boolean isBlank() {
+        return count == 1 && starts[0] == ends[0];
+    }
+
+    /**
+     * Returns a field as a String.
+     * @param index int for the field to return
+     * @return String of the field
+     */
+    public String field(int index) {
+        checkIndex(index);
+        return line.subSequence(starts[index], ends[index]).toString();
+    }
+
+    /**
+     * Parses a field as an int straight from the characters.
+     * @param index int for the field to parse
+     * @return int value of the field
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public int intField(int index) {
+        checkIndex(index);
+        int i = starts[index];
+        int end = ends[index];
+        while (i < end && line.charAt(i) == ' ') {
+            i++;
+        }
+        while (end > i && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Empty number in field " + index);
+        }
+        boolean negative = line.charAt(i) == '-';
+        if (negative || line.charAt(i) == '+') {
+            i++;
+            if (i == end) {
+                throw new NumberFormatException("Bad number in field " + index);
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Bad number in field " + index + ": " + field(index));
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("Number too large in field " + index);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number too large in field " + index);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decodes a details field turning each '~' into a new line. Trailing markers are
+     * dropped the same way the old split("~") based reading did.
+     * @param index int for the details field
+     * @return String of the details with new lines
+     */
+    public String detailsField(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        while (end > start && line.charAt(end - 1) == '~') {
+            end--;
+        }
+        int length = end - start;
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(start + i);
+            buffer[i] = c == '~' ? '\n' : c;
+        }
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Makes sure the field asked for exists on the line.
+     * @param index int for the field
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new ArrayIndexOutOfBoundsException("Line has " + count + " fields, no field " + index);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.IntFunction;
+
+/**
+ * Writes pets, visits and schedules straight to an Appendable, like a Writer or the console,
+ * without building a String for each one first. The console printouts, the text files and
+ * exports all come from here so they can't drift apart. Numbers go out a digit at a time
+ * and details have their new lines swapped for '~' as they are copied.
+ */
+public final class RecordRenderer {
+    /*
+     * The visit and day files have two more columns than they started with, duration then
+     * vet, after the details. Every column before them is written the same as before, so
+     * older readers that split on tabs still find what they used to, and files written
+     * before the change read in with the default duration and no vet.
+     */
+    public static final String VISIT_FILE_HEADER = "ID\tDate\tTime\tAnimal ID\tdetails\tduration\tvet";
+    public static final String DAY_FILE_HEADER = "ID\tTime\tanimalID\tdetails\tduration\tvet";
+    public static final String PET_FILE_HEADER = "ID\tName\tType\tSubtype\tOwner\townerAddress\townerContact";
+    private static final String NEW_LINE = System.lineSeparator(); // what println ends lines with
+
+    /**
+     * Something written to an Appendable, used to get it as a String.
+     */
+    public interface Rendering {
+        void to(Appendable out) throws IOException;
+    }
+
+    private RecordRenderer() {
+    }
+
+    /**
+     * Runs a rendering into a String, for toString() and the like.
+     * @param rendering Rendering to run
+     * @return String of what it wrote
+     */
+    public static String render(Rendering rendering) {
+        StringBuilder out = new StringBuilder();
+        try {
+            rendering.to(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder never throws
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes a visit as a line of the completed visit file, without the line end.
+     * @param out Appendable to write to
+     * @param v Visit to write
+     * @throws IOException if out can't be written
+     */
+    public static void visitLine(Appendable out, Visit v) throws IOException {
+        number(out, v.getId());
+        out.append('\t').append(v.getDate()).append('\t').append(v.getTime()).append('\t');
+        number(out, v.getAnimalID());
+        out.append('\t');
+        details(out, v.getDetails());
+        out.append('\t');
+        extraFields(out, v);
+    }
+
+    /**
+     * Writes a visit as a line of a day file, without the line end.
+     * @param out Appendable to write to
+     * @param v Visit to write
+     * @throws IOException if out can't be written
+     */
+    public static void dayLine(Appendable out, Visit v) throws IOException {
+        number(out, v.getId());
+        out.append('\t').append(v.getTime()).append('\t');
+        number(out, v.getAnimalID());
+        out.append('\t');
+        details(out, v.getDetails());
+        out.append('\t');
+        extraFields(out, v);
+    }
+
+    /**
+     * Writes a pet as a line of the pet file, without the line end.
+     * @param out Appendable to write to
+     * @param id int for the pet ID
+     * @param p Pet to write
+     * @throws IOException if out can't be written
+     */
+    public static void petLine(Appendable out, int id, Pet p) throws IOException {
+        number(out, id);
+        out.append('\t').append(p.getName()).append('\t').append(p.getType()).append('\t').append(p.getSubtype())
+                .append('\t').append(p.getOwner()).append('\t').append(p.getOwnerAddress()).append('\t')
+                .append(p.getOwnerContact());
+    }
+
+    /**
+     * Writes the duration and vet fields that go after the details in the files.
+     * @param out Appendable to write to
+     * @param v Visit to write
+     * @throws IOException if out can't be written
+     */
+    public static void extraFields(Appendable out, Visit v) throws IOException {
+        number(out, v.getDuration());
+        out.append('\t').append(v.getVet());
+    }
+
+    /**
+     * Writes details on one line with '~' in place of each new line. New lines at
+     * the very end are dropped like the old split based version did.
+     * @param out Appendable to write to
+     * @param details String of the details
+     * @throws IOException if out can't be written
+     */
+    public static void details(Appendable out, String details) throws IOException {
+        int end = details.length();
+        while (end > 0 && details.charAt(end - 1) == '\n') {
+            end--;
+        }
+        int start = 0;
+        for (int i = details.indexOf('\n'); i >= 0 && i < end; i = details.indexOf('\n', start)) {
+            range(out, details, start, i);
+            out.append('~');
+            start = i + 1;
+        }
+        range(out, details, start, end);
+    }
+
+    /**
+     * Writes a visit the way it shows in search results.
+     * @param out Appendable to write to
+     * @param v Visit to write
+     * @throws IOException if out can't be written
+     */
+    public static void visit(Appendable out, Visit v) throws IOException {
+        out.append("ID: ");
+        number(out, v.getId());
+        out.append(" - Date: ").append(v.getDate()).append(" Time: ").append(v.getTime()).append(" (");
+        number(out, v.getDuration());
+        out.append(" min");
+        if (!v.getVet().isEmpty()) {
+            out.append(", ").append(v.getVet());
+        }
+        out.append(") Animal ID: ");
+        number(out, v.getAnimalID());
+        out.append("\nDetails:\n").append(v.getDetails());
+    }
+
+    /**
+     * Writes a visit the way it shows under its pet, without the animal ID.
+     * @param out Appendable to write to
+     * @param v Visit to write
+     * @throws IOException if out can't be written
+     */
+    public static void animalVisit(Appendable out, Visit v) throws IOException {
+        out.append(" Time: ").append(v.getTime()).append("\nDetails:\n").append(v.getDetails());
+    }
+
+    /**
+     * Writes the one line summary of a pet used on the schedule.
+     * @param out Appendable to write to
+     * @param p Pet to write
+     * @throws IOException if out can't be written
+     */
+    public static void petBasic(Appendable out, Pet p) throws IOException {
+        out.append("Name: ").append(p.getName()).append(" - Type: ").append(p.getType()).append(" - Subtype: ")
+                .append(p.getSubtype()).append(" - Owner: ").append(p.getOwner());
+    }
+
+    /**
+     * Writes a pet's past visits oldest first.
+     * @param out Appendable to write to
+     * @param p Pet whose visits to write
+     * @throws IOException if out can't be written
+     */
+    public static void pastVisits(Appendable out, Pet p) throws IOException {
+        for (Visit v : p.getSortedPastVisits()) {
+            out.append("Visit: \n");
+            animalVisit(out, v);
+        }
+    }
+
+    /**
+     * Writes a pet with its owner and past visits.
+     * @param out Appendable to write to
+     * @param p Pet to write
+     * @throws IOException if out can't be written
+     */
+    public static void pet(Appendable out, Pet p) throws IOException {
+        out.append("Name: ").append(p.getName()).append("\nType: ").append(p.getType()).append(" - Subtype: ")
+                .append(p.getSubtype()).append("\nOwner:   ").append(p.getOwner()).append("\nAddress: ")
+                .append(p.getOwnerAddress()).append("\nContact: ").append(p.getOwnerContact()).append('\n');
+        pastVisits(out, p);
+    }
+
+    /**
+     * Writes a schedule the way View Today's Visits shows it: each visit's pet summary, the
+     * visit and a blank line. Visits for pets that can't be found are skipped.
+     * @param out Appendable to write to
+     * @param visits Iterable<Visit> of the schedule in order
+     * @param pets IntFunction<Pet> to look pets up by ID
+     * @throws IOException if out can't be written
+     */
+    public static void schedule(Appendable out, Iterable<Visit> visits, IntFunction<Pet> pets) throws IOException {
+        for (Visit v : visits) {
+            Pet p = pets.apply(v.getAnimalID());
+            if (p != null) {
+                number(out, v.getAnimalID());
+                out.append(" - ");
+                petBasic(out, p);
+                out.append(NEW_LINE);
+                animalVisit(out, v);
+                out.append(NEW_LINE).append(NEW_LINE);
+            }
+        }
+    }
+
+    /**
+     * Writes a whole number without making a String of it.
+     * @param out Appendable to write to
+     * @param value int to write
+     * @throws IOException if out can't be written
+     */
+    static void number(Appendable out, int value) throws IOException {
+        long n = value;
+        if (n < 0) {
+            out.append('-');
+            n = -n;
+        }
+        long place = 1;
+        while (place * 10 <= n) {
+            place *= 10;
+        }
+        for (; place > 0; place /= 10) {
+            out.append((char) ('0' + n / place % 10));
+        }
+    }
+
+    /**
+     * Writes part of a String. Writer.append(CharSequence, int, int) makes a substring
+     * first, so Writers are written to directly.
+     * @param out Appendable to write to
+     * @param s String to take from
+     * @param start int for the first char
+     * @param end int for one past the last char
+     * @throws IOException if out can't be written
+     */
+    private static void range(Appendable out, String s, int start, int end) throws IOException {
+        if (start == 0 && end == s.length()) {
+            out.append(s);
+        }
+        else if (out instanceof Writer) {
+            ((Writer) out).write(s, start, end - start);
+        }
+        else {
+            out.append(s, start, end);
+        }
+    }
+}
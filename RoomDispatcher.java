@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Hands visits out to any number of exam rooms. Free rooms are kept in a heap so the
+ * lowest numbered free room is found in O(log n), and visits waiting for a room are kept
+ * in a heap ordered urgent first, then by scheduled date and time, then by the order they
+ * arrived so a visit that has to wait keeps its place in line.
+ * fill() moves today's schedule into the waiting heap so an urgent visit booked late in
+ * the day still goes ahead of the rest, markUrgent() flags one by its visit ID.
+ * Rooms are numbered from 1. All methods are synchronized so terminals can share one.
+ */
+public class RoomDispatcher {
+    private final Visit[] rooms;
+    private final PriorityQueue<Integer> freeRooms = new PriorityQueue<>();
+    private final PriorityQueue<Waiting> waiting = new PriorityQueue<>();
+    private final Set<Integer> urgentIds = new HashSet<>(); // marked before they reached the line
+    private long arrivals = 0;
+
+    /**
+     * Main constructor
+     * @param roomCount int for how many exam rooms there are
+     */
+    public RoomDispatcher(int roomCount) {
+        if (roomCount < 1) {
+            throw new IllegalArgumentException("Need at least one room");
+        }
+        rooms = new Visit[roomCount];
+        for (int room = 1; room <= roomCount; room++) {
+            freeRooms.add(room);
+        }
+    }
+
+    /**
+     * Adds a visit to the waiting line.
+     * @param v Visit waiting for a room
+     * @param urgent true to put it ahead of every non urgent visit, also true if it was marked
+     */
+    public synchronized void submit(Visit v, boolean urgent) {
+        if (v == null) {
+            throw new NullPointerException("Can't submit a null visit");
+        }
+        boolean marked = urgentIds.remove(v.getId());
+        waiting.add(new Waiting(v, urgent || marked, arrivals++));
+    }
+
+    /**
+     * Moves every visit the schedule hands out into the waiting line, in the order it hands
+     * them out, so they are ordered with the visits already waiting.
+     * @param schedule Supplier of the next scheduled visit, null once there are no more
+     * @return int for how many visits were moved
+     */
+    public synchronized int fill(Supplier<Visit> schedule) {
+        int moved = 0;
+        for (Visit v = schedule.get(); v != null; v = schedule.get()) {
+            submit(v, false);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Marks a visit urgent so it goes ahead of every non urgent visit. If it isn't waiting
+     * yet it is marked for when it is submitted.
+     * @param visitId int for the ID of the visit
+     */
+    public synchronized void markUrgent(int visitId) {
+        for (Waiting w : waiting) {
+            if (w.visit.getId() == visitId) {
+                if (!w.urgent) {
+                    waiting.remove(w);
+                    waiting.add(new Waiting(w.visit, true, w.arrival));
+                }
+                return;
+            }
+        }
+        urgentIds.add(visitId);
+    }
+
+    /**
+     * Puts the first waiting visit in the lowest numbered free room.
+     * @return int for the room it went to, 0 if no room is free or nothing is waiting
+     */
+    public synchronized int dispatch() {
+        if (freeRooms.isEmpty() || waiting.isEmpty()) {
+            return 0;
+        }
+        int room = freeRooms.poll();
+        rooms[room - 1] = waiting.poll().visit;
+        return room;
+    }
+
+    /**
+     * Takes the visit out of a room and frees the room.
+     * @param room int for the room number
+     * @return Visit that was in the room, null if it was empty
+     */
+    public synchronized Visit release(int room) {
+        checkRoom(room);
+        Visit v = rooms[room - 1];
+        if (v != null) {
+            rooms[room - 1] = null;
+            freeRooms.add(room);
+        }
+        return v;
+    }
+
+    /**
+     * Returns the visit in a room without taking it out.
+     * @param room int for the room number
+     * @return Visit in the room, null if empty
+     */
+    public synchronized Visit getVisitInRoom(int room) {
+        checkRoom(room);
+        return rooms[room - 1];
+    }
+
+    /**
+     * Returns how many rooms there are.
+     * @return int for the room count
+     */
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    /**
+     * Returns how many rooms are empty.
+     * @return int for the free room count
+     */
+    public synchronized int getFreeRoomCount() {
+        return freeRooms.size();
+    }
+
+    /**
+     * Returns how many visits are waiting for a room.
+     * @return int for the waiting count
+     */
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * Returns the waiting visits in the order they will get a room.
+     * @return List<Visit> copy of the waiting line, first in line first
+     */
+    public synchronized List<Visit> getWaiting() {
+        List<Waiting> line = new ArrayList<>(waiting);
+        line.sort(null);
+        List<Visit> visits = new ArrayList<>(line.size());
+        for (Waiting w : line) {
+            visits.add(w.visit);
+        }
+        return visits;
+    }
+
+    /**
+     * Makes sure a room number exists.
+     * @param room int for the room number
+     */
+    private void checkRoom(int room) {
+        if (room < 1 || room > rooms.length) {
+            throw new IllegalArgumentException("No room " + room);
+        }
+    }
+
+    /**
+     * A visit in the waiting line with what it is ordered by.
+     */
+    private static class Waiting implements Comparable<Waiting> {
+        private final Visit visit;
+        private final boolean urgent;
+        private final long arrival;
+
+        Waiting(Visit visit, boolean urgent, long arrival) {
+            this.visit = visit;
+            this.urgent = urgent;
+            this.arrival = arrival;
+        }
+
+        @Override
+        public int compareTo(Waiting other) {
+            if (urgent != other.urgent) {
+                return urgent ? -1 : 1;
+            }
+            int byTime = visit.compareTo(other.visit);
+            return byTime != 0 ? byTime : Long.compare(arrival, other.arrival);
+        }
+    }
+}
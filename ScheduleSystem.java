@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -8,9 +10,8 @@ public class ScheduleSystem {
     private static Scanner input = new Scanner(System.in);
     private static VetDB db;
     private static String date;
-    private static Queue<Visit> room1 = new Queue<>();
-    private static Queue<Visit> room2 = new Queue<>();
-    private static Queue<Visit> room3 = new Queue<>();
+    private static RoomDispatcher rooms;
+    private static boolean nextCalled; // a visit was assigned while the rooms were full, it takes the next free one
 
     /**
      * main method
@@ -22,12 +23,29 @@ public class ScheduleSystem {
 
         // set up date file.
         db = new VetDB(date + ".txt");
-        db.readDaySchedule();
-        db.readPastVisits();
-        db.readPets(); // this needs to be last for the past visits to appear in the pets
+        rooms = new RoomDispatcher(Integer.getInteger("vet.rooms", 3));
+        db.setMappedLoad(Boolean.getBoolean("vet.mappedLoad"));
+        db.setLazyHistory(Integer.getInteger("vet.lazyHistory", 0)); // pets' visits to keep in memory, 0 reads them all at start
+        db.setColumnarHistory(Boolean.getBoolean("vet.columnar"));
+        db.setSnapshotFile(System.getProperty("vet.snapshot"));
+        if (!db.readSnapshot()) {
+            db.readDaySchedule();
+            db.readPastVisits();
+            db.readPets(); // this needs to be last for the past visits to appear in the pets
+        }
+        db.openJournal("VetJournal.log", Integer.getInteger("vet.syncEvery", 1), Long.getLong("vet.syncMillis", 0L),
+                Integer.getInteger("vet.compactEvery", 10000));
+        db.getMetrics().registerMBean(date);
+        String metricsFile = System.getProperty("vet.metricsFile"); // .json for JSON, anything else for text
+        if (metricsFile != null) {
+            db.getMetrics().startDump(metricsFile, Long.getLong("vet.metricsMillis", 60000L));
+        }
+        if (Boolean.getBoolean("vet.loadReport")) {
+            System.out.println(db.getLoadReport());
+        }
 
         int choice = 0;
-        while (choice != 7) {
+        while (choice != 8) {
             System.out.println("** Main Menu **");
             System.out.println("1. View Today's Visits");
             System.out.println("2. Add Visit");
@@ -35,8 +53,9 @@ public class ScheduleSystem {
             System.out.println("4. Complete Visit");
             System.out.println("5. Search Pet");
             System.out.println("6. Add Pet");
-            System.out.println("7. Exit");
-            choice = getInt("Operation: ", 1, 7);
+            System.out.println("7. Search Visit Notes");
+            System.out.println("8. Exit");
+            choice = getInt("Operation: ", 1, 8);
             System.out.println();
             switch (choice) {
                 case 1 -> viewToday();
@@ -45,7 +64,8 @@ public class ScheduleSystem {
                 case 4 -> completeVisit();
                 case 5 -> searchPet();
                 case 6 -> addPet();
-                case 7 -> exitSystem();
+                case 7 -> searchVisitNotes();
+                case 8 -> exitSystem();
             }
             System.out.println();
         }
@@ -63,13 +83,13 @@ public class ScheduleSystem {
      */
     private static void viewToday() {
         System.out.println("** Today's Schedule **");
-        for (Visit visit : db.getDailySchedule().toList()) {
-            Pet pet = db.getPet(visit.getAnimalID());
-            if (pet != null) {
-                System.out.println(visit.getAnimalID() + " - " + pet.basicPetString());
-                System.out.println(visit.animalVisitString());
-                System.out.println();
-            }
+        try {
+            List<Visit> today = rooms.getWaiting(); // already moved out of the schedule, in the order they get a room
+            today.addAll(db.getDailySchedule());
+            RecordRenderer.schedule(System.out, today, db::getPet);
+        }
+        catch (IOException e) {
+            System.out.println("Error printing schedule"); // System.out doesn't throw, only here for the signature
         }
     }
 
@@ -92,47 +112,73 @@ public class ScheduleSystem {
         System.out.print("Enter details of visit: ");
         String details = input.nextLine();
 
-        Visit v = new Visit(db.getNextVisitID(), vDate, time, animalID, details);
+        int duration = getInt("Enter length of visit in minutes: ", 5, 480);
+        System.out.print("Enter vet (blank for any vet): ");
+        String vet = input.nextLine();
+
+        boolean urgent = false;
+        if (vDate.equals(date)) {
+            System.out.print("Is it urgent? (y/n): ");
+            urgent = input.nextLine().trim().equalsIgnoreCase("y");
+        }
 
-        if (db.addVisit(v)) {
+        Visit v = new Visit(0, vDate, time, animalID, details, duration, vet); // the ID is given when it is booked
+
+        if (db.addNewVisit(v)) {
+            if (urgent) {
+                rooms.markUrgent(v.getId());
+            }
             System.out.println("Visit added.");
+            return;
         }
-        else {
+        TimeSlot open = db.findNextAvailable(vDate, time, duration, vet);
+        if (open == null) {
             System.out.println("Error adding visit. No open time slot or open day. Try Again.");
+            return;
+        }
+        System.out.print("That time is taken. Next open time is " + open + ". Book it? (y/n): ");
+        if (input.nextLine().trim().equalsIgnoreCase("y")) {
+            v = new Visit(0, open.getDate(), open.getTime(), animalID, details, duration, vet);
+            if (!db.addNewVisit(v)) {
+                System.out.println("Error adding visit. Time was just taken. Try Again.");
+                return;
+            }
+            if (urgent && open.getDate().equals(date)) {
+                rooms.markUrgent(v.getId());
+            }
+            System.out.println("Visit added.");
         }
 
     }
 
     /**
-     * YOUR TODO
-     *
      * This method assigns the next visit in the daily schedule queue to the next available room.
      *
-     * You should use room1, room2, and room3 as queues for the rooms and if they are empty add the next
-     * Visit from the db object.  Note there is a getNextVisit() method on the DB object that dequeues and
-     * sends it to you to enqueue onto the room
-     *
+     * The schedule is moved into the rooms dispatcher, which puts urgent visits first and then
+     * the earliest, in the lowest numbered free room. If every room is full the next visit
+     * goes to the first room that is completed.
      */
     private static void assignVisitToRoom() {
-        if (db.getDailySchedule().isEmpty()) {
+        rooms.fill(db::getNextVisit);
+        if (rooms.getWaitingCount() == 0) {
             System.out.println("No daily visits available.");
             return;
         }
 
-        Visit nextVisit = db.getNextVisit();
-        if (room1.isEmpty()) {
-            room1.enqueue(nextVisit);
-            System.out.println("* Assigned to Room 1 *");
-        } else if (room2.isEmpty()) {
-            room2.enqueue(nextVisit);
-            System.out.println("* Assigned to Room 2 *");
-        } else if (room3.isEmpty()) {
-            room3.enqueue(nextVisit);
-            System.out.println("* Assigned to Room 3 *");
-        } else {
-            System.out.println("Can't assign next visit as rooms are all full.");
-            db.getDailySchedule().enqueue(nextVisit); // Re-add the visit back to the queue
+        if (rooms.getFreeRoomCount() == 0) {
+            if (nextCalled) {
+                System.out.println("Can't assign next visit as rooms are all full.");
+            }
+            else {
+                nextCalled = true;
+                System.out.println("Can't assign next visit as rooms are all full. It will go to the next free room.");
+            }
+            return;
         }
+
+        int room = rooms.dispatch();
+        db.assignRoom(rooms.getVisitInRoom(room), room);
+        System.out.println("* Assigned to Room " + room + " *");
     }
 
     /**
@@ -142,25 +188,24 @@ public class ScheduleSystem {
      */
     private static void completeVisit() {
         Visit current = null;
+        int cancel = rooms.getRoomCount() + 1;
         while (current == null) {
             System.out.println("** Complete Pet Visit **");
-            System.out.println("Room 1");
-            System.out.println("Room 2");
-            System.out.println("Room 3");
-            System.out.println("4 to Cancel");
-            int choice = getInt("Room: ", 1, 4);
+            for (int room = 1; room <= rooms.getRoomCount(); room++) {
+                Visit v = rooms.getVisitInRoom(room);
+                if (v != null) {
+                    System.out.println("Room " + room + " - Animal ID " + v.getAnimalID());
+                }
+            }
+            System.out.println(cancel + " to Cancel");
+            int choice = getInt("Room: ", 1, cancel);
 
-            if (choice == 4) {
+            if (choice == cancel) {
                 return; // don't do anymore checking.
             }
 
-            if (choice == 1 && !room1.isEmpty()) {
-                current = room1.dequeue();
-            } else if (choice == 2 && !room2.isEmpty()) {
-                current = room2.dequeue();
-            } else if (choice == 3 && !room3.isEmpty()) {
-                current = room3.dequeue();
-            } else {
+            current = rooms.release(choice);
+            if (current == null) {
                 System.out.println("Can't complete, no visit assigned to room.");
             }
         }
@@ -173,6 +218,16 @@ public class ScheduleSystem {
 
         // add to the completed list on db
         db.completeVisit(current);
+
+        if (!nextCalled) {
+            return;
+        }
+        int room = rooms.dispatch(); // the visit called while the rooms were full takes the freed room
+        if (room > 0) {
+            nextCalled = false;
+            db.assignRoom(rooms.getVisitInRoom(room), room);
+            System.out.println("* Waiting visit assigned to Room " + room + " *");
+        }
     }
 
     /**
@@ -180,7 +235,47 @@ public class ScheduleSystem {
      */
     private static void searchPet() {
         System.out.println("** Pet Search **");
-        int id = getInt("Enter pet ID: ");
+        System.out.println("1. By pet ID");
+        System.out.println("2. By owner name");
+        System.out.println("3. By owner contact");
+        System.out.println("4. By type");
+        System.out.println("5. By subtype");
+        int by = getInt("Search: ", 1, 5);
+        if (by == 1) {
+            showPet(getInt("Enter pet ID: "));
+            return;
+        }
+
+        System.out.print("Enter search: ");
+        String text = input.nextLine();
+        List<Integer> ids = switch (by) {
+            case 2 -> db.findPetsByOwner(text);
+            case 3 -> db.findPetsByContact(text);
+            case 4 -> db.findPetsByType(text);
+            default -> db.findPetsBySubtype(text);
+        };
+        if (ids.isEmpty()) {
+            System.out.println("Pet not found.");
+        }
+        else if (ids.size() == 1) {
+            showPet(ids.get(0));
+        }
+        else {
+            System.out.println("* " + ids.size() + " Pets Found *");
+            for (int id : ids) {
+                Pet p = db.getPet(id);
+                if (p != null) {
+                    System.out.println(id + " - " + p.basicPetString() + " - Contact: " + p.getOwnerContact());
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints a pet with its past visits.
+     * @param id int for the pet ID
+     */
+    private static void showPet(int id) {
         Pet p = db.getPet(id);
         if (p == null) {
             System.out.println("Pet not found.");
@@ -189,7 +284,25 @@ public class ScheduleSystem {
             System.out.println("* Pet Found *");
             System.out.println(p);
         }
+    }
 
+    /**
+     * Searches the details of past visits using the db
+     */
+    private static void searchVisitNotes() {
+        System.out.println("** Visit Notes Search **");
+        System.out.println("Words must all match, use \"quotes\" for a phrase and OR for either.");
+        System.out.print("Enter search: ");
+        List<Visit> found = db.searchVisitNotes(input.nextLine());
+        if (found.isEmpty()) {
+            System.out.println("No visits found.");
+            return;
+        }
+        System.out.println("* " + found.size() + " Visits Found *");
+        for (Visit v : found) {
+            System.out.println(v);
+            System.out.println();
+        }
     }
 
     /**
@@ -227,8 +340,12 @@ public class ScheduleSystem {
     private static void exitSystem() {
         // write out completed visits
         System.out.println("** System exiting **");
-        db.writeOutPets();
-        db.writeOutPastVisits();
+        db.compactJournal(); // writes the pet and visit files then clears the journal
+        db.close(); // the journal and, with lazy history, the visit file
+        db.getMetrics().stopDump();
+        if (System.getProperty("vet.metricsFile") != null) {
+            db.getMetrics().dump(System.getProperty("vet.metricsFile")); // last numbers, including the exit writes
+        }
 
     }
 
@@ -0,0 +1,132 @@
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory index of which minutes are taken on each day. Each day is a bit per minute
+ * and a visit sets the bits for its whole length, so a free check is one nextSetBit with
+ * no file reads. The calendar doesn't know about vets, a taken minute only means something
+ * is on then and the AppointmentBook decides if it really clashes. Days are filled in
+ * lazily by the VetDB the first time they are booked and then kept up to date in place.
+ *
+ * Times that can't be read as a time of day are kept as trimmed, upper cased text so
+ * they still clash with the same text.
+ *
+ * The day maps are concurrent, but a single day's entries must only be used while
+ * holding that day's lock in the VetDB.
+ */
+public class SlotCalendar {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private ConcurrentHashMap<String, BitSet> slots = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, HashSet<String>> otherTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Checks if a day has been filled in yet.
+     * @param date String for the day in MM-DD-YYYY
+     * @return true if the day is loaded
+     */
+    public boolean isLoaded(String date) {
+        return slots.containsKey(date);
+    }
+
+    /**
+     * Fills in a day from the visits already booked on it.
+     * @param date String for the day in MM-DD-YYYY
+     * @param visits Iterable<Visit> of the day's visits
+     */
+    public void load(String date, Iterable<Visit> visits) {
+        slots.computeIfAbsent(date, k -> new BitSet(MINUTES_PER_DAY));
+        for (Visit v : visits) {
+            book(date, v.getTime(), v.getDuration());
+        }
+    }
+
+    /**
+     * Checks if any minute of a visit's time is taken on a day.
+     * @param date String for the day in MM-DD-YYYY
+     * @param time String for the time
+     * @param duration int for how many minutes the visit takes
+     * @return true if something is already booked in that time
+     */
+    public boolean isBooked(String date, String time, int duration) {
+        int minute = DateTimeKeys.minuteOfDay(time);
+        if (minute == DateTimeKeys.INVALID) {
+            HashSet<String> others = otherTimes.get(date);
+            return others != null && others.contains(normalize(time));
+        }
+        BitSet day = slots.get(date);
+        if (day == null) {
+            return false;
+        }
+        int taken = day.nextSetBit(minute);
+        return taken >= 0 && taken < minute + duration;
+    }
+
+    /**
+     * Finds the first free stretch of a day long enough for a visit. Each step jumps over a
+     * whole run of taken minutes, so a day is searched in one pass over its bookings.
+     * @param date String for the day in MM-DD-YYYY
+     * @param from int for the earliest start minute
+     * @param to int for the minute the visit has to be over by
+     * @param duration int for how many minutes the visit takes
+     * @param step int for the minutes starts are rounded up to, 1 for any minute
+     * @return int for the first free start minute, DateTimeKeys.INVALID if nothing fits
+     */
+    public int findFree(String date, int from, int to, int duration, int step) {
+        BitSet day = slots.get(date);
+        int start = roundUp(from, step);
+        while (start + duration <= to) {
+            int taken = day == null ? -1 : day.nextSetBit(start);
+            if (taken < 0 || taken >= start + duration) {
+                return start;
+            }
+            start = roundUp(day.nextClearBit(taken), step);
+        }
+        return DateTimeKeys.INVALID;
+    }
+
+    /**
+     * Marks a visit's time as taken.
+     * @param date String for the day in MM-DD-YYYY
+     * @param time String for the time
+     * @param duration int for how many minutes the visit takes
+     */
+    public void book(String date, String time, int duration) {
+        BitSet day = slots.computeIfAbsent(date, k -> new BitSet(MINUTES_PER_DAY));
+        int minute = DateTimeKeys.minuteOfDay(time);
+        if (minute == DateTimeKeys.INVALID) {
+            otherTimes.computeIfAbsent(date, k -> new HashSet<>()).add(normalize(time));
+        }
+        else {
+            day.set(minute, Math.min(minute + duration, MINUTES_PER_DAY)); // visits running past midnight stop at the end of the day
+        }
+    }
+
+    /**
+     * Drops a day so it gets loaded again next time.
+     * @param date String for the day in MM-DD-YYYY
+     */
+    public void forget(String date) {
+        slots.remove(date);
+        otherTimes.remove(date);
+    }
+
+    /**
+     * Rounds a minute up to the next multiple of a step.
+     * @param minute int to round
+     * @param step int for the step, at least 1
+     * @return int for the rounded minute
+     */
+    static int roundUp(int minute, int step) {
+        return (minute + step - 1) / step * step;
+    }
+
+    /**
+     * Text form of a time that isn't a time of day.
+     * @param time String as typed
+     * @return String trimmed and upper cased
+     */
+    private static String normalize(String time) {
+        return time.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands back one shared String for text that repeats across the loaded rows, so the
+ * thousands of "Dog", "Retriever" and "Regular check up." copies the loaders would make
+ * become one each. The copy a loader just parsed is dropped young and never piles up.
+ *
+ * Words are the small, closed vocabularies: types, subtypes and vets. Every word is kept,
+ * so callers must not send open ended text like pet names, dates or times, which would
+ * only grow the map. Phrases are visit details, which repeat a lot for stock reasons but
+ * can be anything once the vet writes notes. Only short ones are kept, only once they have
+ * been seen a second time, and only up to a limit, after which new details are handed back
+ * as they are. The first sighting is remembered by hash in a fixed size table, so one off
+ * notes never take a slot.
+ * Safe to share between the loader threads.
+ */
+public class StringDictionary {
+    /** Details longer than this are almost never repeated word for word. */
+    public static final int MAX_PHRASE_LENGTH = 200;
+
+    private final ConcurrentHashMap<String, String> words = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> phrases = new ConcurrentHashMap<>();
+    private final int phraseLimit;
+    private final int[] seenOnce; // hash of the last phrase seen once in each slot, races only delay a phrase
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Main constructor
+     * @param phraseLimit int for the most different details to keep
+     */
+    public StringDictionary(int phraseLimit) {
+        this.phraseLimit = phraseLimit;
+        int slots = 1024;
+        while (slots < phraseLimit && slots < (1 << 20)) {
+            slots *= 2;
+        }
+        seenOnce = new int[slots];
+    }
+
+    /**
+     * Returns the shared copy of a word, keeping this one if it is new.
+     * @param word String to look up, null is handed back
+     * @return String equal to word, the same instance for every equal word
+     */
+    public String intern(String word) {
+        if (word == null) {
+            return null;
+        }
+        String had = words.putIfAbsent(word, word);
+        if (had == null) {
+            return word;
+        }
+        shared.increment();
+        return had;
+    }
+
+    /**
+     * Returns the shared copy of some details if they are kept, keeping these if they were
+     * seen before and there is room.
+     * @param phrase String of visit details, null is handed back
+     * @return String equal to phrase, shared if it is short, repeated and there was room
+     */
+    public String internPhrase(String phrase) {
+        if (phrase == null || phrase.length() > MAX_PHRASE_LENGTH) {
+            return phrase;
+        }
+        String had = phrases.get(phrase);
+        if (had == null && firstSighting(phrase)) {
+            return phrase;
+        }
+        return admit(phrase, had);
+    }
+
+    /**
+     * Keeps details already known to repeat, like the snapshot's phrase table, without
+     * waiting to see them twice.
+     * @param phrase String of visit details, null is handed back
+     * @return String equal to phrase, shared if it is short and there was room
+     */
+    public String keepPhrase(String phrase) {
+        if (phrase == null || phrase.length() > MAX_PHRASE_LENGTH) {
+            return phrase;
+        }
+        return admit(phrase, phrases.get(phrase));
+    }
+
+    /**
+     * Notes a phrase not kept yet, by its hash.
+     * @param phrase String of visit details
+     * @return true if this is the first time it was seen, as far as the table remembers
+     */
+    private boolean firstSighting(String phrase) {
+        int h = phrase.hashCode();
+        int slot = (h ^ (h >>> 16)) & (seenOnce.length - 1);
+        if (seenOnce[slot] == h) {
+            return false;
+        }
+        seenOnce[slot] = h; // a different phrase in the slot is pushed out and starts over
+        return true;
+    }
+
+    /**
+     * Hands back the kept copy, adding the phrase if it isn't kept and there is room.
+     * @param phrase String of visit details
+     * @param had String kept already, null if none
+     * @return String equal to phrase
+     */
+    private String admit(String phrase, String had) {
+        if (had == null && phrases.size() < phraseLimit) {
+            had = phrases.putIfAbsent(phrase, phrase);
+            if (had == null) {
+                return phrase;
+            }
+        }
+        if (had == null) {
+            return phrase; // full, this one stays unshared
+        }
+        shared.increment();
+        return had;
+    }
+
+    /**
+     * Checks if some details are kept, so the snapshot can write them as a code.
+     * @param phrase String of visit details
+     * @return true if there is a shared copy
+     */
+    public boolean hasPhrase(String phrase) {
+        return phrase != null && phrases.containsKey(phrase);
+    }
+
+    /**
+     * Returns how many different words are kept.
+     * @return int for the word count
+     */
+    public int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * Returns how many different details are kept.
+     * @return int for the phrase count
+     */
+    public int getPhraseCount() {
+        return phrases.size();
+    }
+
+    /**
+     * Returns how many times a loaded string was swapped for a shared copy.
+     * @return long for the count, each one a String no longer held
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    /**
+     * String output of the counts
+     * @return String of the dictionary stats
+     */
+    public String toString() {
+        return "Dictionary: " + words.size() + " words, " + phrases.size() + "/" + phraseLimit + " phrases, " +
+                getSharedCount() + " strings shared";
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * An open stretch of time on a day, as found by VetDB.findNextAvailable.
+ */
+public class TimeSlot {
+    private final String date;
+    private final int startMinute;
+    private final int duration;
+
+    /**
+     * Main constructor
+     * @param date String for the day in MM-DD-YYYY
+     * @param startMinute int for the start as minutes since midnight
+     * @param duration int for how many minutes long it is
+     */
+    public TimeSlot(String date, int startMinute, int duration) {
+        this.date = date;
+        this.startMinute = startMinute;
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the day of the slot
+     * @return String for the date in MM-DD-YYYY
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the start time the way times are typed in
+     * @return String for the time, like 4:00PM
+     */
+    public String getTime() {
+        return DateTimeKeys.formatTime(startMinute);
+    }
+
+    /**
+     * Returns the start of the slot
+     * @return int for the minutes since midnight
+     */
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * Returns the end of the slot
+     * @return int for one past the last minute
+     */
+    public int getEndMinute() {
+        return startMinute + duration;
+    }
+
+    /**
+     * Returns the length of the slot
+     * @return int for the minutes
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * String output of the object
+     * @return String version of object
+     */
+    public String toString() {
+        return date + " at " + getTime() + " for " + duration + " min";
+    }
+}
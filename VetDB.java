@@ -1,21 +1,77 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
  * The DB class that holds the Pet list, daily schedule and all past visits. Does all the
  * operations on those Collections that we need.
+ *
+ * Safe to share between several terminals once the files are read in. Bookings lock a
+ * stripe picked by the visit's date and completions lock a stripe picked by the animal ID,
+ * so work on different days or pets doesn't wait on each other. The pet registry has a
+ * read/write lock that only addPet takes for writing, and visit IDs come from an atomic
+ * counter, handed out inside the booking lock by addNewVisit. getPetList() and
+ * getDailySchedule() hand back copies taken under their locks. The read methods are meant
+ * for start up, before the db is shared.
  */
 public class VetDB {
-    private HashMap<Integer, Pet> petList = new HashMap<>();
+    private PetRegistry petList = new PetRegistry();
     private Queue<Visit> dailySchedule = new Queue<>();
-    private ArrayList<Visit> pastVisitList = new ArrayList<>();
-    private int nextVisitID = -1;
+    private final List<Visit> pastVisitList = new ArrayList<>(); // empty in lazy and columnar mode, also the lock for the past visits
+    private VisitColumns visitColumns; // only in columnar mode, holds the past visits instead of pastVisitList
+    private final AtomicInteger nextVisitID = new AtomicInteger(-1);
     private String petFileName = "PetList.txt";
     private String currentDateFile;
     private String visitFileName = "CompletedVisit.txt";
+    private HashMap<Integer, VisitHistory> visitsByAnimal = new HashMap<>(); // animal ID -> sorted past visits, built on read
+    private long visitReadNanos;
+    private long petReadNanos;
+    private long joinNanos;
+    private long joinLookups;
+    private boolean mappedLoad = false;
+    private int lazyHistoryPets = 0; // 0 reads every past visit at start
+    private VisitHistoryStore visitHistory; // only in lazy mode, pets read their visits from it
+    private VetJournal journal;
+    private int compactEvery;
+    private HashSet<Integer> replayedVisitIDs; // only used while replaying the journal
+    private String snapshotFileName;
+    private SlotCalendar calendar = new SlotCalendar();
+    private AppointmentBook appointments = new AppointmentBook();
+    private final VetMetrics metrics = new VetMetrics();
+    private final StringDictionary dictionary = new StringDictionary(1 << 16); // shared text of everything loaded
+    private VisitTextIndex textIndex; // read or built the first time it is needed, guarded by pastVisitList
+    private boolean textIndexDirty = false; // visits were completed before the index was loaded, guarded by pastVisitList
+    private VisitIdIndex pastVisitIds = new VisitIdIndex(); // rows of pastVisitList by ID, caught up on each search, guarded by pastVisitList
+    private volatile Set<Integer> daysWithFiles; // epoch days that have a day file, listed on the first search
+    private int openMinute = 8 * 60;
+    private int closeMinute = 18 * 60;
+    private static final int SEARCH_DAYS = 366; // how far ahead findNextAvailable looks
+    private static final int SLOT_STEP = 5; // suggested times start on a multiple of this many minutes
+    private DayScheduleCache dayCache = new DayScheduleCache(64, this::loadDay);
+    private static final int STRIPES = 64; // power of two
+    private final ReentrantLock[] dayLocks = newStripes();
+    private final ReentrantLock[] petLocks = newStripes();
+    private final ReentrantReadWriteLock petListLock = new ReentrantReadWriteLock();
+    private final ReentrantLock compactLock = new ReentrantLock();
 
     /**
      * Main constructor takes on the date for the file.
@@ -23,38 +79,316 @@ public class VetDB {
      */
     public VetDB(String currentDateFile) {
         this.currentDateFile = currentDateFile;
+        metrics.addGauge("pets", () -> petList.size());
+        metrics.addGauge("owners", () -> petList.getOwners().size());
+        metrics.addGauge("pastVisits", () -> visitHistory == null ? getPastVisitCount() : visitHistory.size());
+        metrics.addGauge("scheduleSize", this::getDailyScheduleSize);
+        metrics.addGauge("dayCacheHits", dayCache::getHits);
+        metrics.addGauge("dayCacheMisses", dayCache::getMisses);
+        metrics.addGauge("dayCacheEvictions", dayCache::getEvictions);
+        metrics.addGauge("dictionaryWords", dictionary::getWordCount);
+        metrics.addGauge("dictionaryPhrases", dictionary::getPhraseCount);
+        metrics.addGauge("dictionaryShared", dictionary::getSharedCount);
+        metrics.addGauge("historyCacheHits", () -> visitHistory == null ? 0 : visitHistory.getHits());
+        metrics.addGauge("historyCacheMisses", () -> visitHistory == null ? 0 : visitHistory.getMisses());
+        metrics.addGauge("historyCacheEvictions", () -> visitHistory == null ? 0 : visitHistory.getEvictions());
     }
 
     /**
-     * Sends the pet list back
-     * @return HashMap<Integer, Pet> of the pet list.
+     * Returns the timings and counters of the db's operations.
+     * @return VetMetrics for this db
      */
-    public HashMap<Integer, Pet> getPetList() {
+    public VetMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the dictionary the loaders share repeated text through.
+     * @return StringDictionary for this db
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Sends a copy of the pet list back, taken under the pet lock so other terminals can
+     * keep adding pets while it is read.
+     * @return Map<Integer, Pet> read only copy of the pet list by ID
+     */
+    public Map<Integer, Pet> getPetList() {
+        petListLock.readLock().lock();
+        try {
+            Map<Integer, Pet> copy = new LinkedHashMap<>(petList.size() * 4 / 3 + 1);
+            PetRegistry.Cursor entry = petList.cursor();
+            while (entry.next()) {
+                copy.put(entry.key(), entry.value());
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        finally {
+            petListLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the pet registry itself, for the snapshot to fill before the db is shared
+     * and to write while holding the pet lock, see withPetsLocked().
+     * @return PetRegistry of the pet list
+     */
+    PetRegistry getPetRegistry() {
         return petList;
     }
 
     /**
-     * Sends the daily schedule queue back.
-     * @return Queue<Visit> for the daily schedule.
+     * Runs a read of the whole pet list holding the pet lock, so a pet added meanwhile
+     * waits instead of landing in the middle of it.
+     * @param read BooleanSupplier doing the read, true if it worked
+     * @return boolean from the read
+     */
+    private boolean withPetsLocked(BooleanSupplier read) {
+        petListLock.readLock().lock();
+        try {
+            return read.getAsBoolean();
+        }
+        finally {
+            petListLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sends a copy of the daily schedule back, taken under today's lock so other
+     * terminals can keep booking and dequeuing while it is read.
+     * @return List<Visit> read only copy of the daily schedule, front first
      */
-    public Queue<Visit> getDailySchedule() {
-        return dailySchedule;
+    public List<Visit> getDailySchedule() {
+        return getDaySchedule(today());
     }
 
     /**
-     *
-     * @return
+     * Returns how many visits are waiting in the daily schedule.
+     * @return int for the schedule size
+     */
+    public int getDailyScheduleSize() {
+        ReentrantLock lock = dayLock(today());
+        lock.lock();
+        try {
+            return dailySchedule.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts a visit on the end of the daily schedule, used when loading a snapshot.
+     * @param v Visit booked for today
+     */
+    void enqueueToday(Visit v) {
+        ReentrantLock lock = dayLock(today());
+        lock.lock();
+        try {
+            dailySchedule.enqueue(v);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the past visits. In columnar mode this is a read only copy with a Visit made
+     * for every row, getPastVisitCount() and getPastVisit() don't make them all.
+     * @return List<Visit> of the past visits oldest to newest
      */
-    public ArrayList<Visit> getPastVisitList() {
+    public List<Visit> getPastVisitList() {
+        if (visitColumns != null) {
+            List<Visit> copy = new ArrayList<>(visitColumns.size());
+            visitColumns.forEachVisit(copy::add);
+            return Collections.unmodifiableList(copy);
+        }
         return pastVisitList;
     }
 
+    /**
+     * Returns how many past visits are held in memory, 0 in lazy mode.
+     * @return int for the past visit count
+     */
+    public int getPastVisitCount() {
+        return visitColumns != null ? visitColumns.size() : pastVisitList.size();
+    }
+
+    /**
+     * Returns one past visit. In columnar mode it is made from its row, a new copy each time.
+     * @param row int for the place in date order, 0 to getPastVisitCount() - 1
+     * @return Visit at that place
+     */
+    Visit getPastVisit(int row) {
+        return visitColumns != null ? visitColumns.getVisit(row) : pastVisitList.get(row);
+    }
+
+    /**
+     * Adds a past visit at the end, to the columns in columnar mode. Callers other than
+     * the loaders hold the pastVisitList lock.
+     * @param v Visit to add
+     */
+    void addPastVisit(Visit v) {
+        if (visitColumns != null) {
+            visitColumns.add(v);
+        }
+        else {
+            pastVisitList.add(v);
+        }
+    }
+
+    /**
+     * Sorts the past visits by date and time, equal ones keep their order.
+     */
+    private void sortPastVisits() {
+        if (visitColumns != null) {
+            visitColumns.sort(); // sorts the day and minute columns, no Visits made
+        }
+        else {
+            Visit[] sorted = pastVisitList.toArray(new Visit[0]);
+            Arrays.parallelSort(sorted);
+            pastVisitList.clear();
+            pastVisitList.addAll(Arrays.asList(sorted));
+        }
+    }
+
     /**
      * returns the nextVisitID which is when adding a visit the unique ID number.
      * @return int for the ID.
      */
     public int getNextVisitID() {
-        return nextVisitID;
+        return nextVisitID.get();
+    }
+
+    /**
+     * Hands out the next visit ID and moves the counter on, so terminals booking at the
+     * same time never get the same ID.
+     * @return int for the new visit's ID
+     */
+    public int allocateVisitID() {
+        return nextVisitID.getAndIncrement();
+    }
+
+    /**
+     * Changes the next visit ID, used when loading a snapshot.
+     * @param nextVisitID int for the next visit ID
+     */
+    void setNextVisitID(int nextVisitID) {
+        this.nextVisitID.set(nextVisitID);
+    }
+
+    /**
+     * Makes a set of lock stripes.
+     * @return ReentrantLock[] of STRIPES locks
+     */
+    private static ReentrantLock[] newStripes() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Returns the lock for a day's bookings.
+     * @param date String for the day in MM-DD-YYYY
+     * @return ReentrantLock guarding that day
+     */
+    private ReentrantLock dayLock(String date) {
+        int h = date.toUpperCase().hashCode() * 0x9E3779B9;
+        return dayLocks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Returns the lock for a pet's visit history.
+     * @param animalID int for the pet ID
+     * @return ReentrantLock guarding that pet
+     */
+    private ReentrantLock petLock(int animalID) {
+        int h = animalID * 0x9E3779B9;
+        return petLocks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Returns the date of the daily schedule.
+     * @return String for today in MM-DD-YYYY
+     */
+    private String today() {
+        return currentDateFile.substring(0, currentDateFile.lastIndexOf("."));
+    }
+
+    /**
+     * Turns on loading the pet and visit files through memory mapped, parallel parsing.
+     * @param mappedLoad true to use the MappedLoader, false for the plain readers
+     */
+    public void setMappedLoad(boolean mappedLoad) {
+        this.mappedLoad = mappedLoad;
+    }
+
+    /**
+     * Turns on lazy past visits. readPastVisits() then only notes where each pet's visits are
+     * in the visit file and a pet reads them the first time they're asked for, keeping the
+     * most recently used ones in memory. The past visit list stays empty, completed visits
+     * go straight on the end of the visit file, and the snapshot isn't used.
+     * Call before reading the files.
+     * @param cachedPets int for how many pets' visits to keep in memory, 0 to read every visit at start
+     */
+    public void setLazyHistory(int cachedPets) {
+        this.lazyHistoryPets = Math.max(0, cachedPets);
+    }
+
+    /**
+     * Turns on columnar past visits. The past visits are then a VisitColumns holding each
+     * visit as a row of numbers and codes, and a Visit is only made when one is asked for.
+     * Pets make their histories from its rows instead of holding them, so old visits take
+     * a few ints each. Lazy mode wins if both are on. Call before reading the files.
+     * @param columnar true to keep past visits in columns, false for a list of Visits
+     */
+    public void setColumnarHistory(boolean columnar) {
+        visitColumns = columnar ? new VisitColumns(dictionary) : null;
+        pastVisitList.clear();
+        pastVisitIds = new VisitIdIndex();
+    }
+
+    /**
+     * Returns a copy of the visits booked on a day. Today comes from the daily schedule, other
+     * days come from the day cache so repeat lookups don't reopen the file.
+     * @param date String for the day in MM-DD-YYYY
+     * @return List<Visit> read only list of the day's visits, empty if none or the file can't be read
+     */
+    public List<Visit> getDaySchedule(String date) {
+        if (date.equalsIgnoreCase(today())) {
+            ReentrantLock lock = dayLock(today());
+            lock.lock();
+            try {
+                return Collections.unmodifiableList(dailySchedule.toList()); // copy, other terminals keep booking
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        ReentrantLock lock = dayLock(date); // loads and appends for a day happen under its lock
+        lock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(dayCache.get(date)));
+        }
+        catch (IOException | NumberFormatException e) {
+            System.out.println("Error reading schedule for " + date);
+            return Collections.emptyList();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cache of other days' schedules, for its hit and miss counters.
+     * @return DayScheduleCache of parsed days
+     */
+    public DayScheduleCache getDayCache() {
+        return dayCache;
     }
 
     /**
@@ -62,27 +396,96 @@ public class VetDB {
      * @return Visit of the next in the queue
      */
     public Visit getNextVisit() {
-        return dailySchedule.dequeue();
+        ReentrantLock lock = dayLock(today());
+        lock.lock();
+        try {
+            return dailySchedule.dequeue();
+        }
+        finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Reads in the pets from file.
+     * Past visits come from the index built in readPastVisits() so each pet is one lookup.
      */
     public void readPets() {
-        try (BufferedReader in = new BufferedReader(new FileReader(petFileName))) {
+        timedRead("readPets", petFileName, mappedLoad ? this::readPetsMapped : this::readPetsText);
+        useHistorySource();
+    }
+
+    /**
+     * Where pets get their past visits in lazy or columnar mode. Visits a pet adds itself
+     * go into the search index on the way, the same as completeVisit's.
+     * @return HistorySource for the pets, null if pets hold their own visits
+     */
+    private HistorySource historySource() {
+        return historyStore() != null ? petHistory : null;
+    }
+
+    /**
+     * The visit file store in lazy mode or the columns in columnar mode.
+     * @return HistorySource holding the past visits, null if pets hold their own visits
+     */
+    private HistorySource historyStore() {
+        return visitHistory != null ? visitHistory : visitColumns;
+    }
+
+    /**
+     * The HistorySource pets are pointed at, see historySource().
+     */
+    private final HistorySource petHistory = new HistorySource() {
+        @Override
+        public VisitHistory getHistory(int animalID) throws IOException {
+            return historyStore().getHistory(animalID);
+        }
+
+        @Override
+        public int append(Visit v) throws IOException {
+            synchronized (pastVisitList) {
+                addToTextIndex(v);
+                return historyStore().append(v);
+            }
+        }
+    };
+
+    /**
+     * Points every pet at the history source after a load, if there is one.
+     */
+    private void useHistorySource() {
+        HistorySource source = historySource();
+        if (source != null) {
+            PetRegistry.Cursor entry = petList.cursor();
+            while (entry.next()) {
+                entry.value().useHistory(source);
+            }
+        }
+    }
+
+    /**
+     * Reads the pets a line at a time, see readPets().
+     */
+    private void readPetsText() {
+        long start = System.nanoTime();
+        long joinTime = 0;
+        long lookups = 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(petFileName, RecordParser.CHARSET))) {
+            RecordParser data = new RecordParser();
             String line = in.readLine(); // reads header
             line = in.readLine(); // reads first pet
             while (line != null) {
-                String[] data = line.split("\t");
-                int id = Integer.parseInt(data[0]);
-                Pet p = new Pet(data[1], data[2], data[3], data[4], data[5], data[6]);
-                for (Visit past : pastVisitList) {
-                    if (past.getAnimalID() == id) {
-                        p.addVisit(past);
-                    }
+                if (data.reset(line).isBlank()) {
+                    line = in.readLine();
+                    continue;
                 }
+                int id = data.intField(0);
 
-                Collections.sort(p.getPastVisits()); // sort visits since stack to see newest to oldest
+                long joinStart = System.nanoTime();
+                VisitHistory visits = visitsByAnimal.remove(id); // already sorted oldest to newest
+                lookups++;
+                Pet p = Pet.fromRecord(data, dictionary, visits);
+                joinTime += System.nanoTime() - joinStart;
 
                 petList.put(id, p); // add to map
 
@@ -98,49 +501,83 @@ public class VetDB {
         catch(IOException e) {
             System.out.println("Error reading pet file");
         }
+        visitsByAnimal.clear(); // anything left belongs to no known pet
+        joinNanos = joinTime;
+        joinLookups = lookups;
+        petReadNanos = System.nanoTime() - start;
     }
 
     /**
-     * Writes out the pet list to file.
+     * Writes out the pet list to file. Writes to a temp file first and swaps it in
+     * so a crash part way through leaves the old file alone.
+     * @return true if the file was written
      */
-    public void writeOutPets() {
-        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(petFileName)))) {
-            out.println("ID\tName\tType\tSubtype\tOwner\townerAddress\townerContact");
-            for (var entry : petList.entrySet()) {
-                Pet p = entry.getValue();
-                out.println(entry.getKey() + "\t" + p.getName() + "\t" + p.getType() + "\t" + p.getSubtype() + "\t" +
-                        p.getOwner() + "\t" + p.getOwnerAddress() + "\t" + p.getOwnerContact());
+    public boolean writeOutPets() {
+        return timedWrite("writeOutPets", petFileName, () -> withPetsLocked(this::writePetFile));
+    }
+
+    /**
+     * Writes the pet file, see writeOutPets().
+     * @return true if the file was written
+     */
+    private boolean writePetFile() {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(petFileName + ".tmp", RecordParser.CHARSET)))) {
+            out.println(RecordRenderer.PET_FILE_HEADER);
+            PetRegistry.Cursor entry = petList.cursor();
+            while (entry.next()) {
+                RecordRenderer.petLine(out, entry.key(), entry.value());
+                out.println();
             }
         }
         catch (IOException e) {
             System.out.println("Error writing pet file");
+            return false;
         }
+        return replaceFile(petFileName);
     }
 
     /**
-     * Reads in the daily schedule and adds to the queue.
+     * Writes every pet with its owner and past visits to a text file, the same printout
+     * Search Pet shows, one pet after another. Written straight to the file so a big
+     * history doesn't have to fit in a String.
+     * @param fileName String for the file to write
+     * @return true if the file was written
      */
-    public void readDaySchedule() {
-        try (BufferedReader in = new BufferedReader(new FileReader(currentDateFile))) {
-            String date = currentDateFile.substring(0, currentDateFile.lastIndexOf(".")); // used for the visit and eliminate the .txt
-            String line = in.readLine(); // read header
-            line = in.readLine(); // read first line
-            while (line != null) {
-                String[] data = line.split("\t");
-
-                String details = "";
-                for (String d : data[3].split("~")) {
-                    details += d + "\n";
+    public boolean exportPets(String fileName) {
+        return timedWrite("exportPets", fileName, () -> withPetsLocked(() -> {
+            try (Writer out = new BufferedWriter(new FileWriter(fileName, RecordParser.CHARSET))) {
+                PetRegistry.Cursor entry = petList.cursor();
+                while (entry.next()) {
+                    out.append("ID: ");
+                    RecordRenderer.number(out, entry.key());
+                    out.append(System.lineSeparator());
+                    RecordRenderer.pet(out, entry.value());
+                    out.append(System.lineSeparator());
                 }
-                details = details.substring(0, details.lastIndexOf("\n")); // take out last new character line
+            }
+            catch (IOException e) {
+                System.out.println("Error writing export file");
+                return false;
+            }
+            return true;
+        }));
+    }
 
-                Visit v = new Visit(Integer.parseInt(data[0]), date, data[1], Integer.parseInt(data[2]), details);
+    /**
+     * Reads in the daily schedule and adds to the queue.
+     */
+    public void readDaySchedule() {
+        timedRead("readDaySchedule", currentDateFile, this::readDayScheduleText);
+    }
 
+    /**
+     * Reads today's file into the queue, see readDaySchedule().
+     */
+    private void readDayScheduleText() {
+        try {
+            for (Visit v : readDayFile(currentDateFile, today())) {
                 dailySchedule.enqueue(v); // add to the queue
-
-                line = in.readLine(); // read next line
             }
-
         }
         catch (FileNotFoundException e) {
             System.out.println("Schedule file not found, will create a new one upon saving out.");
@@ -151,33 +588,139 @@ public class VetDB {
         }
     }
 
+    /**
+     * Runs a whole file read, timing it and counting the file's bytes.
+     * @param operation String for the metric name
+     * @param fileName String for the file being read
+     * @param read Runnable doing the read
+     */
+    private void timedRead(String operation, String fileName, Runnable read) {
+        long start = System.nanoTime();
+        read.run();
+        metrics.record(operation, start);
+        metrics.diskRead(new File(fileName).length());
+    }
+
+    /**
+     * Runs a whole file write, timing it and counting the bytes written.
+     * @param operation String for the metric name
+     * @param fileName String for the file being written
+     * @param write BooleanSupplier doing the write, true if it worked
+     * @return true if the file was written
+     */
+    private boolean timedWrite(String operation, String fileName, BooleanSupplier write) {
+        long start = System.nanoTime();
+        boolean written = write.getAsBoolean();
+        metrics.record(operation, start);
+        if (written) {
+            metrics.wrote(new File(fileName).length());
+        }
+        else {
+            metrics.increment(operation + "Failed");
+        }
+        return written;
+    }
+
+    /**
+     * Day loader for the day cache, a missing file is a day with nothing booked.
+     * @param date String for the day in MM-DD-YYYY
+     * @return ArrayList<Visit> of the day's visits
+     * @throws IOException if the file can't be read
+     */
+    private ArrayList<Visit> loadDay(String date) throws IOException {
+        try {
+            ArrayList<Visit> visits = readDayFile(date + ".txt", date);
+            metrics.diskRead(new File(date + ".txt").length());
+            return visits;
+        }
+        catch (FileNotFoundException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads the visits booked in a day file.
+     * @param fileName String for the day file
+     * @param date String for the date the visits are on
+     * @return ArrayList<Visit> of the visits in file order
+     * @throws IOException if the file is missing or can't be read
+     */
+    private ArrayList<Visit> readDayFile(String fileName, String date) throws IOException {
+        ArrayList<Visit> visits = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(fileName, RecordParser.CHARSET))) {
+            RecordParser data = new RecordParser();
+            String line = in.readLine(); // read header
+            line = in.readLine(); // read first line
+            while (line != null) {
+                if (!data.reset(line).isBlank()) { // appends leave blank lines behind
+                    Visit v = new Visit(data.intField(0), date, data.field(1), data.intField(2),
+                            dictionary.internPhrase(data.detailsField(3)));
+                    v.readExtraFields(data, 4);
+                    v.setVet(dictionary.intern(v.getVet()));
+                    visits.add(v);
+                }
+                line = in.readLine(); // read next line
+            }
+        }
+        return visits;
+    }
+
     /**
      * Reads in the past visits
      * Uses '~' as new line marker on details of the visit.
      */
     public void readPastVisits() {
-        try (BufferedReader in = new BufferedReader(new FileReader(visitFileName))) {
+        timedRead("readPastVisits", visitFileName, lazyHistoryPets > 0 ? this::openVisitHistory :
+                mappedLoad ? this::readPastVisitsMapped : this::readPastVisitsText);
+    }
+
+    /**
+     * Indexes where the past visits are instead of reading them, see setLazyHistory().
+     */
+    private void openVisitHistory() {
+        long start = System.nanoTime();
+        VisitHistoryStore store = new VisitHistoryStore(visitFileName, lazyHistoryPets, dictionary);
+        try {
+            nextVisitID.set(store.open(nextVisitID.get()));
+            visitHistory = store;
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Invalid number in visit file. Fix before running again.");
+        }
+        catch (IOException e) {
+            System.out.println("Error reading visit file");
+        }
+        if (visitHistory != store) {
+            closeHistory(store);
+        }
+        visitReadNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the past visits a line at a time, see readPastVisits().
+     */
+    private void readPastVisitsText() {
+        long start = System.nanoTime();
+        try (BufferedReader in = new BufferedReader(new FileReader(visitFileName, RecordParser.CHARSET))) {
+            RecordParser data = new RecordParser();
             String line = in.readLine(); //read header
             line = in.readLine(); // read first line
             while (line != null) {
-                String[] data = line.split("\t");
-                if (data.length == 1) { // last line has the next visit number and no other data
-                    nextVisitID = Integer.parseInt(data[0]);
+                data.reset(line);
+                if (data.isBlank()) {
+                    // nothing on this line
+                }
+                else if (data.fieldCount() == 1) { // last line has the next visit number and no other data
+                    nextVisitID.set(data.intField(0));
                 }
                 else {
-                    String details = "";
-                    for (String d : data[4].split("~")) {
-                        details += d + "\n";
-                    }
-                    details = details.substring(0, details.length() - 1); // take out last new character.
-                    Visit v = new Visit(Integer.parseInt(data[0]), data[1], data[2], Integer.parseInt(data[3]), details);
-
-                    pastVisitList.add(v); // add to the stack
+                    addPastVisit(Visit.fromRecord(data, 0, dictionary)); // add to the list
                 }
 
                 line = in.readLine(); // read next visit
             }
-            Collections.sort(pastVisitList); // sort as most likely it is backwards
+            sortPastVisits(); // sort as most likely it is backwards
+            indexPastVisits();
         }
         catch (FileNotFoundException e) {
             System.out.println("Visit file not found");
@@ -185,120 +728,1092 @@ public class VetDB {
         catch(IOException e) {
             System.out.println("Error reading visit file");
         }
+        visitReadNanos = System.nanoTime() - start;
     }
 
     /**
-     * Writes out the past visit stack to the file.
-     * Uses '~' as new line marker in the details.
+     * Reads the past visits with the MappedLoader, parsing chunks of the file in parallel.
      */
-    public void writeOutPastVisits() {
-        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(visitFileName)))) {
-            out.println("ID\tDate\tTime\tAnimal ID\tdetails");
-            for (Visit v : pastVisitList) {
-                out.println(v.getId() + "\t" + v.getDate() + "\t" + v.getTime() + "\t" + v.getAnimalID() + "\t" + v.getDetailsFileOut());
-                out.println(nextVisitID); // this is the next visit ID for adding gotta save it somewhere.
-            }
+    private void readPastVisitsMapped() {
+        long start = System.nanoTime();
+        try {
+            nextVisitID.set(new MappedLoader(dictionary).readPastVisits(visitFileName, this::addPastVisit, nextVisitID.get()));
+            sortPastVisits();
+            indexPastVisits();
+        }
+        catch (NoSuchFileException e) {
+            System.out.println("Visit file not found");
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Invalid number in visit file. Fix before running again.");
         }
         catch (IOException e) {
-            System.out.println("Error writing visit file");
+            System.out.println("Error reading visit file");
         }
+        visitReadNanos = System.nanoTime() - start;
     }
 
     /**
-     * YOUR TODO
-     *
-     * You need to check to make sure that the pet isn't already in the HashMap via the id sent. If it is
-     * return false, otherwise use put() to add into the petList.
-     *
-     * Adds pet into the system via the id.
-     * @param p Pet to add
-     * @param id int for the id
-     * @return true if pet is unique via the ID and added in, false otherwise.
+     * Reads the pets with the MappedLoader. Parsing runs in parallel and visits are joined on in file order after.
      */
-    public boolean addPet(Pet p, int id) {
-        if (petList.containsKey(id)) {
-            return false; // ID already exists, cannot add
+    private void readPetsMapped() {
+        long start = System.nanoTime();
+        try {
+            new MappedLoader(dictionary).readPets(petFileName, visitsByAnimal, petList);
+            joinLookups = petList.size();
         }
-        petList.put(id, p); // Add the pet to the HashMap
-        return true;
+        catch (NoSuchFileException e) {
+            System.out.println("Pet file not found");
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Invalid pet id in file. Fix before running again.");
+        }
+        catch (IOException e) {
+            System.out.println("Error reading pet file");
+        }
+        visitsByAnimal.clear();
+        joinNanos = 0; // part of the parse, not timed on its own
+        petReadNanos = System.nanoTime() - start;
     }
 
     /**
-     * YOUR TODO
-     *
-     * This needs to send back a Pet object from the petList. If no pet is found via the id sent then
-     * null should be returned.
-     *
-     * Gets a pet from the map
-     * @param id int for the pet id to look for
-     * @return Pet object - null if no pet found
+     * Groups the sorted past visits by animal ID so readPets() can hand each pet
+     * its history with one lookup instead of scanning every visit per pet.
      */
-    public Pet getPet(int id) {
-        return petList.getOrDefault(id, null); // Return the pet or null if not found
+    void indexPastVisits() {
+        visitsByAnimal = new HashMap<>();
+        pastVisitIds.clear(); // the list was just sorted
+        if (visitColumns != null) {
+            visitColumns.trimToSize(); // every loader ends here, the columns only grow by completed visits now
+            return; // pets make their histories from the columns, see useHistorySource()
+        }
+        for (Visit v : pastVisitList) { // list is sorted so each stack ends up oldest to newest
+            visitsByAnimal.computeIfAbsent(v.getAnimalID(), k -> new VisitHistory()).add(v);
+        }
     }
 
     /**
-     * This method will add a visit into the system. If date is the current day it will check the time
-     * and make sure there is no overlap. If date is different, first checks if we have a file for the date
-     * if so opens it, if not it will create a new file for that date. This adds the appointment to it.
-     * @param v Visit to add
-     * @return true if successfully added, false otherwise.
+     * Hands over the indexed visits for one pet, see indexPastVisits().
+     * @param id int for the animal ID
+     * @return VisitHistory of the pet's sorted visits, a new empty one if none
      */
-    public boolean addVisit(Visit v) {
-        if (v.getDate().equalsIgnoreCase(currentDateFile.substring(0, currentDateFile.lastIndexOf(".")))) {
-            for (Visit daily : dailySchedule.toList()) {
-                if (daily.getTime().equalsIgnoreCase(v.getTime())) {
-                    return false; // matching times so can't add
-                }
-            }
-            // no times match so good to add
-            dailySchedule.enqueue(v);
-        }
-        else { // different day
-            // open file if exists, read in for that day then check times and add
-            try (BufferedReader in = new BufferedReader(new FileReader(v.getDate() + ".txt"))) {
-                in.readLine(); // headers
-                String line = in.readLine(); // read in first data
-                while (line != null) {
-                    String[] data = line.split("\t");
-
-                    // data[1] is the time so check
-                    if (data[1].equalsIgnoreCase(v.getTime())) {
-                        System.out.println("bad time");
-                        return false;
-                    }
-
-                    line = in.readLine(); // read next
-                }
-            } catch (FileNotFoundException e) {
-                // if no file exists then write out to new file
-                try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(v.getDate() + ".txt")))) {
-                    out.println("ID\tTime\tanimalID\tdetails");
-                    out.println(v.getId() + "\t" + v.getTime() + "\t" + v.getAnimalID() + "\t" + v.getDetails());
-                    out.close();
-                    nextVisitID++; // increase the ID for next visit.
-                    return true;
-                } catch (IOException ex) {
-                    System.out.println(ex);
-                }
+    VisitHistory takeIndexedVisits(int id) {
+        VisitHistory visits = visitsByAnimal.remove(id);
+        return visits == null ? new VisitHistory() : visits;
+    }
 
-            } catch (Exception e) {
-                System.out.println(e);
+    /**
+     * Drops what is left of the visit index once every pet has taken its visits.
+     */
+    void clearVisitIndex() {
+        visitsByAnimal.clear();
+    }
+
+    /**
+     * Sets the binary snapshot file kept next to the text files. When set,
+     * compactJournal() saves it too so it never falls behind the journal.
+     * @param snapshotFileName String for the snapshot file, null for none
+     */
+    public void setSnapshotFile(String snapshotFileName) {
+        this.snapshotFileName = snapshotFileName;
+    }
+
+    /**
+     * Returns the pet and visit files, the ones a snapshot is stamped with.
+     * @return String[] of the file names
+     */
+    String[] getBaseFileNames() {
+        return new String[] {petFileName, visitFileName};
+    }
+
+    /**
+     * Loads everything from the snapshot file instead of the text files. Today's schedule
+     * always comes from its text file as usual, even when the snapshot was taken today:
+     * the snapshot's queue has lost the visits already taken off it, which the day file
+     * still holds. The snapshot is only used if the pet and visit files haven't changed
+     * since it was saved, so edits made to the text files by hand are never hidden behind
+     * an old snapshot.
+     * @return true if the snapshot was loaded, false to fall back on the text files
+     */
+    public boolean readSnapshot() {
+        if (snapshotFileName == null || lazyHistoryPets > 0 || !new File(snapshotFileName).exists()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!VetSnapshot.isCurrent(this, snapshotFileName)) {
+                System.out.println("Snapshot is older than the text files, reading text files instead");
                 return false;
             }
+            VetSnapshot.read(this, null, snapshotFileName);
+            readDaySchedule();
+            useHistorySource();
+            visitReadNanos = System.nanoTime() - start;
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Error reading snapshot, reading text files instead");
+            petList.clear();
+            pastVisitList.clear();
+            if (visitColumns != null) {
+                visitColumns.clear();
+            }
+            dailySchedule = new Queue<>();
+            visitsByAnimal.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Saves everything to the snapshot file through a temp file.
+     * @return true if written or no snapshot file is set
+     */
+    public boolean writeSnapshot() {
+        if (snapshotFileName == null || visitHistory != null) {
+            return true;
+        }
+        return timedWrite("writeSnapshot", snapshotFileName, () -> withPetsLocked(this::writeSnapshotFile));
+    }
+
+    /**
+     * Writes the snapshot file, see writeSnapshot().
+     * @return true if the file was written
+     */
+    private boolean writeSnapshotFile() {
+        try {
+            VetSnapshot.write(this, today(), snapshotFileName + ".tmp");
+        }
+        catch (IOException e) {
+            System.out.println("Error writing snapshot");
+            return false;
+        }
+        return replaceFile(snapshotFileName);
+    }
+
+    /**
+     * Report of how long the last load took, including the visit to pet join and what
+     * the old nested scan (every visit checked for every pet) would have cost.
+     * @return String with the load timings
+     */
+    public String getLoadReport() {
+        if (visitHistory != null) {
+            return "Visits indexed: " + visitHistory.size() + " in " + (visitReadNanos / 1_000_000) + " ms\n" +
+                    "Pets read:   " + petList.size() + " in " + (petReadNanos / 1_000_000) + " ms\n" +
+                    visitHistory + "\n" + petList.footprintReport();
+        }
+        long scanComparisons = joinLookups * (long) getPastVisitCount();
+        return "Visits read: " + getPastVisitCount() + " in " + (visitReadNanos / 1_000_000) + " ms\n" +
+                dictionary + "\n" +
+                "Pets read:   " + petList.size() + " in " + (petReadNanos / 1_000_000) + " ms\n" +
+                "Join: " + joinLookups + " index lookups in " + (joinNanos / 1_000) + " us" +
+                " (nested scan would have made " + scanComparisons + " comparisons plus a sort per pet)\n" +
+                (visitColumns != null ? visitColumns.footprintReport() + "\n" : "") +
+                petList.footprintReport();
+    }
+
+    /**
+     * Writes out the past visit stack to the file.
+     * Uses '~' as new line marker in the details.
+     * @return true if the file was written
+     */
+    public boolean writeOutPastVisits() {
+        synchronized (pastVisitList) { // nothing is completed between writing the file and stamping the index
+            textIndex(); // read or built against the file as it is, so it is saved even if no one searched
+            if (visitHistory != null) { // visits are already on the file, only the next ID can be behind
+                try {
+                    visitHistory.saveNextVisitID(nextVisitID.get());
+                }
+                catch (IOException e) {
+                    System.out.println("Error writing visit file");
+                    return false;
+                }
+                writeTextIndex();
+                return true;
+            }
+            return timedWrite("writeOutPastVisits", visitFileName, this::writePastVisitFile);
+        }
+    }
+
+    /**
+     * Writes the visit file and its search index, see writeOutPastVisits().
+     * @return true if the visit file was written
+     */
+    private boolean writePastVisitFile() {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(visitFileName + ".tmp", RecordParser.CHARSET)))) {
+            out.println(RecordRenderer.VISIT_FILE_HEADER);
+            for (int row = 0, count = getPastVisitCount(); row < count; row++) {
+                RecordRenderer.visitLine(out, getPastVisit(row)); // made a row at a time in columnar mode
+                out.println();
+            }
+            out.println(nextVisitID.get()); // this is the next visit ID for adding gotta save it somewhere.
+        }
+        catch (IOException e) {
+            System.out.println("Error writing visit file");
+            return false;
+        }
+        if (!replaceFile(visitFileName)) {
+            return false;
+        }
+        writeTextIndex();
+        return true;
+    }
+
+    /**
+     * Saves the search index next to the visit file, stamped with the visit file as just
+     * written so it is only read back while that file is unchanged. Called from
+     * writeOutPastVisits(), which holds the pastVisitList lock across both writes.
+     */
+    private void writeTextIndex() {
+        synchronized (pastVisitList) {
+            if (textIndex != null) {
+                try {
+                    textIndex.write(textIndexFileName() + ".tmp", FileStamp.of(visitFileName));
+                    replaceFile(textIndexFileName());
+                }
+                catch (IOException e) {
+                    System.out.println("Error writing visit search index"); // rebuilt from the visits next time
+                }
+            }
+        }
+    }
+
+    /**
+     * The search index is kept next to the visit file with the same name.
+     * @return String for the index file
+     */
+    private String textIndexFileName() {
+        return (visitFileName.endsWith(".txt") ? visitFileName.substring(0, visitFileName.length() - 4) : visitFileName) + ".idx";
+    }
+
+    /**
+     * Returns the search index over the past visits' details, reading it from its file if it
+     * was saved with the visit file as it is now and nothing was completed since, or building
+     * it if not. Call holding the pastVisitList lock.
+     * @return VisitTextIndex over every past visit
+     */
+    private VisitTextIndex textIndex() {
+        if (textIndex == null) {
+            if (!textIndexDirty) {
+                try {
+                    VisitTextIndex saved = VisitTextIndex.read(textIndexFileName());
+                    if (saved.getSource().getFileName().equals(visitFileName) && saved.getSource().isCurrent()) {
+                        textIndex = saved;
+                    }
+                }
+                catch (IOException e) {
+                    // no usable index file, build it below
+                }
+            }
+            if (visitHistory != null) { // hits are read back from the visit file, see searchVisitNotes()
+                if (textIndex == null) {
+                    VisitTextIndex built = VisitTextIndex.build(Collections.emptyList());
+                    try {
+                        visitHistory.forEachVisit(built::add);
+                    }
+                    catch (IOException e) {
+                        System.out.println("Error reading visit file for search");
+                    }
+                    textIndex = built;
+                }
+                return textIndex;
+            }
+            if (textIndex == null) {
+                VisitTextIndex built = VisitTextIndex.build(pastVisitList); // empty in columnar mode
+                if (visitColumns != null) {
+                    visitColumns.forEachVisit(built::add);
+                }
+                textIndex = built;
+            }
+        }
+        return textIndex;
+    }
+
+    /**
+     * Searches the details of past visits. Words must all be there, "quoted phrases" must be there
+     * in order and OR gives visits matching either side, like: heartworm OR "teeth cleaning".
+     * @param query String of the search
+     * @return List<Visit> of matching visits, oldest first
+     */
+    public List<Visit> searchVisitNotes(String query) {
+        long start = System.nanoTime();
+        List<Visit> found = new ArrayList<>();
+        synchronized (pastVisitList) {
+            try {
+                int[] ids = textIndex().search(query);
+                if (visitColumns != null) {
+                    found.addAll(visitColumns.getByIds(ids)); // one pass over the ID column
+                }
+                else if (visitHistory != null) {
+                    for (int id : ids) {
+                        Visit v = visitHistory.readVisit(id);
+                        if (v != null) {
+                            found.add(v);
+                        }
+                    }
+                }
+                else if (ids.length > 0) {
+                    for (int row : pastVisitRows(ids)) {
+                        found.add(pastVisitList.get(row));
+                    }
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Error reading visit file for search");
+            }
+        }
+        Collections.sort(found);
+        metrics.record("searchVisitNotes", start);
+        return found;
+    }
+
+    /**
+     * Rows of the past visit list holding some visits, found through the ID index after
+     * catching it up with visits added since the last search. If a row turns out not to
+     * hold a visit asked for, the list was changed some other way, so the index is built
+     * again. Call holding the pastVisitList lock.
+     * @param ids int[] of visit IDs, sorted
+     * @return int[] of rows in order
+     */
+    private int[] pastVisitRows(int[] ids) {
+        for (int attempt = 0; ; attempt++) {
+            if (attempt > 0 || pastVisitIds.size() > pastVisitList.size()) {
+                pastVisitIds.clear();
+            }
+            for (int row = pastVisitIds.size(); row < pastVisitList.size(); row++) {
+                pastVisitIds.add(pastVisitList.get(row).getId(), row);
+            }
+            int[] rows = pastVisitIds.rowsOf(ids);
+            boolean current = true;
+            for (int row : rows) {
+                current &= Arrays.binarySearch(ids, pastVisitList.get(row).getId()) >= 0;
+            }
+            if (current || attempt > 0) {
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * Line of a day file for a visit, the date is the file's name so it isn't written.
+     * @param v Visit to write
+     * @return String of the tab separated fields
+     */
+    private static String dayFileLine(Visit v) {
+        return RecordRenderer.render(out -> RecordRenderer.dayLine(out, v));
+    }
+
+    /**
+     * Writes the daily schedule queue out to today's file.
+     * @return true if the file was written
+     */
+    public boolean writeOutDaySchedule() {
+        return timedWrite("writeOutDaySchedule", currentDateFile, this::writeDayScheduleFile);
+    }
+
+    /**
+     * Writes today's file, see writeOutDaySchedule().
+     * @return true if the file was written
+     */
+    private boolean writeDayScheduleFile() {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(currentDateFile + ".tmp", RecordParser.CHARSET)))) {
+            out.println(RecordRenderer.DAY_FILE_HEADER);
+            for (Visit v : getDailySchedule()) {
+                RecordRenderer.dayLine(out, v);
+                out.println();
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Error writing schedule file");
+            return false;
+        }
+        return replaceFile(currentDateFile);
+    }
+
+    /**
+     * Moves the finished temp file over the real one.
+     * @param fileName String for the file to replace with fileName.tmp
+     * @return true if the swap worked
+     */
+    private boolean replaceFile(String fileName) {
+        try {
+            Files.move(Path.of(fileName + ".tmp"), Path.of(fileName), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Error replacing " + fileName);
+            return false;
+        }
+    }
+
+    /**
+     * Opens the journal, replays anything left in it from a crash and then logs every
+     * addPet, addVisit and completeVisit to it. Call after the files are read in.
+     * @param fileName String for the journal file
+     * @param syncEvery int for how many records share one force to disk
+     * @param syncIntervalMillis long for the longest a record waits for its force, forced from a
+     *                           background thread if no append comes, 0 for no limit
+     * @param compactEvery int for how many records to allow before folding them into the files, 0 to never
+     */
+    public void openJournal(String fileName, int syncEvery, long syncIntervalMillis, int compactEvery) {
+        this.compactEvery = compactEvery;
+        try {
+            VetJournal j = new VetJournal(fileName, syncEvery, syncIntervalMillis);
+            int replayed = j.replay(this);
+            replayedVisitIDs = null;
+            if (replayed > 0) {
+                System.out.println("Recovered " + replayed + " changes from the journal.");
+            }
+            journal = j;
+        }
+        catch (IOException e) {
+            System.out.println("Error opening journal, changes will only be saved on exit");
+        }
+    }
+
+    /**
+     * Writes the pet and visit files, and the snapshot when set, and empties the journal
+     * once they are safely replaced. Works without a journal too, then it is just the two write outs.
+     * @return true if both files were written
+     */
+    public boolean compactJournal() {
+        // hold off changes while writing so nothing lands between the write outs and the reset
+        compactLock.lock();
+        petListLock.readLock().lock();
+        ReentrantLock todayLock = dayLock(today());
+        try {
+            synchronized (pastVisitList) {
+                todayLock.lock();
+                try {
+                    boolean written = writeOutPets() & writeOutPastVisits() & writeSnapshot();
+                    if (written && journal != null) {
+                        try {
+                            journal.reset();
+                        }
+                        catch (IOException e) {
+                            System.out.println("Error clearing journal");
+                        }
+                    }
+                    return written;
+                }
+                finally {
+                    todayLock.unlock();
+                }
+            }
+        }
+        finally {
+            petListLock.readLock().unlock();
+            compactLock.unlock();
+        }
+    }
+
+    /**
+     * Forces and closes the journal.
+     */
+    public void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            }
+            catch (IOException e) {
+                System.out.println("Error closing journal");
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Closes the journal and the visit file held open for reading pets' visits. Call once
+     * done with the db, after the last write out.
+     */
+    public void close() {
+        closeJournal();
+        if (visitHistory != null) {
+            closeHistory(visitHistory);
+        }
+    }
+
+    /**
+     * Closes a visit store.
+     * @param store VisitHistoryStore to close
+     */
+    private static void closeHistory(VisitHistoryStore store) {
+        try {
+            store.close();
+        }
+        catch (IOException e) {
+            System.out.println("Error closing visit file");
+        }
+    }
+
+    /**
+     * Journal replay of addPet. Pets already in the files are left alone.
+     * @param id int for the pet ID
+     * @param p Pet from the journal
+     */
+    void applyJournalPet(int id, Pet p) {
+        if (!petList.containsKey(id)) {
+            petList.put(id, p);
+            if (historySource() != null) {
+                p.useHistory(historySource());
+            }
+        }
+    }
+
+    /**
+     * Journal replay of addVisit. The day file was appended when the visit was booked,
+     * so only the next visit ID and today's queue can be behind.
+     * @param v Visit from the journal
+     */
+    void applyJournalVisit(Visit v) {
+        nextVisitID.accumulateAndGet(v.getId() + 1, Math::max);
+        if (v.getDate().equalsIgnoreCase(today())) {
+            for (Visit daily : dailySchedule.view()) {
+                if (daily.getId() == v.getId()) {
+                    return; // made it to the file before the crash
+                }
+            }
+            dailySchedule.enqueue(v);
         }
+    }
 
-        // after the try up above runs if no return false for matching time, then add into file
-        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(v.getDate()+".txt", true)))){
-            out.println("\n" + v.getId() + "\t" + v.getTime() + "\t" + v.getAnimalID() + "\t" + v.getDetails());
-            out.close();
-            nextVisitID++; // increase the ID for next visit.
-            return true; // everything works and writes out.
+    /**
+     * Adds a completed visit to the search index if it is loaded. If not, the saved index
+     * no longer covers every visit, so it is built fresh the first time it is needed.
+     * Call holding the pastVisitList lock.
+     * @param v Visit that is complete
+     */
+    private void addToTextIndex(Visit v) {
+        if (textIndex != null) {
+            textIndex.add(v);
+        }
+        else {
+            textIndexDirty = true;
+        }
+    }
+
+    /**
+     * Journal replay of completeVisit. Skips visits already in the completed file,
+     * which happens when a crash hits between compaction and clearing the journal.
+     * @param v Visit from the journal
+     */
+    void applyJournalComplete(Visit v) {
+        if (visitHistory != null) { // appended when completed, so usually already there
+            if (!visitHistory.contains(v.getId())) {
+                appendHistory(v);
+            }
+            return;
+        }
+        if (replayedVisitIDs == null) {
+            replayedVisitIDs = new HashSet<>();
+            for (int i = 0, count = getPastVisitCount(); i < count; i++) {
+                replayedVisitIDs.add(visitColumns != null ? visitColumns.getId(i) : pastVisitList.get(i).getId());
+            }
+        }
+        if (replayedVisitIDs.add(v.getId())) {
+            synchronized (pastVisitList) {
+                addToTextIndex(v);
+                addPastVisit(v);
+            }
+            Pet p = getPet(v.getAnimalID());
+            if (p != null && visitColumns == null) { // in columnar mode the add above put it in the pet's rows too
+                p.addVisit(v);
+            }
+        }
+    }
+
+    /**
+     * Runs a journal write and folds the journal into the files once it gets long.
+     * @param write JournalWrite to run against the open journal
+     */
+    private void log(JournalWrite write) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            write.to(journal);
+            if (compactEvery > 0 && journal.getRecordCount() >= compactEvery && !compactLock.isLocked()) {
+                compactJournal();
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Error writing journal");
+        }
+    }
+
+    /**
+     * One write to the journal.
+     */
+    private interface JournalWrite {
+        void to(VetJournal journal) throws IOException;
+    }
+
+    /**
+     * YOUR TODO
+     *
+     * You need to check to make sure that the pet isn't already in the registry via the id sent. If it is
+     * return false, otherwise use put() to add into the petList.
+     *
+     * Adds pet into the system via the id.
+     * @param p Pet to add
+     * @param id int for the id
+     * @return true if pet is unique via the ID and added in, false otherwise.
+     */
+    public boolean addPet(Pet p, int id) {
+        long start = System.nanoTime();
+        petListLock.writeLock().lock();
+        try {
+            if (petList.containsKey(id)) {
+                return false; // ID already exists, cannot add
+            }
+            petList.put(id, p); // Add the pet to the registry
+            if (historySource() != null) {
+                p.useHistory(historySource());
+            }
+        }
+        finally {
+            petListLock.writeLock().unlock();
+        }
+        log(j -> j.logPet(id, p));
+        metrics.record("addPet", start);
+        return true;
+    }
+
+    /**
+     * YOUR TODO
+     *
+     * This needs to send back a Pet object from the petList. If no pet is found via the id sent then
+     * null should be returned.
+     *
+     * Gets a pet from the map
+     * @param id int for the pet id to look for
+     * @return Pet object - null if no pet found
+     */
+    public Pet getPet(int id) {
+        long start = System.nanoTime();
+        petListLock.readLock().lock();
+        try {
+            return petList.get(id); // Return the pet or null if not found
+        }
+        finally {
+            petListLock.readLock().unlock();
+            metrics.record("getPet", start);
+        }
+    }
+
+    /**
+     * Finds pets by owner name. Matches the start of the whole name or of any word in it, ignoring case.
+     * @param prefix String for the start of the owner's name
+     * @return List<Integer> of matching pet IDs in order
+     */
+    public List<Integer> findPetsByOwner(String prefix) {
+        return petList.getIndex().findByOwner(prefix);
+    }
+
+    /**
+     * Finds pets by owner contact. Only digits are compared so any phone number format matches.
+     * @param contact String for the start of the contact
+     * @return List<Integer> of matching pet IDs in order
+     */
+    public List<Integer> findPetsByContact(String contact) {
+        return petList.getIndex().findByContact(contact);
+    }
+
+    /**
+     * Finds pets of a type, ignoring case.
+     * @param type String for the type
+     * @return List<Integer> of matching pet IDs in order
+     */
+    public List<Integer> findPetsByType(String type) {
+        return petList.getIndex().findByType(type);
+    }
+
+    /**
+     * Finds pets of a subtype, ignoring case.
+     * @param subtype String for the subtype
+     * @return List<Integer> of matching pet IDs in order
+     */
+    public List<Integer> findPetsBySubtype(String subtype) {
+        return petList.getIndex().findBySubtype(subtype);
+    }
+
+    /**
+     * Gets an owner by ID.
+     * @param ownerId int for the owner ID, see Owner.getId()
+     * @return Owner with that ID, null if none
+     */
+    public Owner getOwner(int ownerId) {
+        return petList.getOwners().get(ownerId);
+    }
+
+    /**
+     * Finds the owner with exactly these details, so a new pet can be given to them.
+     * @param name String for the owner name
+     * @param address String for the owner's address
+     * @param contact String for the owner's contact
+     * @return Owner with those details, null if none
+     */
+    public Owner findOwner(String name, String address, String contact) {
+        return petList.getOwners().find(name, address, contact);
+    }
+
+    /**
+     * Gets every pet of an owner without searching the other pets.
+     * @param ownerId int for the owner ID, see Owner.getId()
+     * @return List<Integer> of the owner's pet IDs, empty if no such owner
+     */
+    public List<Integer> getPetsForOwner(int ownerId) {
+        return petList.getOwners().getPetIds(ownerId);
+    }
+
+    /**
+     * This method will add a visit into the system. The visit's whole length is checked against the slot
+     * calendar, and if anything is on then the appointment book decides if it clashes: a visit with no vet
+     * can't overlap anything, a visit with a vet can't overlap that vet or a visit with no vet. The day's
+     * file is only read the first time the day is booked. The visit is then added to the date's file, creating it if needed, and to the
+     * daily schedule if it is for today.
+     * @param v Visit to add
+     * @return true if successfully added, false otherwise.
+     */
+    public boolean addVisit(Visit v) {
+        return addVisit(v, false);
+    }
+
+    /**
+     * Adds a new visit made at the desk, like addVisit, giving it the next visit ID once it
+     * is known to fit. The ID is handed out while holding the day's lock, so terminals booking
+     * at the same time never get the same ID and a visit that doesn't fit doesn't use one up.
+     * @param v Visit to add, its ID is replaced by the one it is booked under
+     * @return true if successfully added, false otherwise.
+     */
+    public boolean addNewVisit(Visit v) {
+        return addVisit(v, true);
+    }
+
+    /**
+     * Books a visit and logs it to the journal, see addVisit.
+     * @param v Visit to add
+     * @param newId true to give the visit the next visit ID when it is booked
+     * @return true if successfully added, false otherwise.
+     */
+    private boolean addVisit(Visit v, boolean newId) {
+        long start = System.nanoTime();
+        boolean booked = bookVisit(v, newId);
+        if (booked) {
+            log(j -> j.logVisit(v));
+        }
+        else {
+            metrics.increment("addVisitRejected");
+        }
+        metrics.record("addVisit", start);
+        return booked;
+    }
+
+    /**
+     * Checks the time against the calendar and writes the visit to its day file, see addVisit.
+     * @param v Visit to add
+     * @param newId true to give the visit the next visit ID when it is booked
+     * @return true if successfully added, false otherwise.
+     */
+    private boolean bookVisit(Visit v, boolean newId) {
+        ReentrantLock lock = dayLock(v.getDate());
+        lock.lock();
+        try {
+            return bookVisitLocked(v, newId);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Body of bookVisit, run while holding the day's lock.
+     * @param v Visit to add
+     * @param newId true to give the visit the next visit ID once it fits
+     * @return true if successfully added, false otherwise.
+     */
+    private boolean bookVisitLocked(Visit v, boolean newId) {
+        String date = v.getDate();
+        boolean isToday = date.equalsIgnoreCase(today());
+        if (!calendar.isLoaded(date) && !loadCalendarDay(date, isToday)) {
+            return false; // can't tell what is booked that day
+        }
+        if (calendar.isBooked(date, v.getTime(), v.getDuration()) &&
+                (v.getMinuteOfDay() == DateTimeKeys.INVALID || v.getVet().isEmpty() || appointments.conflicts(v))) {
+            return false; // overlaps something so can't add
+        }
+        if (newId) {
+            v.setId(allocateVisitID());
+        }
+
+        // every booking goes in its day's file, today's too as it always has, so a restart
+        // before the schedule is written out still finds today's visits
+        File dayFile = new File(date + ".txt");
+        boolean newFile = !dayFile.exists();
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(dayFile, RecordParser.CHARSET, true)))) {
+            if (newFile) {
+                out.print(RecordRenderer.DAY_FILE_HEADER);
+            }
+            String line = "\n" + dayFileLine(v);
+            out.print(line);
+            metrics.wrote(line.length() + (newFile ? RecordRenderer.DAY_FILE_HEADER.length() : 0)); // close enough for ASCII
         }
         catch (IOException ex) {
             System.out.println(ex);
+            return false;
+        }
+
+        if (isToday) {
+            dailySchedule.enqueue(v);
+        }
+        else if (newFile) {
+            dayCache.invalidate(date); // drop the cached empty day so the new file is read next time
+        }
+        else {
+            dayCache.append(v);
+        }
+        if (newFile && daysWithFiles != null && v.getEpochDay() != DateTimeKeys.INVALID) {
+            daysWithFiles.add(v.getEpochDay());
+        }
+        calendar.book(date, v.getTime(), v.getDuration());
+        appointments.add(v);
+        nextVisitID.accumulateAndGet(v.getId() + 1, Math::max); // move past this ID, already done if allocateVisitID() gave it
+        return true;
+    }
+
+    /**
+     * Fills in the calendar for a day the first time it is booked. The day file holds
+     * everything booked that day, today's queue adds anything replayed from the journal.
+     * @param date String for the day in MM-DD-YYYY
+     * @param isToday true if the day is the daily schedule's day
+     * @return true if the day was loaded
+     */
+    private boolean loadCalendarDay(String date, boolean isToday) {
+        List<Visit> booked;
+        try {
+            booked = isToday ? loadDay(date) : dayCache.get(date); // today isn't cached, it lives in the queue
+        }
+        catch (IOException | NumberFormatException e) {
+            System.out.println("Error reading schedule for " + date);
+            return false;
+        }
+        if (isToday) {
+            ArrayList<Visit> all = new ArrayList<>(booked);
+            HashSet<Integer> inFile = new HashSet<>();
+            for (Visit v : booked) {
+                inFile.add(v.getId());
+            }
+            for (Visit v : dailySchedule.view()) {
+                if (!inFile.contains(v.getId())) {
+                    all.add(v); // replayed from the journal, not in the file yet
+                }
+            }
+            booked = all;
+        }
+        calendar.load(date, booked);
+        appointments.load(date, booked);
+        return true;
+    }
+
+    /**
+     * Records which exam room a visit was put in so the room's day can be looked up.
+     * @param v Visit put in the room
+     * @param room int for the room number
+     */
+    public void assignRoom(Visit v, int room) {
+        ReentrantLock lock = dayLock(v.getDate());
+        lock.lock();
+        try {
+            if (appointments.isLoaded(v.getDate()) || loadCalendarDay(v.getDate(), v.getDate().equalsIgnoreCase(today()))) {
+                appointments.assignRoom(v, room);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists the visits on a day that overlap a window of time.
+     * @param date String for the day in MM-DD-YYYY
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time, empty if the day can't be read
+     */
+    public List<Visit> getVisitsBetween(String date, int from, int to) {
+        return windowQuery(date, () -> appointments.window(date, from, to));
+    }
+
+    /**
+     * Lists a vet's visits on a day that overlap a window of time.
+     * @param date String for the day in MM-DD-YYYY
+     * @param vet String for the vet, empty for visits with no vet
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time, empty if the day can't be read
+     */
+    public List<Visit> getVetVisitsBetween(String date, String vet, int from, int to) {
+        return windowQuery(date, () -> appointments.vetWindow(date, vet, from, to));
+    }
+
+    /**
+     * Lists the visits put in a room on a day that overlap a window of time.
+     * @param date String for the day in MM-DD-YYYY
+     * @param room int for the room number
+     * @param from int for the first minute of the window
+     * @param to int for one past the last minute
+     * @return List<Visit> ordered by start time, empty if the day can't be read
+     */
+    public List<Visit> getRoomVisitsBetween(String date, int room, int from, int to) {
+        return windowQuery(date, () -> appointments.roomWindow(date, room, from, to));
+    }
+
+    /**
+     * Changes the hours findNextAvailable looks in.
+     * @param openMinute int for the opening time as minutes since midnight
+     * @param closeMinute int for the closing time as minutes since midnight
+     */
+    public void setClinicHours(int openMinute, int closeMinute) {
+        if (openMinute < 0 || closeMinute > 24 * 60 || openMinute >= closeMinute) {
+            throw new IllegalArgumentException("Clinic has to open before it closes");
+        }
+        this.openMinute = openMinute;
+        this.closeMinute = closeMinute;
+    }
+
+    /**
+     * Finds the earliest time at or after the date and time sent where a visit of the length sent fits
+     * inside clinic hours without overlapping anything. Days are walked with epoch day numbers, and a day
+     * with no file and nothing booked is open from the start with no file read, so only days that already
+     * have bookings cost a calendar load (once, after that they stay in the calendar).
+     * @param fromDate String for the first day to look at in MM-DD-YYYY
+     * @param fromTime String for the earliest time on the first day, blank or unreadable for opening time
+     * @param duration int for how many minutes the visit takes
+     * @return TimeSlot that is open, null if the date can't be read or nothing fits within a year
+     */
+    public TimeSlot findNextAvailable(String fromDate, String fromTime, int duration) {
+        return findNextAvailable(fromDate, fromTime, duration, "");
+    }
+
+    /**
+     * Finds the earliest time a visit for a vet can be booked, see findNextAvailable. Like
+     * addVisit, a named vet can share time with other vets' visits but not with their own
+     * or with visits that have no vet.
+     * @param fromDate String for the first day to look at in MM-DD-YYYY
+     * @param fromTime String for the earliest time on the first day, blank or unreadable for opening time
+     * @param duration int for how many minutes the visit takes
+     * @param vet String for the vet, blank for any vet which needs the time free of everything
+     * @return TimeSlot that is open, null if the date can't be read or nothing fits within a year
+     */
+    public TimeSlot findNextAvailable(String fromDate, String fromTime, int duration, String vet) {
+        long start = System.nanoTime();
+        try {
+            return searchFreeSlot(fromDate, fromTime, duration, vet == null ? "" : vet.trim());
+        }
+        finally {
+            metrics.record("findNextAvailable", start);
+        }
+    }
+
+    /**
+     * Day by day search behind findNextAvailable.
+     * @param fromDate String for the first day to look at in MM-DD-YYYY
+     * @param fromTime String for the earliest time on the first day
+     * @param duration int for how many minutes the visit takes
+     * @param vet String for the vet, empty for any vet
+     * @return TimeSlot that is open, null if none
+     */
+    private TimeSlot searchFreeSlot(String fromDate, String fromTime, int duration, String vet) {
+        int firstDay = DateTimeKeys.epochDay(fromDate);
+        if (firstDay == DateTimeKeys.INVALID || duration < 1 || duration > closeMinute - openMinute) {
+            return null;
+        }
+        int fromMinute = DateTimeKeys.minuteOfDay(fromTime);
+        Set<Integer> booked = daysWithFiles();
+        String today = today();
+        for (int day = firstDay; day < firstDay + SEARCH_DAYS; day++) {
+            int from = day == firstDay ? Math.max(openMinute, fromMinute) : openMinute;
+            String date = DateTimeKeys.formatDate(day);
+            if (!booked.contains(day) && !date.equalsIgnoreCase(today) && !calendar.isLoaded(date)) {
+                int start = calendar.findFree(date, from, closeMinute, duration, SLOT_STEP); // empty day, just rounds
+                if (start != DateTimeKeys.INVALID) {
+                    return new TimeSlot(date, start, duration);
+                }
+                continue;
+            }
+            ReentrantLock lock = dayLock(date);
+            lock.lock();
+            try {
+                if (calendar.isLoaded(date) || loadCalendarDay(date, date.equalsIgnoreCase(today))) {
+                    int start = vet.isEmpty() ? calendar.findFree(date, from, closeMinute, duration, SLOT_STEP)
+                            : appointments.findFree(date, vet, from, closeMinute, duration, SLOT_STEP);
+                    if (start != DateTimeKeys.INVALID) {
+                        return new TimeSlot(date, start, duration);
+                    }
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the directory once for day files so days with nothing booked never need a file check.
+     * @return Set of epoch days that have a day file, kept up to date by bookings after that
+     */
+    private synchronized Set<Integer> daysWithFiles() {
+        if (daysWithFiles == null) {
+            Set<Integer> days = ConcurrentHashMap.newKeySet();
+            String[] names = new File(".").list();
+            if (names != null) {
+                for (String name : names) {
+                    if (name.length() == 14 && name.endsWith(".txt")) {
+                        int day = DateTimeKeys.epochDay(name.substring(0, 10));
+                        if (day != DateTimeKeys.INVALID) {
+                            days.add(day);
+                        }
+                    }
+                }
+            }
+            daysWithFiles = days;
+        }
+        return daysWithFiles;
+    }
+
+    /**
+     * Runs a window lookup under the day's lock, loading the day first if needed.
+     * @param date String for the day in MM-DD-YYYY
+     * @param query Supplier of the lookup to run
+     * @return List<Visit> found, empty if the day can't be read
+     */
+    private List<Visit> windowQuery(String date, Supplier<List<Visit>> query) {
+        ReentrantLock lock = dayLock(date);
+        lock.lock();
+        try {
+            if (!appointments.isLoaded(date) && !loadCalendarDay(date, date.equalsIgnoreCase(today()))) {
+                return new ArrayList<>();
+            }
+            return query.get();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a completed visit to the visit file in lazy mode, which also puts it in
+     * the pet's history if that is in memory.
+     * @param v Visit that is complete
+     */
+    private void appendHistory(Visit v) {
+        try {
+            metrics.wrote(visitHistory.append(v));
+        }
+        catch (IOException e) {
+            System.out.println("Error saving completed visit");
         }
-        return false;
     }
 
     /**
@@ -306,8 +1821,32 @@ public class VetDB {
      * @param v visit that is complete.
      */
     public void completeVisit(Visit v) {
-        pastVisitList.add(v);
-        getPet(v.getAnimalID()).addVisit(v); // adds to the pet in their past visits stack.
+        long start = System.nanoTime();
+        if (visitHistory != null) {
+            synchronized (pastVisitList) { // so a search index being built from the file can't miss it
+                addToTextIndex(v);
+                appendHistory(v);
+            }
+            log(j -> j.logComplete(v));
+            metrics.record("completeVisit", start);
+            return;
+        }
+        synchronized (pastVisitList) {
+            addToTextIndex(v);
+            addPastVisit(v);
+        }
+        if (visitColumns == null) { // in columnar mode the add above put it in the pet's rows too
+            ReentrantLock lock = petLock(v.getAnimalID());
+            lock.lock();
+            try {
+                getPet(v.getAnimalID()).addVisit(v); // adds to the pet in their past visits stack.
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        log(j -> j.logComplete(v));
+        metrics.record("completeVisit", start);
     }
 
 }
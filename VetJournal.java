@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal of every change made to the VetDB. Each addPet, addVisit and
+ * completeVisit is written as one tab separated line ending in a CRC so a line torn
+ * by a crash is spotted and skipped on replay.
+ *
+ * Lines are forced to disk in groups: after syncEvery records, or once syncIntervalMillis
+ * has passed since the last force. The time limit is kept by a background thread, so a
+ * record still gets forced when no more appends come after it. Anything not yet forced
+ * is forced on close.
+ */
+public class VetJournal implements AutoCloseable {
+    private static final String PET = "P";
+    private static final String VISIT = "V";
+    private static final String COMPLETE = "C";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final long syncIntervalMillis;
+    private final CRC32 crc = new CRC32();
+    private int pending = 0;
+    private long lastSync = System.currentTimeMillis();
+    private int records = 0;
+    private ScheduledExecutorService flusher; // null when there is no time limit
+
+    /**
+     * Opens the journal for appending, creating it if needed.
+     * @param fileName String for the journal file
+     * @param syncEvery int for how many records to group into one force, 1 forces every record
+     * @param syncIntervalMillis long for the longest time records wait for a force, 0 for no limit
+     * @throws IOException if the file can't be opened
+     */
+    public VetJournal(String fileName, int syncEvery, long syncIntervalMillis) throws IOException {
+        this.path = Path.of(fileName);
+        this.syncEvery = Math.max(1, syncEvery);
+        this.syncIntervalMillis = syncIntervalMillis;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        channel.position(size); // only ever appended to, truncate() pulls the position back on reset
+        ByteBuffer last = ByteBuffer.allocate(1);
+        if (size > 0 && channel.read(last, size - 1) == 1 && last.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'})); // end a line torn by a crash so new records start clean
+        }
+        if (syncIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "vet-journal");
+                t.setDaemon(true);
+                return t;
+            });
+            long check = Math.max(1, syncIntervalMillis / 2); // so nothing waits much past the limit
+            flusher.scheduleWithFixedDelay(this::flushIfDue, check, check, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Forces the records waiting if the oldest force is past the time limit. Run by the flusher.
+     */
+    private synchronized void flushIfDue() {
+        if (pending > 0 && channel.isOpen() && System.currentTimeMillis() - lastSync >= syncIntervalMillis) {
+            try {
+                sync();
+            }
+            catch (IOException e) {
+                System.out.println("Error forcing journal");
+            }
+        }
+    }
+
+    /**
+     * Records a new pet.
+     * @param id int for the pet ID
+     * @param p Pet that was added
+     * @throws IOException if the write fails
+     */
+    public synchronized void logPet(int id, Pet p) throws IOException {
+        append(PET + "\t" + id + "\t" + p.getName() + "\t" + p.getType() + "\t" + p.getSubtype() + "\t" +
+                p.getOwner() + "\t" + p.getOwnerAddress() + "\t" + p.getOwnerContact());
+    }
+
+    /**
+     * Records a visit booked on the schedule.
+     * @param v Visit that was booked
+     * @throws IOException if the write fails
+     */
+    public synchronized void logVisit(Visit v) throws IOException {
+        append(VISIT + "\t" + visitFields(v));
+    }
+
+    /**
+     * Records a completed visit.
+     * @param v Visit that was completed
+     * @throws IOException if the write fails
+     */
+    public synchronized void logComplete(Visit v) throws IOException {
+        append(COMPLETE + "\t" + visitFields(v));
+    }
+
+    /**
+     * The visit fields in the same order as the completed visit file.
+     * @param v Visit to write
+     * @return String of the tab separated fields
+     */
+    private static String visitFields(Visit v) {
+        return RecordRenderer.render(out -> RecordRenderer.visitLine(out, v));
+    }
+
+    /**
+     * Writes a record with its CRC and forces it when the group is full.
+     * @param record String of the record without CRC
+     * @throws IOException if the write fails
+     */
+    private void append(String record) throws IOException {
+        crc.reset();
+        byte[] body = record.getBytes(StandardCharsets.UTF_8);
+        crc.update(body);
+        ByteBuffer buf = ByteBuffer.wrap((record + "\t" + Long.toHexString(crc.getValue()) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        records++;
+        pending++;
+        if (pending >= syncEvery || (syncIntervalMillis > 0 && System.currentTimeMillis() - lastSync >= syncIntervalMillis)) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces any records not yet on disk.
+     * @throws IOException if the force fails
+     */
+    public synchronized void sync() throws IOException {
+        if (pending > 0) {
+            channel.force(false);
+            pending = 0;
+        }
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns how many records were written since the journal was opened or last reset.
+     * @return int for the record count
+     */
+    public synchronized int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Empties the journal once everything in it is safe in the base files.
+     * @throws IOException if the truncate fails
+     */
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        records = 0;
+        pending = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Replays the journal into the db. Lines that are torn or fail their CRC are skipped.
+     * @param db VetDB to apply the records to
+     * @return int for the number of records applied
+     * @throws IOException if the journal can't be read
+     */
+    public synchronized int replay(VetDB db) throws IOException {
+        int applied = 0;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            RecordParser data = new RecordParser();
+            String line = in.readLine();
+            while (line != null) {
+                if (!data.reset(line).isBlank() && checks(line)) {
+                    try {
+                        String type = data.field(0);
+                        if (type.equals(PET) && data.fieldCount() == 9) {
+                            db.applyJournalPet(data.intField(1), new Pet(data.field(2), data.field(3), data.field(4),
+                                    data.field(5), data.field(6), data.field(7)));
+                            applied++;
+                        }
+                        else if ((type.equals(VISIT) || type.equals(COMPLETE)) && (data.fieldCount() == 7 || data.fieldCount() == 9)) {
+                            // records from before visit lengths have only the CRC after the details
+                            Visit v = Visit.fromRecord(data, 1, db.getDictionary());
+                            if (type.equals(VISIT)) {
+                                db.applyJournalVisit(v);
+                            }
+                            else {
+                                db.applyJournalComplete(v);
+                            }
+                            applied++;
+                        }
+                    }
+                    catch (NumberFormatException e) {
+                        System.out.println("Skipping bad journal record: " + line);
+                    }
+                }
+                line = in.readLine();
+            }
+        }
+        records = applied;
+        return applied;
+    }
+
+    /**
+     * Checks the CRC on the end of a journal line.
+     * @param line String of the whole line
+     * @return true if the line was written whole
+     */
+    private boolean checks(String line) {
+        int tab = line.lastIndexOf('\t');
+        if (tab < 0) {
+            return false;
+        }
+        crc.reset();
+        crc.update(line.substring(0, tab).getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue()).equals(line.substring(tab + 1).trim());
+    }
+
+    /**
+     * Forces what is left and closes the file.
+     * @throws IOException if the close fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        sync();
+        channel.close();
+    }
+}
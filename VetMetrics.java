@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Timings and counters for the VetDB. Every public operation records its latency in a
+ * LatencyHistogram by name, and the files count the bytes they read and write. Gauges
+ * are read when a report is made, like the day cache's hits and misses.
+ *
+ * The numbers can be read over JMX once registerMBean() is called, and dumped to a file
+ * every so often with startDump(), as JSON if the file name ends in .json and as text if not.
+ */
+public class VetMetrics implements VetMetricsMBean {
+    private final long startMillis = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder diskReads = new LongAdder();
+    private ScheduledExecutorService dumper;
+    private ObjectName registeredAs;
+
+    /**
+     * Records how long an operation took.
+     * @param operation String for the operation, like addVisit
+     * @param startNanos long from System.nanoTime() when the operation started
+     */
+    public void record(String operation, long startNanos) {
+        histogram(operation).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds one to a counter.
+     * @param counter String for the counter, like addVisitRejected
+     */
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Adds a value that is read when a report is made.
+     * @param name String for the gauge
+     * @param value LongSupplier giving its current value
+     */
+    public void addGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Counts a file read for data that wasn't in memory.
+     * @param bytes long for the bytes read
+     */
+    public void diskRead(long bytes) {
+        diskReads.increment();
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Counts bytes written to a file.
+     * @param bytes long for the bytes written
+     */
+    public void wrote(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Returns the histogram for an operation, making it on first use.
+     * @param operation String for the operation
+     * @return LatencyHistogram of its timings
+     */
+    public LatencyHistogram histogram(String operation) {
+        return latencies.computeIfAbsent(operation, k -> new LatencyHistogram());
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getDiskReads() {
+        return diskReads.sum();
+    }
+
+    @Override
+    public long count(String operation) {
+        LatencyHistogram h = latencies.get(operation);
+        return h == null ? 0 : h.getCount();
+    }
+
+    @Override
+    public double percentileMicros(String operation, double percentile) {
+        LatencyHistogram h = latencies.get(operation);
+        return h == null ? 0 : h.getPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-20s %10s %10s %10s %10s %10s %10s%n", "Operation", "Count", "mean us", "p50 us",
+                "p99 us", "p999 us", "max us"));
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            out.append(String.format("%-20s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), h.getCount(),
+                    h.getMean() / 1000.0, h.getPercentile(0.5) / 1000.0, h.getPercentile(0.99) / 1000.0,
+                    h.getPercentile(0.999) / 1000.0, h.getMax() / 1000.0));
+        }
+        out.append("Bytes read ").append(getBytesRead()).append(", bytes written ").append(getBytesWritten())
+                .append(", disk reads ").append(getDiskReads()).append('\n');
+        for (Map.Entry<String, Long> e : values().entrySet()) {
+            out.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String getJson() {
+        StringBuilder out = new StringBuilder("{\"uptimeMillis\":").append(System.currentTimeMillis() - startMillis);
+        out.append(",\"operations\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            out.append(first ? "" : ",").append('"').append(e.getKey()).append("\":{\"count\":").append(h.getCount())
+                    .append(",\"meanNanos\":").append(Math.round(h.getMean()))
+                    .append(",\"p50Nanos\":").append(h.getPercentile(0.5))
+                    .append(",\"p99Nanos\":").append(h.getPercentile(0.99))
+                    .append(",\"p999Nanos\":").append(h.getPercentile(0.999))
+                    .append(",\"maxNanos\":").append(h.getMax()).append('}');
+            first = false;
+        }
+        out.append("},\"bytesRead\":").append(getBytesRead()).append(",\"bytesWritten\":").append(getBytesWritten())
+                .append(",\"diskReads\":").append(getDiskReads()).append(",\"counters\":{");
+        first = true;
+        for (Map.Entry<String, Long> e : values().entrySet()) {
+            out.append(first ? "" : ",").append('"').append(e.getKey()).append("\":").append(e.getValue());
+            first = false;
+        }
+        return out.append("}}").toString();
+    }
+
+    /**
+     * Registers with the platform MBean server so JMX tools can read the metrics.
+     * @param name String for the name part of the object name, like the schedule date
+     */
+    public synchronized void registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("VetSchedule:type=VetMetrics,name=" + ObjectName.quote(name));
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+                registeredAs = objectName;
+            }
+        }
+        catch (JMException e) {
+            System.out.println("Error registering metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the metrics to a file every so often on a background thread. The file is
+     * replaced whole each time so readers never see half of one.
+     * @param fileName String for the file, JSON if it ends in .json
+     * @param periodMillis long for the time between writes
+     */
+    public synchronized void startDump(String fileName, long periodMillis) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vet-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(fileName), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the metrics to a file now.
+     * @param fileName String for the file, JSON if it ends in .json
+     * @return true if the file was written
+     */
+    public boolean dump(String fileName) {
+        String text = fileName.endsWith(".json") ? getJson() + "\n" : getReport();
+        try {
+            Path tmp = Path.of(fileName + ".tmp");
+            Files.writeString(tmp, text, StandardCharsets.UTF_8);
+            Files.move(tmp, Path.of(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Error writing metrics file");
+            return false;
+        }
+    }
+
+    /**
+     * Stops the background dump.
+     */
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+
+    /**
+     * Takes the metrics off the MBean server if they were registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (registeredAs != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+            }
+            catch (JMException e) {
+                // already gone
+            }
+            registeredAs = null;
+        }
+    }
+
+    /**
+     * Counters and gauges together, sorted by name.
+     * @return TreeMap of name to current value
+     */
+    private TreeMap<String, Long> values() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            values.put(e.getKey(), e.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            values.put(e.getKey(), e.getValue().getAsLong());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * What the VetMetrics show over JMX, for jconsole or any JMX monitor.
+ */
+public interface VetMetricsMBean {
+    /**
+     * Returns every metric as JSON.
+     * @return String of the JSON
+     */
+    String getJson();
+
+    /**
+     * Returns every metric as a text table.
+     * @return String of the report
+     */
+    String getReport();
+
+    /**
+     * Returns the bytes read from the data files.
+     * @return long for the bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the bytes written to the data files.
+     * @return long for the bytes written
+     */
+    long getBytesWritten();
+
+    /**
+     * Returns how many times a file had to be read for data that wasn't in memory.
+     * @return long for the disk reads
+     */
+    long getDiskReads();
+
+    /**
+     * Returns how many calls of an operation there were.
+     * @param operation String for the operation, like addVisit
+     * @return long for the call count
+     */
+    long count(String operation);
+
+    /**
+     * Returns a latency percentile for an operation.
+     * @param operation String for the operation, like addVisit
+     * @param percentile double for the percentile, 0.99 for p99
+     * @return double for the latency in microseconds
+     */
+    double percentileMicros(String operation, double percentile);
+}
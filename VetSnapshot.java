@@ -0,0 +1,470 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of everything in a VetDB, kept next to the text files for fast start up.
+ *
+ * Layout, all numbers big endian:
+ * <pre>
+ * int magic 'VETS', int version
+ * str schedule date, int nextVisitID
+ * int file count, then each FileStamp  - the pet and visit files the snapshot was taken with (version 5 on,
+ *                                        with the checksum from version 6, version 5 stamps never match)
+ * int string count, then each str       - table of types, subtypes, names, times and vets
+ * int phrase count, then each str       - table of repeated details, codes go on from the strings (version 3 on)
+ * int visit count, then each visit     - past visits in sorted order
+ * int visit count, then each visit     - the daily schedule in queue order
+ * int owner count, then each owner     - version 4 on
+ * int pet count, then each pet
+ * visit: int id, int epoch day, [int date code if epoch day is INVALID], int time code, int animal ID,
+ *        str details, or from version 3 on int -1 - code in place of the str for repeated details,
+ *        int duration, int vet code (version 2 on, version 1 visits get the default length and no vet)
+ * owner: str name, str address, str contact
+ * pet:   int id, int name code (version 3 on, before that str name), int type code, int subtype code,
+ *        int owner number (version 4 on, before that str owner, str address, str contact)
+ * str:   int byte length then UTF-8 bytes
+ * </pre>
+ * Loading is one buffered sequential read with no date parsing or '~' decoding. Every
+ * string in the tables is read once and shared by all the rows that use it. Types, subtypes,
+ * vets and repeated details also go through the db's StringDictionary so text loaded later
+ * shares them too. Details are coded when they
+ * show up more than once, the rest are written out in full. Each household is written once
+ * and its pets point at it by its place in the owner list.
+ *
+ * The stamps let the db see when the text files were changed after the snapshot was
+ * saved, then it reads the text files instead. The restore tool below ignores them.
+ *
+ * Run as a program to convert between the text files and a snapshot:
+ * <pre>
+ * java VetSnapshot save MM-DD-YYYY snapshotFile   - text files to snapshot
+ * java VetSnapshot restore snapshotFile           - snapshot to text files
+ * </pre>
+ */
+public class VetSnapshot {
+    private static final int MAGIC = 0x56455453; // "VETS"
+    private static final int VERSION = 6;
+    private static final int BUFFER = 1 << 20;
+
+    private VetSnapshot() {
+        // only static helpers
+    }
+
+    /**
+     * Writes the db out as a snapshot.
+     * @param db VetDB to save
+     * @param date String for the day of the daily schedule, MM-DD-YYYY
+     * @param fileName String for the snapshot file
+     * @throws IOException if the write fails
+     */
+    public static void write(VetDB db, String date, String fileName) throws IOException {
+        // build the string table first so every code is known before writing
+        Map<String, Integer> table = new LinkedHashMap<>();
+        Map<String, Integer> phrases = new LinkedHashMap<>();
+        HashSet<String> seenOnce = new HashSet<>(); // details are only worth a code the second time
+        StringDictionary dictionary = db.getDictionary();
+        int pastCount = db.getPastVisitCount();
+        for (int row = 0; row < pastCount; row++) {
+            addVisitStrings(table, phrases, seenOnce, dictionary, db.getPastVisit(row));
+        }
+        List<Visit> schedule = db.getDailySchedule(); // one copy so both passes see the same visits
+        for (Visit v : schedule) {
+            addVisitStrings(table, phrases, seenOnce, dictionary, v);
+        }
+        seenOnce = null;
+        for (Pet p : db.getPetRegistry()) {
+            code(table, p.getName());
+            code(table, p.getType());
+            code(table, p.getSubtype());
+        }
+        for (Map.Entry<String, Integer> e : phrases.entrySet()) {
+            e.setValue(table.size() + e.getValue()); // phrase codes go on after the strings
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), BUFFER))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, date);
+            out.writeInt(db.getNextVisitID());
+            String[] files = db.getBaseFileNames();
+            out.writeInt(files.length);
+            for (String f : files) {
+                FileStamp.of(f).write(out);
+            }
+
+            out.writeInt(table.size());
+            for (String s : table.keySet()) {
+                writeString(out, s);
+            }
+            out.writeInt(phrases.size());
+            for (String s : phrases.keySet()) {
+                writeString(out, s);
+            }
+
+            out.writeInt(pastCount);
+            for (int row = 0; row < pastCount; row++) {
+                writeVisit(out, table, phrases, db.getPastVisit(row)); // made a row at a time in columnar mode
+            }
+
+            out.writeInt(schedule.size());
+            for (Visit v : schedule) {
+                writeVisit(out, table, phrases, v);
+            }
+
+            Map<Owner, Integer> owners = new HashMap<>();
+            for (Pet p : db.getPetRegistry()) {
+                owners.putIfAbsent(p.getOwnerRecord(), owners.size());
+            }
+            Owner[] ownerList = new Owner[owners.size()];
+            for (Map.Entry<Owner, Integer> e : owners.entrySet()) {
+                ownerList[e.getValue()] = e.getKey();
+            }
+            out.writeInt(ownerList.length);
+            for (Owner o : ownerList) {
+                writeString(out, o.getName());
+                writeString(out, o.getAddress());
+                writeString(out, o.getContact());
+            }
+
+            out.writeInt(db.getPetRegistry().size());
+            PetRegistry.Cursor entry = db.getPetRegistry().cursor();
+            while (entry.next()) {
+                Pet p = entry.value();
+                out.writeInt(entry.key());
+                out.writeInt(table.get(p.getName()));
+                out.writeInt(table.get(p.getType()));
+                out.writeInt(table.get(p.getSubtype()));
+                out.writeInt(owners.get(p.getOwnerRecord()));
+            }
+        }
+    }
+
+    /**
+     * Reads only the schedule date from a snapshot, so the right VetDB can be made for it.
+     * @param fileName String for the snapshot file
+     * @return String of the schedule date in MM-DD-YYYY
+     * @throws IOException if the file is missing or not a snapshot
+     */
+    public static String readDate(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            checkHeader(in);
+            return readString(in, new byte[64]);
+        }
+    }
+
+    /**
+     * Checks the snapshot was taken with the db's pet and visit files as they are now.
+     * Snapshots from before stamps were kept can't be checked so they never match.
+     * @param db VetDB whose files to check
+     * @param fileName String for the snapshot file
+     * @return true if every stamped file is unchanged
+     * @throws IOException if the file is missing or not a snapshot
+     */
+    public static boolean isCurrent(VetDB db, String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            int version = checkHeader(in);
+            readString(in, new byte[64]);
+            in.readInt();
+            if (version < 5) {
+                return false;
+            }
+            FileStamp[] stamps = readStamps(in, version);
+            String[] files = db.getBaseFileNames();
+            if (stamps.length != files.length) {
+                return false;
+            }
+            for (int i = 0; i < stamps.length; i++) {
+                if (!stamps[i].getFileName().equals(files[i]) || !stamps[i].isCurrent()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads the file stamps of a version 5 or later header.
+     * @param in DataInputStream just past the next visit ID
+     * @param version int for the snapshot's version, checksums are there from version 6
+     * @return FileStamp[] of the stamped files
+     * @throws IOException if the read fails
+     */
+    private static FileStamp[] readStamps(DataInputStream in, int version) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad file count " + count);
+        }
+        FileStamp[] stamps = new FileStamp[count];
+        for (int i = 0; i < count; i++) {
+            stamps[i] = FileStamp.read(in, version >= 6);
+        }
+        return stamps;
+    }
+
+    /**
+     * Loads a snapshot into an empty db. The daily schedule is only loaded when the
+     * snapshot was taken on the day sent.
+     * @param db VetDB to load into
+     * @param date String for the db's current day, MM-DD-YYYY, null to leave the schedule out
+     * @param fileName String for the snapshot file
+     * @return true if the daily schedule was loaded too
+     * @throws IOException if the file is missing or not a snapshot
+     */
+    public static boolean read(VetDB db, String date, String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), BUFFER))) {
+            int version = checkHeader(in);
+            byte[] buf = new byte[256];
+            String snapshotDate = readString(in, buf);
+            db.setNextVisitID(in.readInt());
+            if (version >= 5) {
+                readStamps(in, version);
+            }
+
+            StringDictionary dictionary = db.getDictionary();
+            int words = in.readInt();
+            String[] table = new String[words];
+            int[] minutes = new int[table.length]; // each time parsed once, not once per visit
+            for (int i = 0; i < words; i++) {
+                table[i] = readString(in, buf); // shared by every row of this load, vets and types go in the dictionary below
+                minutes[i] = DateTimeKeys.minuteOfDay(table[i]);
+            }
+            if (version >= 3) {
+                int phrases = in.readInt();
+                table = Arrays.copyOf(table, words + phrases);
+                for (int i = words; i < table.length; i++) {
+                    table[i] = dictionary.keepPhrase(readString(in, buf)); // only repeated details get a code
+                }
+            }
+
+            HashMap<Integer, String> dates = new HashMap<>(); // each day formatted once
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) { // already sorted when written
+                Visit v = readVisit(in, table, minutes, dates, buf, version);
+                v.setVet(dictionary.intern(v.getVet()));
+                db.addPastVisit(v);
+            }
+            db.indexPastVisits();
+
+            count = in.readInt();
+            boolean sameDay = snapshotDate.equals(date); // false for a null date
+            for (int i = 0; i < count; i++) {
+                Visit v = readVisit(in, table, minutes, dates, buf, version);
+                v.setVet(dictionary.intern(v.getVet()));
+                if (sameDay) {
+                    db.enqueueToday(v);
+                }
+            }
+
+            Owner[] owners = new Owner[version >= 4 ? in.readInt() : 0];
+            for (int i = 0; i < owners.length; i++) {
+                owners[i] = new Owner(readString(in, buf), readString(in, buf), readString(in, buf));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                String name = version >= 3 ? table[in.readInt()] : readString(in, buf);
+                String type = dictionary.intern(table[in.readInt()]);
+                String subtype = dictionary.intern(table[in.readInt()]);
+                Owner owner = version >= 4 ? owners[in.readInt()]
+                        : new Owner(readString(in, buf), readString(in, buf), readString(in, buf));
+                Pet p = new Pet(name, type, subtype, owner, db.takeIndexedVisits(id));
+                db.getPetRegistry().put(id, p);
+            }
+            db.clearVisitIndex();
+            return sameDay;
+        }
+    }
+
+    /**
+     * Adds the repeated strings of a visit to the tables.
+     * @param table Map of string to code
+     * @param phrases Map of repeated details to their place in the phrase table
+     * @param seenOnce HashSet of details seen one time so far
+     * @param dictionary StringDictionary that knows which details could repeat
+     * @param v Visit to add from
+     */
+    private static void addVisitStrings(Map<String, Integer> table, Map<String, Integer> phrases, HashSet<String> seenOnce,
+                                        StringDictionary dictionary, Visit v) {
+        String details = v.getDetails();
+        if (dictionary.hasPhrase(details) && !phrases.containsKey(details) && !seenOnce.add(details)) {
+            code(phrases, details);
+        }
+        code(table, v.getTime());
+        code(table, v.getVet());
+        if (v.getEpochDay() == DateTimeKeys.INVALID) {
+            code(table, v.getDate()); // odd dates are kept as text so nothing is lost
+        }
+    }
+
+    /**
+     * Returns the code for a string, adding it to the table if new.
+     * @param table Map of string to code
+     * @param s String to look up
+     * @return int for the code
+     */
+    private static int code(Map<String, Integer> table, String s) {
+        return table.computeIfAbsent(s, k -> table.size());
+    }
+
+    /**
+     * Writes one visit.
+     * @param out DataOutputStream to write to
+     * @param table Map of string to code
+     * @param phrases Map of repeated details to code
+     * @param v Visit to write
+     * @throws IOException if the write fails
+     */
+    private static void writeVisit(DataOutputStream out, Map<String, Integer> table, Map<String, Integer> phrases, Visit v)
+            throws IOException {
+        out.writeInt(v.getId());
+        int day = v.getEpochDay();
+        out.writeInt(day);
+        if (day == DateTimeKeys.INVALID) {
+            out.writeInt(table.get(v.getDate()));
+        }
+        out.writeInt(table.get(v.getTime()));
+        out.writeInt(v.getAnimalID());
+        Integer details = phrases.get(v.getDetails());
+        if (details == null) {
+            writeString(out, v.getDetails());
+        }
+        else {
+            out.writeInt(-1 - details); // a length is never negative so this can't be mistaken for one
+        }
+        out.writeInt(v.getDuration());
+        out.writeInt(table.get(v.getVet()));
+    }
+
+    /**
+     * Reads one visit.
+     * @param in DataInputStream to read from
+     * @param table String[] of the string table
+     * @param minutes int[] of each table string as a minute of the day
+     * @param dates HashMap of epoch day to formatted date already made
+     * @param buf byte[] scratch buffer
+     * @param version int for the snapshot's version
+     * @return Visit that was read
+     * @throws IOException if the read fails
+     */
+    private static Visit readVisit(DataInputStream in, String[] table, int[] minutes, HashMap<Integer, String> dates,
+                                   byte[] buf, int version) throws IOException {
+        int id = in.readInt();
+        int day = in.readInt();
+        String date = day == DateTimeKeys.INVALID ? table[in.readInt()] : dates.computeIfAbsent(day, DateTimeKeys::formatDate);
+        int timeCode = in.readInt();
+        int animalID = in.readInt();
+        int length = in.readInt();
+        String details = length < 0 && version >= 3 ? table[-1 - length] : readString(in, buf, length);
+        Visit v = new Visit(id, date, day, table[timeCode], minutes[timeCode], animalID, details);
+        if (version >= 2) {
+            v.setDuration(in.readInt());
+            v.setVet(table[in.readInt()]);
+        }
+        return v;
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string.
+     * @param out DataOutputStream to write to
+     * @param s String to write
+     * @throws IOException if the write fails
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string.
+     * @param in DataInputStream to read from
+     * @param buf byte[] scratch buffer, used when big enough
+     * @return String that was read
+     * @throws IOException if the read fails
+     */
+    private static String readString(DataInputStream in, byte[] buf) throws IOException {
+        return readString(in, buf, in.readInt());
+    }
+
+    /**
+     * Reads the UTF-8 bytes of a string whose length was already read.
+     * @param in DataInputStream to read from
+     * @param buf byte[] scratch buffer, used when big enough
+     * @param length int for the byte length
+     * @return String that was read
+     * @throws IOException if the read fails
+     */
+    private static String readString(DataInputStream in, byte[] buf, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = length <= buf.length ? buf : new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes sure the file is a snapshot this version can read.
+     * @param in DataInputStream at the start of the file
+     * @return int for the file's version
+     * @throws IOException if the magic or version don't match
+     */
+    private static int checkHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Converts between the text files and a snapshot.
+     * @param args save MM-DD-YYYY snapshotFile, or restore snapshotFile
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 3 && args[0].equals("save")) {
+                VetDB db = new VetDB(args[1] + ".txt");
+                db.readDaySchedule();
+                db.readPastVisits();
+                db.readPets();
+                write(db, args[1], args[2]);
+                System.out.println("Saved " + db.getPetRegistry().size() + " pets and " + db.getPastVisitCount() +
+                        " visits to " + args[2]);
+            }
+            else if (args.length == 2 && args[0].equals("restore")) {
+                String date = readDate(args[1]);
+                VetDB db = new VetDB(date + ".txt");
+                read(db, date, args[1]);
+                db.writeOutPets();
+                db.writeOutPastVisits();
+                db.writeOutDaySchedule();
+                System.out.println("Restored " + db.getPetRegistry().size() + " pets and " + db.getPastVisitCount() +
+                        " visits from " + args[1]);
+            }
+            else {
+                System.out.println("Usage: java VetSnapshot save MM-DD-YYYY snapshotFile");
+                System.out.println("       java VetSnapshot restore snapshotFile");
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Error converting snapshot: " + e.getMessage());
+        }
+    }
+}
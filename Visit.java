@@ -1,13 +1,22 @@
 /**
  * Object for the visit of a pet to the vet.
- * Implements Comparable for sorting based on visit dates.
+ * Implements Comparable for sorting based on visit date and time. The date and time are
+ * parsed once into a primitive sort key so comparing is a single long compare.
  */
 public class Visit implements Comparable<Visit> {
+    /** Minutes a visit takes when no length is given. */
+    public static final int DEFAULT_DURATION = 30;
+
     private int id; // used to store in text file to read in past visits and add to Pet as read in.
     private String date;
     private String time;
     private int animalID;
     private String details;
+    private int epochDay; // days since 01-01-1970, DateTimeKeys.INVALID if the date can't be read
+    private int minuteOfDay; // minutes since midnight, DateTimeKeys.INVALID if the time can't be read
+    private long sortKey;
+    private int duration = DEFAULT_DURATION; // minutes
+    private String vet = ""; // empty when any vet can take it
 
     /**
      * Main constructor
@@ -23,6 +32,46 @@ public class Visit implements Comparable<Visit> {
         this.time = time;
         this.animalID = animalID;
         this.details = details;
+        this.epochDay = DateTimeKeys.epochDay(date);
+        this.minuteOfDay = DateTimeKeys.minuteOfDay(time);
+        updateSortKey();
+    }
+
+    /**
+     * Constructor with the length of the visit and the vet seeing it
+     * @param id int for the unique ID of the visit
+     * @param date String for the date
+     * @param time String for the time
+     * @param animalID int for the animal ID to link this visit to
+     * @param details String of the details about the visit
+     * @param duration int for how many minutes the visit takes
+     * @param vet String for the vet, empty for any vet
+     */
+    public Visit(int id, String date, String time, int animalID, String details, int duration, String vet) {
+        this(id, date, time, animalID, details);
+        setDuration(duration);
+        setVet(vet);
+    }
+
+    /**
+     * Constructor for loaders that already have the date and time as keys.
+     * @param id int for the unique ID of the visit
+     * @param date String for the date
+     * @param epochDay int for the date as days since 01-01-1970
+     * @param time String for the time
+     * @param minuteOfDay int for the time as minutes since midnight
+     * @param animalID int for the animal ID to link this visit to
+     * @param details String of the details about the visit
+     */
+    Visit(int id, String date, int epochDay, String time, int minuteOfDay, int animalID, String details) {
+        this.id = id;
+        this.date = date;
+        this.time = time;
+        this.animalID = animalID;
+        this.details = details;
+        this.epochDay = epochDay;
+        this.minuteOfDay = minuteOfDay;
+        updateSortKey();
     }
 
     /**
@@ -55,6 +104,8 @@ public class Visit implements Comparable<Visit> {
      */
     public void setDate(String date) {
         this.date = date;
+        this.epochDay = DateTimeKeys.epochDay(date);
+        updateSortKey();
     }
 
     /**
@@ -71,6 +122,83 @@ public class Visit implements Comparable<Visit> {
      */
     public void setTime(String time) {
         this.time = time;
+        this.minuteOfDay = DateTimeKeys.minuteOfDay(time);
+        updateSortKey();
+    }
+
+    /**
+     * Returns how long the visit takes
+     * @return int for the minutes
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Changes how long the visit takes
+     * @param duration int for the minutes, at least 1
+     */
+    public void setDuration(int duration) {
+        if (duration < 1) {
+            throw new IllegalArgumentException("Visit has to take at least a minute");
+        }
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the vet seeing the visit
+     * @return String for the vet, empty if any vet
+     */
+    public String getVet() {
+        return vet;
+    }
+
+    /**
+     * Changes the vet seeing the visit
+     * @param vet String for the vet, null or empty for any vet
+     */
+    public void setVet(String vet) {
+        this.vet = vet == null ? "" : vet.replace('\t', ' ').replace('\n', ' ').trim(); // tabs and new lines would break the files
+    }
+
+    /**
+     * Returns the minute of the day the visit is over
+     * @return int for the end minute, DateTimeKeys.INVALID if the time can't be read
+     */
+    public int getEndMinute() {
+        return minuteOfDay == DateTimeKeys.INVALID ? DateTimeKeys.INVALID : minuteOfDay + duration;
+    }
+
+    /**
+     * Returns the date as days since 01-01-1970
+     * @return int for the epoch day, DateTimeKeys.INVALID if the date can't be read
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns the time as minutes since midnight
+     * @return int for the minute of the day, DateTimeKeys.INVALID if the time can't be read
+     */
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    /**
+     * Returns the key visits are ordered by, the epoch day and minute of day in one long.
+     * @return long for the sort key
+     */
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Rebuilds the sort key after the date or time changes. Dates that can't be read
+     * sort first, by time among themselves, times that can't be read sort at the start of their day.
+     */
+    private void updateSortKey() {
+        sortKey = (long) epochDay * 1440 + (minuteOfDay == DateTimeKeys.INVALID ? 0 : minuteOfDay);
     }
 
     /**
@@ -120,7 +248,7 @@ public class Visit implements Comparable<Visit> {
      * @return of visit information
      */
     public String animalVisitString() {
-        return " Time: " + time + "\nDetails:\n" + details;
+        return RecordRenderer.render(out -> RecordRenderer.animalVisit(out, this));
     }
 
     /**
@@ -128,52 +256,66 @@ public class Visit implements Comparable<Visit> {
      * @return String version of object
      */
     public String toString() {
-        return "ID: " + id + " - Date: " + date + " Time: " + time + " Animal ID: " + animalID + "\nDetails:\n" + details;
+        return RecordRenderer.render(out -> RecordRenderer.visit(out, this));
     }
 
     /**
      * This breaks the details down by new line and puts '~' in between to keep everything
-     * on one line for printout back to a file.
+     * on one line for printout back to a file. Writers should use RecordRenderer.details()
+     * to skip making the String.
      * @return String for the details printed out on one line
      */
     public String getDetailsFileOut() {
-        String deets = "";
-        for (String d : details.split("\n")) {
-            deets += d + "~";
+        return RecordRenderer.render(out -> RecordRenderer.details(out, details));
+    }
+
+    /**
+     * Gets the duration and vet for writing to a file, they go after the details.
+     * @return String of the two tab separated fields
+     */
+    public String getExtraFieldsFileOut() {
+        return RecordRenderer.render(out -> RecordRenderer.extraFields(out, this));
+    }
+
+    /**
+     * Reads the duration and vet from a file line if it has them. Lines from before
+     * visits had lengths stop at the details and keep the defaults.
+     * @param data RecordParser holding the line
+     * @param index int for the duration field, the vet follows it
+     */
+    public void readExtraFields(RecordParser data, int index) {
+        if (data.fieldCount() >= index + 2) {
+            int minutes = data.intField(index);
+            if (minutes >= 1) {
+                duration = minutes;
+            }
+            setVet(data.field(index + 1));
         }
-        deets = deets.substring(0, deets.length() - 1); // remove the last ~
-        return deets;
     }
 
     /**
-     * Compares this Visit to another Visit based on their dates.
-     * The date format is MM-DD-YYYY.
+     * Makes a visit from a completed visit line: ID, date, time, animal ID, details and
+     * then the duration and vet if the line has them. Repeated text is shared through the dictionary.
+     * @param data RecordParser holding the line
+     * @param first int for the ID field, fields before it are skipped
+     * @param dictionary StringDictionary to share repeated text through
+     * @return Visit made from the line
+     */
+    public static Visit fromRecord(RecordParser data, int first, StringDictionary dictionary) {
+        Visit v = new Visit(data.intField(first), data.field(first + 1), data.field(first + 2), data.intField(first + 3),
+                dictionary.internPhrase(data.detailsField(first + 4)));
+        v.readExtraFields(data, first + 5);
+        v.vet = dictionary.intern(v.vet);
+        return v;
+    }
+
+    /**
+     * Compares this Visit to another Visit based on their date and then time.
      * @param other the other Visit to compare to
-     * @return -1 if this date is earlier, 1 if later, 0 if equal
+     * @return -1 if this visit is earlier, 1 if later, 0 if at the same time
      */
     @Override
     public int compareTo(Visit other) {
-        String[] thisDateParts = this.date.split("-");
-        String[] otherDateParts = other.date.split("-");
-
-        // Compare year
-        int thisYear = Integer.parseInt(thisDateParts[2]);
-        int otherYear = Integer.parseInt(otherDateParts[2]);
-        if (thisYear != otherYear) {
-            return Integer.compare(thisYear, otherYear);
-        }
-
-        // Compare month
-        int thisMonth = Integer.parseInt(thisDateParts[0]);
-        int otherMonth = Integer.parseInt(otherDateParts[0]);
-        if (thisMonth != otherMonth) {
-            return Integer.compare(thisMonth, otherMonth);
-        }
-
-        // Compare day
-        int thisDay = Integer.parseInt(thisDateParts[1]);
-        int otherDay = Integer.parseInt(otherDateParts[1]);
-        return Integer.compare(thisDay, otherDay);
+        return Long.compare(sortKey, other.sortKey);
     }
 }
-
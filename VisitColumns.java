@@ -0,0 +1,437 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The past visit list kept as columns instead of Visit objects. Each visit is a row: its
+ * ID, epoch day, minute of day, animal ID and length sit in int arrays, the date, time and
+ * vet are codes into a table of strings the loaders already shared, and details are either a code, when the
+ * StringDictionary kept them as repeated, or UTF-8 bytes in one big blob found by offset.
+ * A Visit is only made when one is asked for, so millions of old visits cost a few ints
+ * each instead of an object with its own strings.
+ *
+ * Rows can only be added, sorted into date order or cleared. It isn't a List on purpose:
+ * every getVisit() makes a new Visit, so changing one doesn't change the row, and callers
+ * that only need a number should use the column getters. Pets read their visits from it
+ * as a HistorySource, built from the rows of that animal. Those rows are kept grouped by
+ * animal in one array with each animal's range found by a binary search, built again when
+ * the rows are sorted or trimmed, while rows added since are looked through one by one.
+ * Search hits are found by ID through a VisitIdIndex over the ID column, and Visits are
+ * only made for the rows found. Safe to share between threads, everything is synchronized.
+ */
+public class VisitColumns implements HistorySource {
+    private static final int IN_BLOB = -1; // details code of details kept in the blob
+
+    private final StringDictionary dictionary;
+    private int size = 0;
+    private int[] ids = new int[1024];
+    private int[] days = new int[1024];
+    private int[] minutes = new int[1024];
+    private int[] animals = new int[1024];
+    private int[] durations = new int[1024];
+    private int[] dateCodes = new int[1024]; // dates, times and vets exactly as read, codes into strings
+    private int[] timeCodes = new int[1024];
+    private int[] vetCodes = new int[1024];
+    private int[] detailsCodes = new int[1024]; // code into strings, IN_BLOB if the details are in the blob
+    private int[] detailsEnds = new int[1024]; // where a row's blob bytes end, they start where the row before ends
+    private byte[] blob = new byte[16384];
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    private int[] petIds = new int[0]; // every animal ID in the ranged rows, sorted
+    private int[] petStarts = {0}; // where each animal's rows start in petRows, the last is where the last one ends
+    private int[] petRows = new int[0]; // rows grouped by animal, each group in row order
+    private int rangedRows = 0; // rows in the ranges, rows from here on are looked through one by one
+    private final VisitIdIndex byId = new VisitIdIndex();
+
+    /**
+     * Main constructor
+     * @param dictionary StringDictionary the visits' text is shared through, it says which details repeat
+     */
+    public VisitColumns(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Adds a visit as a new row at the end.
+     * @param v Visit to add
+     */
+    public synchronized void add(Visit v) {
+        if (size == ids.length) {
+            grow(size + (size >> 1) + 1);
+        }
+        int row = size;
+        ids[row] = v.getId();
+        days[row] = v.getEpochDay();
+        minutes[row] = v.getMinuteOfDay();
+        animals[row] = v.getAnimalID();
+        durations[row] = v.getDuration();
+        dateCodes[row] = code(v.getDate());
+        timeCodes[row] = code(v.getTime());
+        vetCodes[row] = code(v.getVet());
+        int start = row == 0 ? 0 : detailsEnds[row - 1];
+        String details = v.getDetails();
+        if (details == null || dictionary.hasPhrase(details)) {
+            detailsCodes[row] = code(details);
+            detailsEnds[row] = start;
+        }
+        else {
+            byte[] bytes = details.getBytes(StandardCharsets.UTF_8);
+            if (start + bytes.length > blob.length) {
+                blob = Arrays.copyOf(blob, Math.max(blob.length * 2, start + bytes.length));
+            }
+            System.arraycopy(bytes, 0, blob, start, bytes.length);
+            detailsCodes[row] = IN_BLOB;
+            detailsEnds[row] = start + bytes.length;
+        }
+        byId.add(v.getId(), row);
+        size++;
+    }
+
+    /**
+     * Makes the Visit of a row. This makes a new Visit and its details String every call,
+     * use the column getters when only a number is needed.
+     * @param row int for the row
+     * @return Visit with the row's fields, a new copy each time
+     */
+    public synchronized Visit getVisit(int row) {
+        checkRow(row);
+        Visit v = new Visit(ids[row], strings.get(dateCodes[row]), days[row], strings.get(timeCodes[row]), minutes[row],
+                animals[row], details(row));
+        v.setDuration(durations[row]);
+        v.setVet(strings.get(vetCodes[row]));
+        return v;
+    }
+
+    /**
+     * Makes the Visit of every row in order and hands each to an action without keeping it.
+     * @param action Consumer<Visit> to hand each visit to
+     */
+    public synchronized void forEachVisit(Consumer<Visit> action) {
+        for (int row = 0; row < size; row++) {
+            action.accept(getVisit(row));
+        }
+    }
+
+    /**
+     * Returns how many visits there are.
+     * @return int for the row count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes every visit.
+     */
+    public synchronized void clear() {
+        size = 0;
+        byId.clear();
+        strings.clear();
+        codes.clear();
+        buildRanges();
+    }
+
+    /**
+     * Sorts the rows into date and time order like Visit.compareTo, done on the day and
+     * minute columns without making any Visits. Equal visits keep their order.
+     */
+    public synchronized void sort() {
+        long[] keys = new long[size];
+        boolean sorted = true;
+        for (int row = 0; row < size; row++) {
+            keys[row] = sortKey(row);
+            sorted &= row == 0 || keys[row - 1] <= keys[row];
+        }
+        if (sorted) {
+            return;
+        }
+        // rank each key so rank and row fit in one long, sorting those keeps equal keys in row order
+        long[] distinct = keys.clone();
+        Arrays.sort(distinct);
+        long[] packed = new long[size];
+        for (int row = 0; row < size; row++) {
+            packed[row] = (long) Arrays.binarySearch(distinct, keys[row]) << 32 | row;
+        }
+        Arrays.sort(packed);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) packed[i];
+        }
+        reorder(order);
+    }
+
+    /**
+     * Shrinks the columns and the blob to what is in them and groups the rows by animal,
+     * for once a load is done.
+     */
+    public synchronized void trimToSize() {
+        grow(Math.max(size, 1));
+        blob = Arrays.copyOf(blob, size == 0 ? 0 : detailsEnds[size - 1]);
+        if (rangedRows != size) { // a sort that moved rows has grouped them already
+            buildRanges();
+        }
+    }
+
+    /**
+     * Returns a pet's past visits, made from its rows. If a lot of rows were added since
+     * the rows were grouped by animal they are grouped again first.
+     * @param animalID int for the pet ID
+     * @return VisitHistory of the pet's visits oldest to newest, empty if none
+     */
+    @Override
+    public synchronized VisitHistory getHistory(int animalID) {
+        if (size - rangedRows > Math.max(1024, rangedRows >> 3)) {
+            buildRanges();
+        }
+        VisitHistory visits = new VisitHistory();
+        int at = Arrays.binarySearch(petIds, animalID);
+        if (at >= 0) {
+            for (int i = petStarts[at]; i < petStarts[at + 1]; i++) {
+                visits.add(getVisit(petRows[i])); // rows are nearly always in date order so these go on the end
+            }
+        }
+        for (int row = rangedRows; row < size; row++) {
+            if (animals[row] == animalID) {
+                visits.add(getVisit(row));
+            }
+        }
+        return visits;
+    }
+
+    /**
+     * Adds a completed visit, the same as add().
+     * @param v Visit that is complete
+     * @return int 0, nothing is written to a file
+     */
+    @Override
+    public int append(Visit v) {
+        add(v);
+        return 0;
+    }
+
+    /**
+     * Finds visits by ID, a binary search per ID in the ID index.
+     * @param visitIDs int[] of IDs to find, each once
+     * @return List<Visit> of the visits found, in row order
+     */
+    public synchronized List<Visit> getByIds(int[] visitIDs) {
+        int[] rows = byId.rowsOf(visitIDs);
+        List<Visit> found = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            found.add(getVisit(row));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the ID of a row without making its Visit.
+     * @param row int for the row
+     * @return int for the visit ID
+     */
+    public synchronized int getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /**
+     * Returns the epoch day of a row without making its Visit.
+     * @param row int for the row
+     * @return int for the days since 01-01-1970, DateTimeKeys.INVALID if the date couldn't be read
+     */
+    public synchronized int getEpochDay(int row) {
+        checkRow(row);
+        return days[row];
+    }
+
+    /**
+     * Returns the minute of day of a row without making its Visit.
+     * @param row int for the row
+     * @return int for the minutes since midnight, DateTimeKeys.INVALID if the time couldn't be read
+     */
+    public synchronized int getMinuteOfDay(int row) {
+        checkRow(row);
+        return minutes[row];
+    }
+
+    /**
+     * Returns the animal ID of a row without making its Visit.
+     * @param row int for the row
+     * @return int for the animal ID
+     */
+    public synchronized int getAnimalID(int row) {
+        checkRow(row);
+        return animals[row];
+    }
+
+    /**
+     * Estimated heap used by the columns, assuming 4 byte compressed references. The
+     * shared strings aren't counted, the dictionary holds them anyway.
+     * @return long for the bytes used
+     */
+    public synchronized long footprintBytes() {
+        return 10L * (16 + 4L * ids.length) + 16 + blob.length + 4L * strings.size() +
+                3 * 16 + 4L * (petIds.length + petStarts.length + petRows.length) + 16 + 8L * byId.size();
+    }
+
+    /**
+     * Report of the columns' memory use.
+     * @return String of the footprint report
+     */
+    public synchronized String footprintReport() {
+        long bytes = footprintBytes();
+        return "Visit columns: " + size + " visits in " + ids.length + " rows, about " + bytes + " bytes (" +
+                (size == 0 ? 0 : bytes / size) + " per visit, " + (size == 0 ? 0 : detailsEnds[size - 1]) +
+                " bytes of details in the blob, " + strings.size() + " shared strings)";
+    }
+
+    /**
+     * Makes the details of a row.
+     * @param row int for the row
+     * @return String of the details
+     */
+    private String details(int row) {
+        if (detailsCodes[row] != IN_BLOB) {
+            return strings.get(detailsCodes[row]);
+        }
+        int start = row == 0 ? 0 : detailsEnds[row - 1];
+        return new String(blob, start, detailsEnds[row] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Date and time order of a row, worked out the same way as Visit's sort key.
+     * @param row int for the row
+     * @return long for the sort key
+     */
+    private long sortKey(int row) {
+        return (long) days[row] * 1440 + (minutes[row] == DateTimeKeys.INVALID ? 0 : minutes[row]);
+    }
+
+    /**
+     * Code of a string in the table, adding it if new.
+     * @param s String to code, may be null
+     * @return int for the code
+     */
+    private int code(String s) {
+        Integer code = codes.get(s);
+        if (code == null) {
+            code = strings.size();
+            strings.add(s);
+            codes.put(s, code);
+        }
+        return code;
+    }
+
+    /**
+     * Puts the rows in a new order, rebuilding the blob and the animal index to match.
+     * @param order int[] of the old row for each new row
+     */
+    private void reorder(int[] order) {
+        ids = pick(ids, order);
+        days = pick(days, order);
+        minutes = pick(minutes, order);
+        animals = pick(animals, order);
+        durations = pick(durations, order);
+        dateCodes = pick(dateCodes, order);
+        timeCodes = pick(timeCodes, order);
+        vetCodes = pick(vetCodes, order);
+        detailsCodes = pick(detailsCodes, order);
+        byte[] newBlob = new byte[blob.length];
+        int[] newEnds = new int[detailsEnds.length];
+        int end = 0;
+        for (int row = 0; row < size; row++) {
+            int old = order[row];
+            int start = old == 0 ? 0 : detailsEnds[old - 1];
+            int length = detailsEnds[old] - start;
+            System.arraycopy(blob, start, newBlob, end, length);
+            end += length;
+            newEnds[row] = end;
+        }
+        blob = newBlob;
+        detailsEnds = newEnds;
+        byId.clear();
+        for (int row = 0; row < size; row++) {
+            byId.add(ids[row], row);
+        }
+        buildRanges();
+    }
+
+    /**
+     * Groups every row by animal: sorts animal ID and row pairs, then notes where each
+     * animal's rows start.
+     */
+    private void buildRanges() {
+        long[] packed = new long[size];
+        for (int row = 0; row < size; row++) {
+            packed[row] = (long) animals[row] << 32 | row; // rows are never negative so signed IDs sort right
+        }
+        Arrays.sort(packed);
+        petRows = new int[size];
+        int[] animalIds = new int[size];
+        int[] starts = new int[size + 1];
+        int pets = 0;
+        for (int i = 0; i < size; i++) {
+            int animal = (int) (packed[i] >> 32);
+            if (pets == 0 || animalIds[pets - 1] != animal) {
+                animalIds[pets] = animal;
+                starts[pets++] = i;
+            }
+            petRows[i] = (int) packed[i];
+        }
+        starts[pets] = size;
+        petIds = Arrays.copyOf(animalIds, pets);
+        petStarts = Arrays.copyOf(starts, pets + 1);
+        rangedRows = size;
+    }
+
+    /**
+     * A column in a new row order, keeping its capacity.
+     * @param column int[] to reorder
+     * @param order int[] of the old row for each new row
+     * @return int[] reordered
+     */
+    private int[] pick(int[] column, int[] order) {
+        int[] out = new int[column.length];
+        for (int row = 0; row < size; row++) {
+            out[row] = column[order[row]];
+        }
+        return out;
+    }
+
+    /**
+     * Grows every column.
+     * @param capacity int for the new row count
+     */
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        days = Arrays.copyOf(days, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        animals = Arrays.copyOf(animals, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        dateCodes = Arrays.copyOf(dateCodes, capacity);
+        timeCodes = Arrays.copyOf(timeCodes, capacity);
+        vetCodes = Arrays.copyOf(vetCodes, capacity);
+        detailsCodes = Arrays.copyOf(detailsCodes, capacity);
+        detailsEnds = Arrays.copyOf(detailsEnds, capacity);
+    }
+
+    /**
+     * Makes sure a row is there.
+     * @param row int for the row
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * String output of the size
+     * @return String of the visit count
+     */
+    public synchronized String toString() {
+        return size + " visits in columns";
+    }
+}
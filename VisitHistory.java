@@ -0,0 +1,160 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A pet's past visits kept in date order as they are added. Visits nearly always come in
+ * newest last, so an add is usually just a store at the end of the array; an older visit
+ * is slotted into place.
+ *
+ * Sorted views and pages of the newest visits read the array without copying it. A view
+ * only sees the visits there when it was made: adds at the end go past what it can see
+ * and an add anywhere else moves to a new array, so a view never changes under a reader.
+ */
+public class VisitHistory {
+    private Visit[] visits;
+    private int size = 0;
+
+    /**
+     * Constructor for a pet with no visits yet.
+     */
+    public VisitHistory() {
+        visits = new Visit[4];
+    }
+
+    /**
+     * Makes a history from visits in any order, sorting them once.
+     * @param visits Collection<Visit> to start with
+     * @return VisitHistory holding them in date order
+     */
+    public static VisitHistory of(Collection<Visit> visits) {
+        VisitHistory history = new VisitHistory();
+        Visit[] sorted = visits.toArray(new Visit[0]);
+        Arrays.sort(sorted); // stable, so same time visits keep the order sent
+        history.visits = sorted.length < 4 ? Arrays.copyOf(sorted, 4) : sorted;
+        history.size = sorted.length;
+        return history;
+    }
+
+    /**
+     * Adds a visit in date order, after any visits at the same time.
+     * @param v Visit to add
+     */
+    public synchronized void add(Visit v) {
+        int at = size;
+        while (at > 0 && visits[at - 1].compareTo(v) > 0) {
+            at--;
+        }
+        if (at == size && size < visits.length) {
+            visits[size++] = v; // views made before can't see past their own size
+            return;
+        }
+        Visit[] next = new Visit[size == visits.length ? size * 2 : visits.length];
+        System.arraycopy(visits, 0, next, 0, at);
+        next[at] = v;
+        System.arraycopy(visits, at, next, at + 1, size - at);
+        visits = next;
+        size++;
+    }
+
+    /**
+     * Returns how many visits there are.
+     * @return int for the visit count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Checks for no visits.
+     * @return true if there are none
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the most recent visit.
+     * @return Visit that is newest, null if none
+     */
+    public synchronized Visit getLatest() {
+        return size == 0 ? null : visits[size - 1];
+    }
+
+    /**
+     * Returns the visits oldest to newest without copying them.
+     * @return List<Visit> read only view
+     */
+    public synchronized List<Visit> sorted() {
+        return new View(visits, 0, size, false);
+    }
+
+    /**
+     * Returns the newest visits, newest first, without copying them.
+     * @param count int for the most visits to return
+     * @return List<Visit> read only view of up to count visits
+     */
+    public List<Visit> latest(int count) {
+        return page(0, count);
+    }
+
+    /**
+     * Returns one page of visits counting back from the newest, newest first.
+     * @param page int for the page, 0 is the newest visits
+     * @param perPage int for the visits on a page
+     * @return List<Visit> read only view of the page, empty past the oldest visit
+     */
+    public synchronized List<Visit> page(int page, int perPage) {
+        int skip = (int) Math.min(size, Math.max(0, (long) page * perPage));
+        int end = size - skip; // one past the newest visit on the page
+        int start = Math.max(0, end - Math.max(0, perPage));
+        return new View(visits, start, end, true);
+    }
+
+    /**
+     * String output of the count
+     * @return String of the history size
+     */
+    public synchronized String toString() {
+        return size + " visits";
+    }
+
+    /**
+     * Read only window on a history's array.
+     */
+    private static class View extends AbstractList<Visit> implements RandomAccess {
+        private final Visit[] visits;
+        private final int start;
+        private final int end;
+        private final boolean newestFirst;
+
+        /**
+         * Main constructor
+         * @param visits Visit[] holding the history when the view was made
+         * @param start int for the first index in the window
+         * @param end int for one past the last index
+         * @param newestFirst true to read the window backwards
+         */
+        View(Visit[] visits, int start, int end, boolean newestFirst) {
+            this.visits = visits;
+            this.start = start;
+            this.end = end;
+            this.newestFirst = newestFirst;
+        }
+
+        @Override
+        public Visit get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + (end - start));
+            }
+            return visits[newestFirst ? end - 1 - index : start + index];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
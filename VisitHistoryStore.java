@@ -0,0 +1,525 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Gets at the completed visits without reading them all in. Opening the visit file only
+ * notes where each visit's line starts, grouped by animal ID, and a pet's history is read
+ * from those spots the first time it is asked for. Read histories sit in a size bounded,
+ * least recently used cache so a day only holds the pets it touched.
+ *
+ * Visits completed while open are appended to the file straight away, so a pet pushed out
+ * of the cache reads back whole. Saving the next visit ID appends it on a line of its own
+ * too, and the file is only rewritten by compact() once the lines left behind by earlier
+ * saves take up a good part of it, so a save costs a few bytes, not the whole file. Visits are
+ * found by ID through a list of IDs kept sorted, sorted again only when a visit comes in
+ * out of order. Safe to share between threads, everything is synchronized.
+ */
+public class VisitHistoryStore implements HistorySource {
+    private static final Charset CHARSET = RecordParser.CHARSET;
+    private static final long COMPACT_MIN_BYTES = 4096; // less dead space than this isn't worth a rewrite
+    private static final int COMPACT_PERCENT = 25; // rewrite once this much of the file is dead space
+
+    private final String fileName;
+    private final int capacity;
+    private final LinkedHashMap<Integer, VisitHistory> cache;
+    private final HashMap<Integer, Positions> byAnimal = new HashMap<>();
+    private long[] offsets = new long[1024]; // where each visit's line starts, in file order
+    private long[] byId = new long[1024]; // visit ID in the high half, position in the low half, sorted
+    private int size = 0;
+    private boolean byIdSorted = true; // IDs are handed out in order, only hand edited files break this
+    private FileChannel channel;
+    private long fileLength = 0;
+    private boolean endsWithNewLine = true;
+    private int writtenNextVisitID = Integer.MIN_VALUE; // last lone number in the file
+    private long nextIdLineBytes = 0; // length of that line, dead space once a later one is saved
+    private long deadBytes = 0; // blank lines and next visit ID lines a later one took over from
+    private ByteBuffer lineBuffer = ByteBuffer.allocate(256);
+    private final RecordParser parser = new RecordParser();
+    private final StringDictionary dictionary;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Spots in the file of one animal's visits, as indexes into ids and offsets.
+     */
+    private static class Positions {
+        private int[] at = new int[4];
+        private int size = 0;
+
+        /**
+         * Adds a position.
+         * @param position int index into ids and offsets
+         */
+        void add(int position) {
+            if (size == at.length) {
+                at = Arrays.copyOf(at, size * 2);
+            }
+            at[size++] = position;
+        }
+    }
+
+    /**
+     * Main constructor
+     * @param fileName String for the completed visit file
+     * @param capacity int for the most pets' histories to keep in memory
+     * @param dictionary StringDictionary to share repeated text of the visits read through
+     */
+    public VisitHistoryStore(String fileName, int capacity, StringDictionary dictionary) {
+        this.fileName = fileName;
+        this.dictionary = dictionary;
+        this.capacity = Math.max(1, capacity);
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, VisitHistory> eldest) {
+                if (size() > VisitHistoryStore.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Scans the visit file for where each visit starts. Only the ID and animal ID of each
+     * line are parsed. A missing file is made with just the header.
+     * @param nextVisitID int for the next visit ID to keep if the file doesn't have one
+     * @return int for the next visit ID, from the last line holding only a number
+     * @throws IOException if the file can't be read
+     * @throws NumberFormatException if a visit ID or animal ID isn't a number
+     */
+    public synchronized int open(int nextVisitID) throws IOException {
+        channel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeLine(RecordRenderer.VISIT_FILE_HEADER);
+            return nextVisitID;
+        }
+        byte[] buffer = new byte[1 << 16];
+        byte[] line = new byte[256];
+        int length = 0;
+        long lineStart = 0;
+        long at = 0;
+        try (InputStream in = new FileInputStream(fileName)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        scanLine(line, length, lineStart);
+                        lineStart = at + i + 1;
+                        length = 0;
+                    }
+                    else {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+                        line[length++] = buffer[i];
+                    }
+                }
+                at += n;
+            }
+        }
+        if (length > 0) { // last line has no new line after it
+            scanLine(line, length, lineStart);
+        }
+        fileLength = at;
+        endsWithNewLine = length == 0;
+        return writtenNextVisitID == Integer.MIN_VALUE ? nextVisitID : writtenNextVisitID;
+    }
+
+    /**
+     * Notes one line of the file found by open().
+     * @param line byte[] holding the line
+     * @param length int for the line's length without the new line
+     * @param offset long for where the line starts in the file
+     */
+    private void scanLine(byte[] line, int length, long offset) {
+        if (offset == 0) {
+            return; // header
+        }
+        long bytes = length + 1;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        int[] tabs = new int[4];
+        int found = 0;
+        boolean blank = true;
+        for (int i = 0; i < length && found < tabs.length; i++) {
+            if (line[i] == '\t') {
+                tabs[found++] = i;
+            }
+            else if (line[i] > ' ') {
+                blank = false;
+            }
+        }
+        if (blank && found == 0) {
+            deadBytes += bytes;
+            return;
+        }
+        if (found == 0) { // the next visit number and no other data
+            writtenNextVisitID = parseInt(line, 0, length, offset);
+            deadBytes += nextIdLineBytes;
+            nextIdLineBytes = bytes;
+            return;
+        }
+        if (found < 3) {
+            throw new NumberFormatException("Visit at byte " + offset + " has no animal ID");
+        }
+        int end = found == 4 ? tabs[3] : length;
+        add(parseInt(line, 0, tabs[0], offset), parseInt(line, tabs[2] + 1, end, offset), offset);
+    }
+
+    /**
+     * Reads a whole number out of a line.
+     * @param line byte[] holding the line
+     * @param from int for the first byte of the number
+     * @param to int for one past the last byte
+     * @param offset long for where the line starts, for the error message
+     * @return int for the number
+     * @throws NumberFormatException if it isn't a number
+     */
+    private static int parseInt(byte[] line, int from, int to, long offset) {
+        while (from < to && line[from] == ' ') {
+            from++;
+        }
+        while (to > from && line[to - 1] == ' ') {
+            to--;
+        }
+        boolean negative = from < to && line[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to) {
+            throw new NumberFormatException("Missing number in visit at byte " + offset);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Bad number in visit at byte " + offset);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Bad number in visit at byte " + offset);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Notes where a visit is.
+     * @param id int for the visit ID
+     * @param animalID int for the pet's ID
+     * @param offset long for where its line starts
+     */
+    private void add(int id, int animalID, long offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            byId = Arrays.copyOf(byId, size * 2);
+        }
+        long key = idKey(id, size);
+        if (size > 0 && key < byId[size - 1]) {
+            byIdSorted = false; // sorted on the next find
+        }
+        byId[size] = key;
+        offsets[size] = offset;
+        byAnimal.computeIfAbsent(animalID, k -> new Positions()).add(size);
+        size++;
+    }
+
+    /**
+     * Returns a pet's past visits, reading them from the file if they aren't cached.
+     * The file is read holding the store's lock, a pet has few enough visits that it's quick.
+     * @param animalID int for the pet's ID
+     * @return VisitHistory of the pet's visits oldest to newest, empty if none
+     * @throws IOException if the file can't be read
+     */
+    public synchronized VisitHistory getHistory(int animalID) throws IOException {
+        VisitHistory visits = cache.get(animalID);
+        if (visits != null) {
+            hits++;
+            return visits;
+        }
+        misses++;
+        ArrayList<Visit> read = new ArrayList<>();
+        Positions positions = byAnimal.get(animalID);
+        if (positions != null) {
+            for (int i = 0; i < positions.size; i++) {
+                read.add(readVisitAt(offsets[positions.at[i]]));
+            }
+        }
+        visits = VisitHistory.of(read); // file order isn't always date order
+        cache.put(animalID, visits);
+        return visits;
+    }
+
+    /**
+     * Appends a completed visit to the file and to its pet's history if cached.
+     * @param v Visit that was completed
+     * @return int for the bytes written
+     * @throws IOException if the file can't be written
+     */
+    public synchronized int append(Visit v) throws IOException {
+        String line = RecordRenderer.render(out -> RecordRenderer.visitLine(out, v));
+        long before = fileLength;
+        long offset = writeLine(line);
+        add(v.getId(), v.getAnimalID(), offset);
+        VisitHistory cached = cache.get(v.getAnimalID());
+        if (cached != null) {
+            cached.add(v);
+        }
+        return (int) (fileLength - before);
+    }
+
+    /**
+     * Writes a line at the end of the file, starting a new line first if needed.
+     * @param line String to write, without the new line
+     * @return long for where the line starts
+     * @throws IOException if the file can't be written
+     */
+    private long writeLine(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(((endsWithNewLine ? "" : "\n") + line).getBytes(CHARSET));
+        long offset = fileLength + (endsWithNewLine ? 0 : 1);
+        while (bytes.hasRemaining()) {
+            fileLength += channel.write(bytes, fileLength);
+        }
+        endsWithNewLine = false;
+        return offset;
+    }
+
+    /**
+     * Reads and parses the visit line starting at an offset.
+     * @param offset long for where the line starts
+     * @return Visit on that line
+     * @throws IOException if the file can't be read
+     */
+    private Visit readVisitAt(long offset) throws IOException {
+        lineBuffer.clear();
+        int end = -1;
+        while (end < 0) {
+            int start = lineBuffer.position();
+            if (channel.read(lineBuffer, offset + start) <= 0) {
+                end = lineBuffer.position(); // last line of the file
+                break;
+            }
+            for (int i = start; i < lineBuffer.position(); i++) {
+                if (lineBuffer.get(i) == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0 && !lineBuffer.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(lineBuffer.capacity() * 2);
+                lineBuffer.flip();
+                bigger.put(lineBuffer);
+                lineBuffer = bigger;
+            }
+        }
+        parser.reset(new String(lineBuffer.array(), 0, end, CHARSET));
+        return Visit.fromRecord(parser, 0, dictionary);
+    }
+
+    /**
+     * Checks if a visit is in the file.
+     * @param visitID int for the visit ID
+     * @return true if there is a line for it
+     */
+    public synchronized boolean contains(int visitID) {
+        return find(visitID) >= 0;
+    }
+
+    /**
+     * Reads one visit by its ID.
+     * @param visitID int for the visit ID
+     * @return Visit read from the file, null if it isn't there
+     * @throws IOException if the file can't be read
+     */
+    public synchronized Visit readVisit(int visitID) throws IOException {
+        int position = find(visitID);
+        return position < 0 ? null : readVisitAt(offsets[position]);
+    }
+
+    /**
+     * Finds the position of a visit ID. An ID written twice finds its first line, like the
+     * other readers.
+     * @param visitID int for the visit ID
+     * @return int index into offsets, negative if not found
+     */
+    private int find(int visitID) {
+        if (!byIdSorted) {
+            Arrays.sort(byId, 0, size);
+            byIdSorted = true;
+        }
+        int at = Arrays.binarySearch(byId, 0, size, idKey(visitID, 0));
+        if (at < 0) {
+            at = -at - 1; // first key of the ID, if there is one
+        }
+        return at < size && (int) (byId[at] >> 32) == visitID ? (int) byId[at] : -1;
+    }
+
+    /**
+     * Sort key of a visit ID then its position in the file.
+     * @param id int for the visit ID
+     * @param position int for the index into offsets
+     * @return long key
+     */
+    private static long idKey(int id, int position) {
+        return ((long) id << 32) | position;
+    }
+
+    /**
+     * Saves the next visit ID. It is appended on a line of its own, which open() takes over
+     * the ones before it, unless the file already ends up with that number. When the lines
+     * it replaces would make up enough of the file, the file is compacted instead.
+     * @param nextVisitID int for the next visit ID
+     * @return true if the file was compacted
+     * @throws IOException if the file can't be written
+     */
+    public synchronized boolean saveNextVisitID(int nextVisitID) throws IOException {
+        if (nextVisitID == writtenNextVisitID) {
+            return false;
+        }
+        long dead = deadBytes + nextIdLineBytes;
+        if (dead >= COMPACT_MIN_BYTES && dead * 100 >= fileLength * COMPACT_PERCENT) {
+            compact(nextVisitID);
+            return true;
+        }
+        String line = String.valueOf(nextVisitID);
+        writeLine(line);
+        writtenNextVisitID = nextVisitID;
+        deadBytes = dead;
+        nextIdLineBytes = line.length() + 1; // with the new line the next write starts with
+        return false;
+    }
+
+    /**
+     * Returns how much of the file is taken by lines compact() would drop.
+     * @return long for the dead bytes
+     */
+    public synchronized long getDeadBytes() {
+        return deadBytes;
+    }
+
+    /**
+     * Rewrites the file with every visit line as it is, dropping the next visit ID lines
+     * that were appended along the way and ending with the one sent. Written through a temp
+     * file, then the offsets are read again from the new file. Cached histories stay.
+     * @param nextVisitID int for the next visit ID
+     * @throws IOException if the file can't be rewritten
+     */
+    public synchronized void compact(int nextVisitID) throws IOException {
+        Path tmp = Path.of(fileName + ".tmp");
+        try (BufferedReader in = Files.newBufferedReader(Path.of(fileName), CHARSET);
+             BufferedWriter out = Files.newBufferedWriter(tmp, CHARSET)) {
+            out.write(RecordRenderer.VISIT_FILE_HEADER);
+            out.newLine();
+            String line = in.readLine(); // header
+            while ((line = in.readLine()) != null) {
+                if (line.indexOf('\t') >= 0) { // blank lines and lone numbers are left out
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+            out.write(String.valueOf(nextVisitID));
+        }
+        Files.move(tmp, Path.of(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        close(); // still on the old file until here, so a failed move leaves the store as it was
+        byAnimal.clear();
+        size = 0;
+        byIdSorted = true;
+        fileLength = 0;
+        endsWithNewLine = true;
+        writtenNextVisitID = Integer.MIN_VALUE;
+        nextIdLineBytes = 0;
+        deadBytes = 0;
+        open(nextVisitID);
+    }
+
+    /**
+     * Reads every visit in the file in order, one at a time, without keeping them.
+     * @param action Consumer<Visit> to hand each visit to
+     * @throws IOException if the file can't be read
+     */
+    public void forEachVisit(Consumer<Visit> action) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(fileName, CHARSET))) {
+            RecordParser data = new RecordParser();
+            String line = in.readLine(); // header
+            while ((line = in.readLine()) != null) {
+                if (!data.reset(line).isBlank() && data.fieldCount() > 1) {
+                    action.accept(Visit.fromRecord(data, 0, dictionary));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how many visits are in the file.
+     * @return int for the visit count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns how many gets were served from the cache.
+     * @return long for the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns how many gets had to read the file.
+     * @return long for the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns how many histories were pushed out to stay in capacity.
+     * @return long for the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if it can't be closed
+     */
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * String output of the counters
+     * @return String of the store stats
+     */
+    public synchronized String toString() {
+        return "History cache: " + cache.size() + "/" + capacity + " pets, " + size + " visits on file, " +
+                deadBytes + " bytes dead, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/**
+ * Finds the rows of a visit list by visit ID without walking the list. Each row is kept
+ * as a long with the visit ID in the high half and the row in the low half, sorted so a
+ * lookup is a binary search. IDs are handed out in order so rows nearly always go on the
+ * end already sorted; one that doesn't marks the pairs to be sorted before the next lookup.
+ * Not synchronized, the list that owns it locks around it.
+ */
+public class VisitIdIndex {
+    private long[] pairs = new long[1024];
+    private int size = 0;
+    private boolean sorted = true;
+
+    /**
+     * Notes the row a visit is in.
+     * @param id int for the visit ID
+     * @param row int for the row
+     */
+    public void add(int id, int row) {
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, size * 2);
+        }
+        long pair = pack(id, row);
+        sorted &= size == 0 || pairs[size - 1] <= pair;
+        pairs[size++] = pair;
+    }
+
+    /**
+     * Forgets every row.
+     */
+    public void clear() {
+        size = 0;
+        sorted = true;
+    }
+
+    /**
+     * Returns how many rows are noted.
+     * @return int for the row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the rows of some visits.
+     * @param visitIDs int[] of the IDs wanted, each once in any order
+     * @return int[] of the rows holding them in row order, a row per visit with that ID
+     */
+    public int[] rowsOf(int[] visitIDs) {
+        if (!sorted) {
+            Arrays.sort(pairs, 0, size);
+            sorted = true;
+        }
+        int[] rows = new int[visitIDs.length];
+        int n = 0;
+        for (int id : visitIDs) {
+            int at = Arrays.binarySearch(pairs, 0, size, pack(id, 0));
+            for (at = at < 0 ? -at - 1 : at; at < size && (int) (pairs[at] >> 32) == id; at++) {
+                if (n == rows.length) {
+                    rows = Arrays.copyOf(rows, n * 2 + 1);
+                }
+                rows[n++] = (int) pairs[at];
+            }
+        }
+        rows = Arrays.copyOf(rows, n);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Packs an ID and row so sorting orders by ID then row.
+     * @param id int for the visit ID
+     * @param row int for the row, not negative
+     * @return long with the ID high and the row low
+     */
+    private static long pack(int id, int row) {
+        return (long) id << 32 | row;
+    }
+}
@@ -0,0 +1,529 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index over the words in visit details. Each word has a posting list of the
+ * visits it is in along with where in the details it shows up, so phrases can be checked
+ * without reading the details again.
+ *
+ * Posting lists are packed into bytes: per visit the gap from the previous visit ID
+ * (zigzag encoded since IDs aren't always completed in order), the number of positions,
+ * then the gaps between positions, all as 7 bit variable length ints. Most gaps fit in a
+ * byte so a posting is usually 3 or 4 bytes.
+ *
+ * Queries are words that all have to match, "quoted phrases" that have to appear in
+ * order, and OR between groups, like: heartworm OR "teeth cleaning". Words are letters
+ * and digits, case doesn't matter. All methods are synchronized.
+ *
+ * The saved file keeps the FileStamp of the visit file it was built from, so a saved
+ * index is only used while the visit file is still exactly that file.
+ */
+public class VisitTextIndex {
+    private static final int MAGIC = 0x56494458; // "VIDX"
+    private static final int VERSION = 3; // 3 added the checksum to the stamp, older files are just rebuilt
+    private final HashMap<String, Postings> terms = new HashMap<>();
+    private FileStamp source; // the visit file a saved index was built from, null if built here
+
+    /**
+     * Builds an index over the visits sent.
+     * @param visits Iterable<Visit> to index
+     * @return VisitTextIndex of the visits
+     */
+    public static VisitTextIndex build(Iterable<Visit> visits) {
+        VisitTextIndex index = new VisitTextIndex();
+        for (Visit v : visits) {
+            index.add(v);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a visit's details to the index.
+     * @param v Visit to add
+     */
+    public synchronized void add(Visit v) {
+        HashMap<String, IntList> positions = new HashMap<>();
+        List<String> words = tokenize(v.getDetails());
+        for (int i = 0; i < words.size(); i++) {
+            positions.computeIfAbsent(words.get(i), k -> new IntList()).add(i);
+        }
+        for (Map.Entry<String, IntList> e : positions.entrySet()) {
+            terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(v.getId(), e.getValue());
+        }
+    }
+
+    /**
+     * Runs a query.
+     * @param query String of words, "quoted phrases" and OR
+     * @return int[] of matching visit IDs in order, no repeats
+     */
+    public synchronized int[] search(String query) {
+        int[] result = new int[0];
+        for (List<List<String>> clause : parse(query)) {
+            int[] matches = null;
+            for (List<String> item : clause) {
+                int[] found = item.size() == 1 ? termIds(item.get(0)) : phraseIds(item);
+                matches = matches == null ? found : intersect(matches, found);
+                if (matches.length == 0) {
+                    break; // nothing left to AND with
+                }
+            }
+            if (matches != null) {
+                result = union(result, matches);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the visit file a saved index was built from.
+     * @return FileStamp of the visit file when the index was saved, null if not read from a file
+     */
+    public synchronized FileStamp getSource() {
+        return source;
+    }
+
+    /**
+     * Returns how many different words are indexed.
+     * @return int for the word count
+     */
+    public synchronized int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Returns how many bytes the posting lists take.
+     * @return long for the packed size
+     */
+    public synchronized long getPostingBytes() {
+        long bytes = 0;
+        for (Postings p : terms.values()) {
+            bytes += p.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the index to a file.
+     * @param fileName String for the file
+     * @param source FileStamp of the visit file the index covers, as it is now
+     * @throws IOException if the write fails
+     */
+    public synchronized void write(String fileName, FileStamp source) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            source.write(out);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                Postings p = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeInt(p.lastId);
+                out.writeInt(p.length);
+                out.write(p.data, 0, p.length);
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by write().
+     * @param fileName String for the file
+     * @return VisitTextIndex that was read
+     * @throws IOException if the file is missing or not an index
+     */
+    public static VisitTextIndex read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a visit index file");
+            }
+            VisitTextIndex index = new VisitTextIndex();
+            index.source = FileStamp.read(in);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String term = in.readUTF();
+                Postings p = new Postings();
+                p.lastId = in.readInt();
+                p.length = in.readInt();
+                p.data = new byte[Math.max(16, p.length)];
+                in.readFully(p.data, 0, p.length);
+                index.terms.put(term, p);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Splits text into lower cased words of letters and digits.
+     * @param text String to split
+     * @return List<String> of the words in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            }
+            else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Splits a query into OR clauses, each a list of words and phrases to AND.
+     * @param query String of the query
+     * @return List of clauses, each item a list of one word or a phrase's words
+     */
+    private static List<List<List<String>>> parse(String query) {
+        List<List<List<String>>> clauses = new ArrayList<>();
+        List<List<String>> clause = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                end = end < 0 ? query.length() : end;
+                List<String> phrase = tokenize(query.substring(i + 1, end));
+                if (!phrase.isEmpty()) {
+                    clause.add(phrase);
+                }
+                i = end + 1;
+            }
+            else if (Character.isWhitespace(c)) {
+                i++;
+            }
+            else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                if (word.equals("OR")) {
+                    if (!clause.isEmpty()) {
+                        clauses.add(clause);
+                    }
+                    clause = new ArrayList<>();
+                }
+                else {
+                    for (String w : tokenize(word)) {
+                        clause.add(List.of(w));
+                    }
+                }
+                i = end;
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    /**
+     * Visits containing a word.
+     * @param term String for the word, lower cased
+     * @return int[] of visit IDs in order
+     */
+    private int[] termIds(String term) {
+        Postings p = terms.get(term);
+        if (p == null) {
+            return new int[0];
+        }
+        IntList ids = new IntList();
+        p.decode((id, positions, count) -> ids.add(id));
+        return ids.sortedUnique();
+    }
+
+    /**
+     * Visits containing the words of a phrase one after another.
+     * @param phrase List<String> of the phrase's words
+     * @return int[] of visit IDs in order
+     */
+    private int[] phraseIds(List<String> phrase) {
+        // candidates are visits with every word, then positions are lined up
+        int[] candidates = null;
+        for (String word : phrase) {
+            int[] ids = termIds(word);
+            candidates = candidates == null ? ids : intersect(candidates, ids);
+            if (candidates.length == 0) {
+                return candidates;
+            }
+        }
+        HashMap<Integer, int[]> first = positionsFor(phrase.get(0), candidates);
+        for (int w = 1; w < phrase.size(); w++) {
+            HashMap<Integer, int[]> next = positionsFor(phrase.get(w), candidates);
+            HashMap<Integer, int[]> kept = new HashMap<>();
+            for (Map.Entry<Integer, int[]> e : first.entrySet()) {
+                int[] later = next.get(e.getKey());
+                if (later == null) {
+                    continue;
+                }
+                IntList starts = new IntList();
+                for (int start : e.getValue()) {
+                    if (Arrays.binarySearch(later, start + w) >= 0) {
+                        starts.add(start);
+                    }
+                }
+                if (starts.size > 0) {
+                    kept.put(e.getKey(), starts.toArray());
+                }
+            }
+            first = kept;
+        }
+        int[] ids = new int[first.size()];
+        int n = 0;
+        for (int id : first.keySet()) {
+            ids[n++] = id;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Positions of a word in each of the visits sent.
+     * @param term String for the word
+     * @param ids int[] of visit IDs wanted, in order
+     * @return HashMap of visit ID to the word's positions in order
+     */
+    private HashMap<Integer, int[]> positionsFor(String term, int[] ids) {
+        HashMap<Integer, int[]> found = new HashMap<>();
+        terms.get(term).decode((id, positions, count) -> {
+            if (Arrays.binarySearch(ids, id) >= 0) {
+                int[] old = found.get(id);
+                int[] now = Arrays.copyOf(positions, count);
+                if (old != null) { // same ID indexed twice, keep both
+                    now = Arrays.copyOf(old, old.length + count);
+                    System.arraycopy(positions, 0, now, old.length, count);
+                    Arrays.sort(now);
+                }
+                found.put(id, now);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * IDs in both sorted arrays.
+     * @param a int[] sorted
+     * @param b int[] sorted
+     * @return int[] sorted intersection
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            }
+            else if (a[i] > b[j]) {
+                j++;
+            }
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * IDs in either sorted array.
+     * @param a int[] sorted
+     * @param b int[] sorted
+     * @return int[] sorted union, no repeats
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            }
+            else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            }
+            else {
+                next = a[i++];
+                j++;
+            }
+            out[n++] = next;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Called for each visit while decoding a posting list.
+     */
+    private interface PostingVisitor {
+        /**
+         * Takes one visit's entry.
+         * @param id int for the visit ID
+         * @param positions int[] holding the word's positions, only the first count are valid
+         * @param count int for how many positions there are
+         */
+        void visit(int id, int[] positions, int count);
+    }
+
+    /**
+     * One word's packed posting list.
+     */
+    private static class Postings {
+        private byte[] data = new byte[16];
+        private int length = 0;
+        private int lastId = 0;
+
+        /**
+         * Appends a visit with the positions of the word in it.
+         * @param id int for the visit ID
+         * @param positions IntList of positions in order
+         */
+        void add(int id, IntList positions) {
+            writeVarInt(zigzag(id - lastId));
+            lastId = id;
+            writeVarInt(positions.size);
+            int last = 0;
+            for (int i = 0; i < positions.size; i++) {
+                writeVarInt(positions.values[i] - last);
+                last = positions.values[i];
+            }
+        }
+
+        /**
+         * Walks the list in the order visits were added.
+         * @param visitor PostingVisitor to call per visit
+         */
+        void decode(PostingVisitor visitor) {
+            int[] pos = {0};
+            int id = 0;
+            int[] positions = new int[8];
+            while (pos[0] < length) {
+                id += unzigzag(readVarInt(pos));
+                int count = readVarInt(pos);
+                if (positions.length < count) {
+                    positions = new int[count];
+                }
+                int last = 0;
+                for (int i = 0; i < count; i++) {
+                    last += readVarInt(pos);
+                    positions[i] = last;
+                }
+                visitor.visit(id, positions, count);
+            }
+        }
+
+        /**
+         * Appends an int 7 bits per byte, high bit set on every byte but the last.
+         * @param value int to write, treated as unsigned
+         */
+        private void writeVarInt(int value) {
+            if (data.length - length < 5) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Reads an int written by writeVarInt.
+         * @param pos int[] holding the read position, moved past the int
+         * @return int that was read
+         */
+        private int readVarInt(int[] pos) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos[0]++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Maps small negative and positive ints to small unsigned ones.
+         * @param value int to map
+         * @return int with the sign in the low bit
+         */
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        /**
+         * Undoes zigzag.
+         * @param value int from zigzag
+         * @return int as it was
+         */
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    /**
+     * Growable list of ints without boxing.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        /**
+         * Adds an int on the end.
+         * @param value int to add
+         */
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Copies out the ints.
+         * @return int[] of the ints in order added
+         */
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        /**
+         * Copies out the ints sorted with repeats dropped.
+         * @return int[] sorted and unique
+         */
+        int[] sortedUnique() {
+            int[] sorted = toArray();
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (n == 0 || sorted[n - 1] != sorted[i]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The VetDB side of the JMH benchmarks, see bench.VetBenchmark. Kept in the default package
+ * next to the classes it uses, since those can't be imported from a named package, and made
+ * once per data set by Workload.create().
+ */
+public class VetWorkload implements bench.Workload {
+    private static final String TODAY = "06-15-2025";
+    private static final int VISITS_PER_PET = 10;
+    private static final int OTHER_DAYS = 50; // days bookOtherDays() spreads its visits over
+
+    private VetDB db; // the db the current benchmark works on
+    private VetDB loaded; // the whole data set, from loadAll()
+    private List<Visit> visits; // the past visits of loaded
+    private List<Visit> shuffled;
+    private Queue<Visit> filled;
+
+    /**
+     * Writes a synthetic pet file and visit file, refusing to touch real ones.
+     * @param rows int for the number of past visits, there is a pet for every VISITS_PER_PET
+     * @param seed long for the random numbers so runs get the same data
+     * @throws Exception if the directory already has data or a file can't be written
+     */
+    @Override
+    public void writeDataSet(int rows, long seed) throws Exception {
+        if (new File("PetList.txt").exists() || new File("CompletedVisit.txt").exists()) {
+            throw new IllegalStateException("Run from an empty directory, the benchmark writes its own PetList.txt and CompletedVisit.txt");
+        }
+        new ClinicDataGenerator(seed).generate(new File("."), Math.max(1, rows / VISITS_PER_PET), rows, TODAY, 0, 0);
+        new File(TODAY + ".txt").delete();
+    }
+
+    @Override
+    public void deleteDataSet() {
+        new File("PetList.txt").delete();
+        new File("CompletedVisit.txt").delete();
+        new File("CompletedVisit.idx").delete();
+        deleteBookings();
+    }
+
+    @Override
+    public long readPastVisits() {
+        VetDB fresh = new VetDB(TODAY + ".txt");
+        fresh.readPastVisits();
+        return fresh.getPastVisitCount();
+    }
+
+    @Override
+    public void prepareReadPets() {
+        db = new VetDB(TODAY + ".txt");
+        db.readPastVisits();
+    }
+
+    @Override
+    public long readPets() {
+        db.readPets();
+        return db.getPetList().size();
+    }
+
+    @Override
+    public void loadAll() {
+        loaded = new VetDB(TODAY + ".txt");
+        loaded.readPastVisits();
+        loaded.readPets();
+        visits = new ArrayList<>(loaded.getPastVisitList());
+    }
+
+    @Override
+    public void shuffleVisits(long seed) {
+        shuffled = new ArrayList<>(visits);
+        Collections.shuffle(shuffled, new Random(seed));
+    }
+
+    @Override
+    public long sortVisits() {
+        Collections.sort(shuffled);
+        return shuffled.get(0).getId();
+    }
+
+    @Override
+    public void prepareBooking() {
+        db = new VetDB(TODAY + ".txt");
+    }
+
+    @Override
+    public long bookToday(int count) {
+        long booked = 0;
+        for (int i = 0; i < count; i++) {
+            booked += db.addVisit(new Visit(i, TODAY, DateTimeKeys.formatTime(i), i % 100, "Booked", 1, "")) ? 1 : 0;
+        }
+        return booked;
+    }
+
+    @Override
+    public long bookOtherDays(int count) {
+        int firstDay = DateTimeKeys.epochDay(TODAY) + 1;
+        long booked = 0;
+        for (int i = 0; i < count; i++) {
+            String date = DateTimeKeys.formatDate(firstDay + i % OTHER_DAYS);
+            booked += db.addVisit(new Visit(i, date, DateTimeKeys.formatTime(i / OTHER_DAYS), i % 100, "Booked", 1, "")) ? 1 : 0;
+        }
+        return booked;
+    }
+
+    @Override
+    public void deleteBookings() {
+        new File(TODAY + ".txt").delete();
+        int firstDay = DateTimeKeys.epochDay(TODAY) + 1;
+        for (int d = 0; d < OTHER_DAYS; d++) {
+            new File(DateTimeKeys.formatDate(firstDay + d) + ".txt").delete();
+        }
+    }
+
+    @Override
+    public long queueRoundTrip() {
+        Queue<Visit> queue = new Queue<>();
+        for (Visit v : visits) {
+            queue.enqueue(v);
+        }
+        long count = 0;
+        while (!queue.isEmpty()) {
+            count += queue.dequeue().getId();
+        }
+        return count;
+    }
+
+    @Override
+    public void fillQueue() {
+        filled = new Queue<>();
+        for (Visit v : visits) {
+            filled.enqueue(v);
+        }
+    }
+
+    @Override
+    public long queueToList() {
+        return filled.toList().size();
+    }
+
+    @Override
+    public long petStrings() {
+        long length = 0;
+        for (Pet p : loaded.getPetList().values()) {
+            length += p.toString().length();
+        }
+        return length;
+    }
+}
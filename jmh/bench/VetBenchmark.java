@@ -0,0 +1,236 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the VetDB load, join, sort and booking paths, run on data sets of
+ * different sizes from the ClinicDataGenerator so changes can be compared against a baseline.
+ *
+ * The VetDB reads and writes its files in the working directory, so run this from an
+ * empty directory, it won't run where a PetList.txt already exists:
+ * <pre>
+ * mvn -P jmh package
+ * java -jar target/benchmarks.jar VetBenchmark                  - every benchmark, 1000 and 100000 rows
+ * java -jar target/benchmarks.jar VetBenchmark.readPets -p rows=500000
+ * </pre>
+ * Setup that shouldn't be timed, like reading the visits before readPets or shuffling
+ * before a sort, is done in Level.Invocation setups. Those only suit work that takes well
+ * over a millisecond, which all of these do at the default sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VetBenchmark {
+    private static final int BOOKINGS = 1000; // visits booked per call of the addVisit benchmarks
+
+    /**
+     * The data set for one size, written once per trial.
+     */
+    @State(Scope.Benchmark)
+    public static class DataSet {
+        @Param({"1000", "100000"})
+        public int rows;
+
+        Workload work;
+
+        /**
+         * Writes the data set.
+         * @throws Exception if the directory isn't empty or the files can't be written
+         */
+        @Setup(Level.Trial)
+        public void write() throws Exception {
+            work = Workload.create();
+            work.writeDataSet(rows, 42);
+        }
+
+        /**
+         * Removes the data set.
+         */
+        @TearDown(Level.Trial)
+        public void delete() {
+            work.deleteDataSet();
+        }
+    }
+
+    /**
+     * The data set read in once, for the benchmarks on loaded data.
+     */
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        Workload work;
+
+        /**
+         * Reads everything in.
+         * @param data DataSet to read
+         */
+        @Setup(Level.Trial)
+        public void load(DataSet data) {
+            work = data.work;
+            work.loadAll();
+            work.fillQueue();
+        }
+    }
+
+    /**
+     * A db with its past visits read, made again before each readPets.
+     */
+    @State(Scope.Thread)
+    public static class VisitsRead {
+        Workload work;
+
+        /**
+         * Reads the visits.
+         * @param data DataSet to read
+         */
+        @Setup(Level.Invocation)
+        public void read(DataSet data) {
+            work = data.work;
+            work.prepareReadPets();
+        }
+    }
+
+    /**
+     * The past visits shuffled again before each sort.
+     * @see Loaded
+     */
+    @State(Scope.Thread)
+    public static class Shuffled {
+        Workload work;
+        private long seed = 7;
+
+        /**
+         * Shuffles the visits.
+         * @param loaded Loaded data to shuffle
+         */
+        @Setup(Level.Invocation)
+        public void shuffle(Loaded loaded) {
+            work = loaded.work;
+            work.shuffleVisits(seed++);
+        }
+    }
+
+    /**
+     * An empty db made before each round of bookings, with its day files removed after.
+     */
+    @State(Scope.Thread)
+    public static class Booking {
+        Workload work;
+
+        /**
+         * Makes the db.
+         * @param data DataSet the db is over
+         */
+        @Setup(Level.Invocation)
+        public void open(DataSet data) {
+            work = data.work;
+            work.prepareBooking();
+        }
+
+        /**
+         * Removes what was booked.
+         */
+        @TearDown(Level.Invocation)
+        public void clean() {
+            work.deleteBookings();
+        }
+    }
+
+    /**
+     * Reads the visit file.
+     * @param data DataSet to read
+     * @return long for the visits read
+     */
+    @Benchmark
+    public long readPastVisits(DataSet data) {
+        return data.work.readPastVisits();
+    }
+
+    /**
+     * Reads the pet file and joins each pet to its visits, the visits are read beforehand.
+     * @param state VisitsRead db to read into
+     * @return long for the pets read
+     */
+    @Benchmark
+    public long readPets(VisitsRead state) {
+        return state.work.readPets();
+    }
+
+    /**
+     * Sorts the shuffled past visits.
+     * @param state Shuffled visits to sort
+     * @return long for the first visit ID
+     */
+    @Benchmark
+    public long sortVisits(Shuffled state) {
+        return state.work.sortVisits();
+    }
+
+    /**
+     * Books visits on today's schedule, timed per visit.
+     * @param state Booking db to book into
+     * @return long for how many were booked
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOOKINGS)
+    public long addVisitToday(Booking state) {
+        return state.work.bookToday(BOOKINGS);
+    }
+
+    /**
+     * Books visits spread over other days, timed per visit.
+     * @param state Booking db to book into
+     * @return long for how many were booked
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOOKINGS)
+    public long addVisitOtherDays(Booking state) {
+        return state.work.bookOtherDays(BOOKINGS);
+    }
+
+    /**
+     * Enqueues and dequeues every past visit.
+     * @param loaded Loaded visits to queue
+     * @return long for the total of the IDs
+     */
+    @Benchmark
+    public long queueRoundTrip(Loaded loaded) {
+        return loaded.work.queueRoundTrip();
+    }
+
+    /**
+     * Copies a queue of every past visit into a list.
+     * @param loaded Loaded queue to copy
+     * @return long for the list size
+     */
+    @Benchmark
+    public long queueToList(Loaded loaded) {
+        return loaded.work.queueToList();
+    }
+
+    /**
+     * Makes the printout of every pet.
+     * @param loaded Loaded pets to print
+     * @return long for the total length
+     */
+    @Benchmark
+    public long petToString(Loaded loaded) {
+        return loaded.work.petStrings();
+    }
+}
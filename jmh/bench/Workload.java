@@ -0,0 +1,115 @@
+package bench;
+
+/**
+ * The work the benchmarks time, done by VetWorkload. JMH won't take benchmarks in the
+ * default package and a named package can't see the default package's classes, so the
+ * benchmarks reach the VetDB through this interface. Only making the VetWorkload goes
+ * through reflection, every timed call is a plain interface call.
+ *
+ * Everything is done in the working directory, where the VetDB keeps its files.
+ */
+public interface Workload {
+    /**
+     * Makes the VetWorkload. It is in the default package, which can't be imported, so this
+     * is the one place it is looked up by name.
+     * @return Workload backed by a VetDB
+     * @throws ReflectiveOperationException if VetWorkload isn't on the class path
+     */
+    static Workload create() throws ReflectiveOperationException {
+        return Class.forName("VetWorkload").asSubclass(Workload.class).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Writes a synthetic pet file and visit file.
+     * @param rows int for the number of past visits
+     * @param seed long for the random numbers so runs get the same data
+     * @throws Exception if a file can't be written
+     */
+    void writeDataSet(int rows, long seed) throws Exception;
+
+    /**
+     * Removes the synthetic files and anything booked into day files.
+     */
+    void deleteDataSet();
+
+    /**
+     * Reads the visit file into a new db.
+     * @return long for the visits read
+     */
+    long readPastVisits();
+
+    /**
+     * Makes a new db with its past visits read, ready for readPets().
+     */
+    void prepareReadPets();
+
+    /**
+     * Reads the pet file and joins the pets to their visits.
+     * @return long for the pets read
+     */
+    long readPets();
+
+    /**
+     * Loads the data set once for the benchmarks that work on loaded data.
+     */
+    void loadAll();
+
+    /**
+     * Shuffles the copy of the past visits that sortVisits() sorts.
+     * @param seed long for the shuffle
+     */
+    void shuffleVisits(long seed);
+
+    /**
+     * Sorts the shuffled past visits.
+     * @return long for the first visit ID after sorting
+     */
+    long sortVisits();
+
+    /**
+     * Makes a new empty db for the booking benchmarks.
+     */
+    void prepareBooking();
+
+    /**
+     * Books visits on today's schedule.
+     * @param count int for how many visits to book
+     * @return long for how many were booked
+     */
+    long bookToday(int count);
+
+    /**
+     * Books visits spread over the next 50 days.
+     * @param count int for how many visits to book
+     * @return long for how many were booked
+     */
+    long bookOtherDays(int count);
+
+    /**
+     * Removes the day files written by the booking benchmarks.
+     */
+    void deleteBookings();
+
+    /**
+     * Enqueues every past visit on a new Queue and dequeues them all again.
+     * @return long for the total of the dequeued IDs
+     */
+    long queueRoundTrip();
+
+    /**
+     * Fills the Queue that queueToList() copies.
+     */
+    void fillQueue();
+
+    /**
+     * Copies the filled Queue into a list.
+     * @return long for the list size
+     */
+    long queueToList();
+
+    /**
+     * Makes the printout of every pet.
+     * @return long for the total length of the printouts
+     */
+    long petStrings();
+}
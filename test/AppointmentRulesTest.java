@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the overlap rules of the AppointmentBook and of VetDB.addVisit, which writes
+ * day files so it uses days far in the future and removes them after.
+ */
+class AppointmentRulesTest {
+    private static final String TODAY = "06-15-2025";
+    private static final String DAY = "01-10-2099";
+    private static final String OTHER_DAY = "01-11-2099";
+
+    @AfterEach
+    void deleteDayFiles() {
+        new File(DAY + ".txt").delete();
+        new File(OTHER_DAY + ".txt").delete();
+    }
+
+    /**
+     * Makes a visit on DAY.
+     * @param id int for the visit ID
+     * @param time String for the start time
+     * @param duration int for the minutes it takes
+     * @param vet String for the vet, empty for none
+     * @return Visit on DAY
+     */
+    private static Visit visit(int id, String time, int duration, String vet) {
+        return new Visit(id, DAY, time, 1, "Booked", duration, vet);
+    }
+
+    @Test
+    void visitWithNoVetOverlapsNothing() {
+        AppointmentBook book = new AppointmentBook();
+        book.add(visit(1, "9:00AM", 30, "Dr. Lee"));
+        assertTrue(book.conflicts(visit(2, "9:15AM", 30, "")));
+        assertFalse(book.conflicts(visit(3, "9:30AM", 30, "")));
+    }
+
+    @Test
+    void vetOverlapsOnlyOtherVets() {
+        AppointmentBook book = new AppointmentBook();
+        book.add(visit(1, "9:00AM", 30, "Dr. Lee"));
+        assertTrue(book.conflicts(visit(2, "9:15AM", 30, "Dr. Lee")));
+        assertTrue(book.conflicts(visit(3, "9:15AM", 30, " dr. lee "))); // same vet however it is typed
+        assertFalse(book.conflicts(visit(4, "9:15AM", 30, "Dr. Park")));
+
+        book.add(visit(5, "11:00AM", 30, ""));
+        assertTrue(book.conflicts(visit(6, "11:15AM", 30, "Dr. Park")));
+    }
+
+    @Test
+    void backToBackIsNotAnOverlap() {
+        AppointmentBook book = new AppointmentBook();
+        book.add(visit(1, "9:00AM", 30, "Dr. Lee"));
+        assertFalse(book.conflicts(visit(2, "9:30AM", 30, "Dr. Lee")));
+        assertFalse(book.conflicts(visit(3, "8:30AM", 30, "")));
+    }
+
+    @Test
+    void otherDaysDoNotClash() {
+        AppointmentBook book = new AppointmentBook();
+        book.add(visit(1, "9:00AM", 30, ""));
+        assertFalse(book.conflicts(new Visit(2, OTHER_DAY, "9:00AM", 1, "Booked", 30, "")));
+    }
+
+    @Test
+    void windowsListByStartTime() {
+        AppointmentBook book = new AppointmentBook();
+        Visit late = visit(1, "2:00PM", 60, "Dr. Lee");
+        Visit early = visit(2, "9:00AM", 120, "Dr. Park");
+        Visit mid = visit(3, "10:00AM", 30, "Dr. Lee");
+        book.add(late);
+        book.add(early);
+        book.add(mid);
+        assertEquals(List.of(early, mid), book.window(DAY, 10 * 60, 11 * 60));
+        assertEquals(List.of(mid, late), book.vetWindow(DAY, "dr. lee", 0, 24 * 60));
+
+        book.assignRoom(mid, 2);
+        assertEquals(List.of(mid), book.roomWindow(DAY, 2, 0, 24 * 60));
+        assertTrue(book.roomWindow(DAY, 1, 0, 24 * 60).isEmpty());
+
+        book.forget(DAY);
+        assertFalse(book.isLoaded(DAY));
+        assertTrue(book.window(DAY, 0, 24 * 60).isEmpty());
+    }
+
+    @Test
+    void addVisitFollowsTheSameRules() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        assertTrue(db.addVisit(visit(1, "9:00AM", 30, "Dr. Lee")));
+        assertTrue(db.addVisit(visit(2, "9:00AM", 30, "Dr. Park")));
+        assertFalse(db.addVisit(visit(3, "9:15AM", 30, "Dr. Lee")));
+        assertFalse(db.addVisit(visit(4, "9:15AM", 30, "")));
+        assertTrue(db.addVisit(visit(5, "9:30AM", 30, "Dr. Lee")));
+        assertTrue(db.addVisit(visit(6, "10:00AM", 30, "")));
+        assertFalse(db.addVisit(visit(7, "10:00AM", 15, "Dr. Park")));
+        assertEquals(7, db.getNextVisitID()); // rejected visits don't move the next ID
+    }
+
+    @Test
+    void bookingsSurviveANewDb() {
+        VetDB first = new VetDB(TODAY + ".txt");
+        assertTrue(first.addVisit(visit(1, "9:00AM", 30, "Dr. Lee")));
+        assertTrue(first.addVisit(new Visit(2, OTHER_DAY, "9:00AM", 1, "Booked", 30, "")));
+
+        VetDB second = new VetDB(TODAY + ".txt"); // reads the day files back
+        assertFalse(second.addVisit(visit(3, "9:10AM", 30, "Dr. Lee")));
+        assertTrue(second.addVisit(visit(4, "9:10AM", 30, "Dr. Park")));
+        assertFalse(second.addVisit(new Visit(5, OTHER_DAY, "9:10AM", 1, "Booked", 30, "Dr. Park")));
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the lock free ConcurrentRingQueue, on one thread and under many producers and consumers.
+ */
+class ConcurrentRingQueueTest {
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(2, new ConcurrentRingQueue<Integer>(1).capacity());
+        assertEquals(8, new ConcurrentRingQueue<Integer>(5).capacity());
+        assertEquals(8, new ConcurrentRingQueue<Integer>(8).capacity());
+    }
+
+    @Test
+    void fullAndEmpty() {
+        ConcurrentRingQueue<Integer> queue = new ConcurrentRingQueue<>(4);
+        assertNull(queue.dequeue());
+        assertNull(queue.peek());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertThrows(IllegalStateException.class, () -> queue.enqueue(4));
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.peek());
+        assertEquals(0, queue.dequeue());
+        assertTrue(queue.offer(4)); // the slot freed at the front is the one at the back
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+    }
+
+    @Test
+    void wrapsAroundManyLaps() {
+        ConcurrentRingQueue<Integer> queue = new ConcurrentRingQueue<>(4);
+        int next = 0;
+        int expected = 0;
+        for (int lap = 0; lap < 1000; lap++) {
+            queue.enqueue(next++);
+            queue.enqueue(next++);
+            queue.enqueue(next++);
+            assertEquals(expected++, queue.dequeue());
+            assertEquals(expected++, queue.dequeue());
+            assertEquals(expected++, queue.dequeue());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void manyProducersAndConsumersLoseAndRepeatNothing() throws InterruptedException {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 50000;
+        ConcurrentRingQueue<Integer> queue = new ConcurrentRingQueue<>(64); // small so producers keep lapping
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                int[] last = new int[producers]; // each producer's items must come out in the order it put them in
+                Arrays.fill(last, -1);
+                while (taken.get() < producers * perProducer) {
+                    Integer item = queue.dequeue();
+                    if (item == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    taken.incrementAndGet();
+                    seen.incrementAndGet(item);
+                    int producer = item / perProducer;
+                    if (item <= last[producer]) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    last[producer] = item;
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join(60000);
+            assertFalse(t.isAlive());
+        }
+        assertEquals(producers * perProducer, taken.get());
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i), "item " + i);
+        }
+        assertEquals(0, outOfOrder.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Waits for the start signal.
+     * @param start CountDownLatch all threads wait on
+     */
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
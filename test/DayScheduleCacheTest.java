@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the DayScheduleCache, on its own and as the VetDB keeps it up to date.
+ */
+class DayScheduleCacheTest {
+    private static final String DAY = "01-10-2099";
+    private final List<String> reads = new ArrayList<>();
+
+    @AfterEach
+    void deleteDayFile() {
+        new File(DAY + ".txt").delete();
+    }
+
+    /**
+     * Makes a cache over a loader that gives every day one visit and notes each read.
+     * @param capacity int for the most days to keep
+     * @return DayScheduleCache to test
+     */
+    private DayScheduleCache cache(int capacity) {
+        return new DayScheduleCache(capacity, date -> {
+            reads.add(date);
+            List<Visit> day = new ArrayList<>();
+            day.add(new Visit(reads.size(), date, "9:00AM", 1, "Booked"));
+            return day;
+        });
+    }
+
+    @Test
+    void countsHitsAndMisses() throws IOException {
+        DayScheduleCache days = cache(4);
+        days.get("01-01-2099");
+        days.get("01-01-2099");
+        days.get("01-02-2099");
+        assertEquals(1, days.getHits());
+        assertEquals(2, days.getMisses());
+        assertEquals(List.of("01-01-2099", "01-02-2099"), reads);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedDay() throws IOException {
+        DayScheduleCache days = cache(2);
+        days.get("01-01-2099");
+        days.get("01-02-2099");
+        days.get("01-01-2099"); // now 01-02 is the oldest
+        days.get("01-03-2099");
+        assertEquals(1, days.getEvictions());
+        assertEquals(2, days.size());
+
+        reads.clear();
+        days.get("01-01-2099");
+        days.get("01-02-2099");
+        assertEquals(List.of("01-02-2099"), reads);
+    }
+
+    @Test
+    void appendsGoThroughAndInvalidateReadsAgain() throws IOException {
+        DayScheduleCache days = cache(4);
+        days.append(new Visit(50, "01-01-2099", "9:00AM", 1, "Not cached")); // ignored, nothing to update
+        assertEquals(1, days.get("01-01-2099").size());
+        days.append(new Visit(51, "01-01-2099", "10:00AM", 1, "Booked"));
+        assertEquals(2, days.get("01-01-2099").size());
+        assertThrows(UnsupportedOperationException.class, () -> days.get("01-01-2099").clear());
+
+        days.invalidate("01-01-2099");
+        assertEquals(1, days.get("01-01-2099").size());
+        assertEquals(2, reads.size());
+    }
+
+    @Test
+    void bookingsKeepTheCachedDayCurrent() {
+        VetDB db = new VetDB("06-15-2025.txt");
+        DayScheduleCache days = db.getDayCache();
+        assertTrue(db.addVisit(new Visit(1, DAY, "9:00AM", 1, "Booked", 30, ""))); // new file, the cached empty day is dropped
+        assertEquals(1, db.getDaySchedule(DAY).size());
+        long misses = days.getMisses();
+
+        assertTrue(db.addVisit(new Visit(2, DAY, "10:00AM", 1, "Booked", 30, ""))); // appended to the cached day
+        assertEquals(2, db.getDaySchedule(DAY).size());
+        assertEquals(misses, days.getMisses());
+
+        VetDB other = new VetDB("06-15-2025.txt"); // reads the file fresh
+        assertFalse(other.addVisit(new Visit(3, DAY, "10:15AM", 1, "Booked", 30, "")));
+        assertEquals(2, other.getDaySchedule(DAY).size());
+    }
+}
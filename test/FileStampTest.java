@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the FileStamp checks of saved copies against their text files.
+ */
+class FileStampTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameSizeEditInTheSameTickIsNoticed() throws IOException {
+        Path file = dir.resolve("PetList.txt");
+        Files.writeString(file, "1\tRex\n");
+        long modified = file.toFile().lastModified();
+        FileStamp stamp = FileStamp.of(file.toString());
+        assertTrue(stamp.isCurrent());
+
+        Files.writeString(file, "1\tMax\n");
+        file.toFile().setLastModified(modified); // as if the clock hadn't ticked
+        assertEquals(modified, file.toFile().lastModified());
+        assertFalse(stamp.isCurrent());
+    }
+
+    @Test
+    void missingFileStaysCurrentUntilMade() throws IOException {
+        Path file = dir.resolve("gone.txt");
+        FileStamp stamp = FileStamp.of(file.toString());
+        assertTrue(stamp.isCurrent());
+        Files.writeString(file, "");
+        assertFalse(stamp.isCurrent());
+    }
+
+    @Test
+    void writtenStampReadsBackAndOldOnesNeverMatch() throws IOException {
+        Path file = dir.resolve("CompletedVisit.txt");
+        Files.writeString(file, "header\n");
+        FileStamp stamp = FileStamp.of(file.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stamp.write(new DataOutputStream(bytes));
+        FileStamp read = FileStamp.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(stamp, read);
+        assertTrue(read.isCurrent());
+
+        FileStamp old = FileStamp.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), false);
+        assertFalse(old.isCurrent()); // no checksum to check
+    }
+}
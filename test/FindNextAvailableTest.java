@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for VetDB.findNextAvailable. Bookings write day files so it uses days far in the
+ * future and removes them after.
+ */
+class FindNextAvailableTest {
+    private static final String TODAY = "06-15-2025";
+    private static final String DAY = "03-10-2099";
+    private static final String NEXT_DAY = "03-11-2099";
+
+    @AfterEach
+    void deleteDayFiles() {
+        new File(DAY + ".txt").delete();
+        new File(NEXT_DAY + ".txt").delete();
+    }
+
+    /**
+     * Books a visit on DAY.
+     * @param db VetDB to book in
+     * @param time String for the start time
+     * @param duration int for the minutes it takes
+     * @param vet String for the vet, empty for none
+     */
+    private static void book(VetDB db, String time, int duration, String vet) {
+        assertTrue(db.addNewVisit(new Visit(0, DAY, time, 1, "Booked", duration, vet)));
+    }
+
+    @Test
+    void emptyDayIsOpenFromTheTimeAsked() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        assertEquals("9:05AM", db.findNextAvailable(DAY, "9:02AM", 30).getTime()); // rounded up to the step
+        TimeSlot opening = db.findNextAvailable(DAY, "", 30);
+        assertEquals(DAY, opening.getDate());
+        assertEquals("8:00AM", opening.getTime());
+        assertEquals(8 * 60 + 30, opening.getEndMinute());
+        assertFalse(new File(DAY + ".txt").exists()); // nothing was written looking
+    }
+
+    @Test
+    void fullDayRollsToTheNextDay() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        book(db, "8:00AM", 10 * 60, "");
+        TimeSlot open = db.findNextAvailable(DAY, "8:00AM", 15);
+        assertEquals(NEXT_DAY, open.getDate());
+        assertEquals("8:00AM", open.getTime());
+
+        TimeSlot late = db.findNextAvailable(NEXT_DAY, "5:45PM", 30); // would run past closing
+        assertEquals("03-12-2099", late.getDate());
+    }
+
+    @Test
+    void gapShorterThanTheVisitIsSkipped() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        book(db, "9:00AM", 30, "");
+        book(db, "9:45AM", 45, "");
+        assertEquals("10:30AM", db.findNextAvailable(DAY, "9:00AM", 30).getTime());
+        assertEquals("9:30AM", db.findNextAvailable(DAY, "9:00AM", 15).getTime()); // just fits
+    }
+
+    @Test
+    void vetCanShareTimeWithOtherVetsOnly() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        book(db, "9:00AM", 60, "Dr. Lee");
+        book(db, "10:00AM", 30, "");
+        assertEquals("9:00AM", db.findNextAvailable(DAY, "9:00AM", 30, "Dr. Park").getTime());
+        assertEquals("10:30AM", db.findNextAvailable(DAY, "9:00AM", 30, " dr. lee ").getTime());
+        assertEquals("10:30AM", db.findNextAvailable(DAY, "9:00AM", 30, "").getTime());
+        assertEquals("10:30AM", db.findNextAvailable(DAY, "10:00AM", 30, "Dr. Park").getTime()); // no vet blocks everyone
+
+        TimeSlot open = db.findNextAvailable(DAY, "9:00AM", 30, "Dr. Park");
+        assertTrue(db.addNewVisit(new Visit(0, open.getDate(), open.getTime(), 1, "Booked", 30, "Dr. Park"))); // it can be booked
+    }
+
+    @Test
+    void unreadableAsksFindNothing() {
+        VetDB db = new VetDB(TODAY + ".txt");
+        assertNull(db.findNextAvailable("someday", "9:00AM", 30));
+        assertNull(db.findNextAvailable(DAY, "9:00AM", 11 * 60)); // longer than the clinic is open
+        assertNull(db.findNextAvailable(DAY, "9:00AM", 0));
+    }
+}
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the IntervalIndex, checked against a plain scan of every interval.
+ */
+class IntervalIndexTest {
+    @Test
+    void halfOpenIntervals() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.add(60, 90, "a");
+        assertFalse(index.overlaps(90, 120)); // back to back
+        assertFalse(index.overlaps(30, 60));
+        assertTrue(index.overlaps(89, 90));
+        assertTrue(index.overlaps(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> index.add(5, 5, "empty"));
+    }
+
+    @Test
+    void oneLongIntervalIsStillFound() {
+        IntervalIndex<Integer> index = new IntervalIndex<>();
+        index.add(0, 24 * 60, -1); // all day
+        for (int i = 0; i < 200; i++) {
+            index.add(i * 5, i * 5 + 5, i);
+        }
+        assertEquals(List.of(-1, 100, 101), index.window(501, 510));
+        assertEquals(List.of(-1), index.window(1200, 1300));
+        assertTrue(index.overlaps(1400, 1401));
+    }
+
+    @Test
+    void sameStartKeepsTheOrderAdded() {
+        IntervalIndex<Integer> index = new IntervalIndex<>();
+        for (int i = 0; i < 50; i++) {
+            index.add(100, 130 + i, i);
+        }
+        List<Integer> found = index.window(100, 101);
+        assertEquals(50, found.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, found.get(i));
+        }
+    }
+
+    @Test
+    void agreesWithAScan() {
+        Random random = new Random(7);
+        IntervalIndex<Integer> index = new IntervalIndex<>();
+        List<int[]> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(10000);
+            int end = start + 1 + (random.nextInt(20) == 0 ? random.nextInt(3000) : random.nextInt(60));
+            index.add(start, end, i);
+            all.add(new int[] {start, end, i});
+        }
+        assertEquals(2000, index.size());
+        all.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[2], b[2]));
+        for (int q = 0; q < 500; q++) {
+            int start = random.nextInt(11000) - 500;
+            int end = start + 1 + random.nextInt(200);
+            List<Integer> expected = new ArrayList<>();
+            for (int[] e : all) {
+                if (e[0] < end && e[1] > start) {
+                    expected.add(e[2]);
+                }
+            }
+            assertEquals(expected, index.window(start, end));
+            assertEquals(!expected.isEmpty(), index.overlaps(start, end));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the PetIndex searches on their own, without a PetRegistry.
+ */
+class PetIndexTest {
+    /**
+     * Makes a pet.
+     * @param owner String for the owner name
+     * @param contact String for the owner contact
+     * @return Pet with those owner details
+     */
+    private static Pet pet(String owner, String contact) {
+        return new Pet("Rex", "Dog", "Lab", owner, "1 Main St", contact);
+    }
+
+    @Test
+    void ownerPrefixOfTheNameOrAnyWord() {
+        PetIndex index = new PetIndex();
+        index.add(3, pet("Ann Smith", "555"));
+        index.add(1, pet("Bob Smithers", "556"));
+        index.add(2, pet("Smith Ann", "557"));
+        index.add(4, pet("Annabel Jones", "558"));
+
+        assertEquals(List.of(1, 2, 3), index.findByOwner("smith"));
+        assertEquals(List.of(2), index.findByOwner("SMITH A")); // only a whole name has the space
+        assertEquals(List.of(2, 3, 4), index.findByOwner("ann"));
+        assertEquals(List.of(3), index.findByOwner(" ann smith "));
+        assertTrue(index.findByOwner("").isEmpty());
+        assertTrue(index.findByOwner("z").isEmpty());
+    }
+
+    @Test
+    void contactMatchesOnDigitsOnly() {
+        PetIndex index = new PetIndex();
+        index.add(1, pet("Ann", "(555) 123-4567"));
+        index.add(2, pet("Bob", "555.123.9999"));
+        index.add(3, pet("Cy", "5551234567"));
+        index.add(4, pet("Di", "Di@Example.com"));
+
+        assertEquals(List.of(1, 3), index.findByContact("555-123-4567"));
+        assertEquals(List.of(1, 2, 3), index.findByContact("(555) 123"));
+        assertTrue(index.findByContact("123").isEmpty()); // prefixes only, not the middle of a number
+        assertEquals(List.of(4), index.findByContact("di@"));
+        assertTrue(index.findByContact("---").isEmpty()); // no digits and no text left
+    }
+
+    @Test
+    void manyIdsStaySortedAndRemovable() {
+        PetIndex index = new PetIndex();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = -50; id < 500; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, new Random(3));
+        for (int id : ids) {
+            index.add(id, new Pet("Pet", "Cat", "Tabby", "Owner", "Street", "1"));
+        }
+        List<Integer> cats = index.findByType("cat");
+        assertEquals(550, cats.size());
+        for (int i = 1; i < cats.size(); i++) {
+            assertTrue(cats.get(i - 1) < cats.get(i));
+        }
+
+        Pet gone = new Pet("Pet", "Cat", "Tabby", "Owner", "Street", "1");
+        for (int id = 0; id < 500; id += 2) {
+            index.remove(id, gone);
+        }
+        assertEquals(300, index.findBySubtype("TABBY").size());
+        assertEquals(300, index.findByOwner("own").size());
+        assertEquals(-50, index.findByContact("1").get(0));
+    }
+
+    @Test
+    void footprintCountsEveryKey() {
+        PetIndex index = new PetIndex();
+        long empty = index.footprintBytes();
+        index.add(1, pet("Ann Smith", "555"));
+        assertTrue(index.footprintBytes() > empty);
+        assertTrue(index.footprintReport().startsWith("Pet index: 6 keys")); // ann smith, ann, smith, 555, dog, lab
+        index.remove(1, pet("Ann Smith", "555"));
+        assertEquals(empty, index.footprintBytes());
+    }
+}
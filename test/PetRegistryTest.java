@@ -0,0 +1,155 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the PetRegistry and the owners and indexes it keeps.
+ */
+class PetRegistryTest {
+    /**
+     * Makes a pet of Ann's household.
+     * @param name String for the pet name
+     * @return Pet owned by Ann
+     */
+    private static Pet annsPet(String name) {
+        return new Pet(name, "Dog", "Lab", "Ann Smith", "1 Main St", "(555) 123-4567");
+    }
+
+    @Test
+    void putGetAndReplace() {
+        PetRegistry pets = new PetRegistry();
+        Pet rex = annsPet("Rex");
+        assertNull(pets.put(1, rex));
+        assertSame(rex, pets.get(1));
+        assertEquals(1, rex.getId());
+        assertNull(pets.get(2));
+
+        Pet max = annsPet("Max");
+        assertSame(rex, pets.put(1, max));
+        assertSame(max, pets.get(1));
+        assertEquals(1, pets.size());
+        assertEquals(0, rex.getId()); // the replaced pet is cut loose
+        assertThrows(NullPointerException.class, () -> pets.put(3, null));
+    }
+
+    @Test
+    void growsAndKeepsEveryPet() {
+        PetRegistry pets = new PetRegistry();
+        for (int id = 0; id < 1000; id++) {
+            pets.put(id * 31, new Pet("Pet" + id, "Cat", "Tabby", "Owner" + id, "Street", "" + id));
+        }
+        assertEquals(1000, pets.size());
+        for (int id = 0; id < 1000; id++) {
+            assertEquals("Pet" + id, pets.get(id * 31).getName());
+        }
+        assertFalse(pets.containsKey(1));
+    }
+
+    @Test
+    void cursorVisitsEachPetOnce() {
+        PetRegistry pets = new PetRegistry();
+        for (int id = 1; id <= 50; id++) {
+            pets.put(id, annsPet("Pet" + id));
+        }
+        Set<Integer> seen = new HashSet<>();
+        PetRegistry.Cursor c = pets.cursor();
+        while (c.next()) {
+            assertTrue(seen.add(c.key()));
+            assertEquals(c.key(), c.value().getId());
+        }
+        assertEquals(50, seen.size());
+
+        int count = 0;
+        for (Pet p : pets) {
+            count++;
+        }
+        assertEquals(50, count);
+    }
+
+    @Test
+    void householdSharesOneOwner() {
+        PetRegistry pets = new PetRegistry();
+        Pet rex = annsPet("Rex");
+        Pet tom = new Pet("Tom", "Cat", "Tabby", "Ann Smith", "1 Main St", "(555) 123-4567");
+        pets.put(1, rex);
+        pets.put(2, tom);
+        assertSame(rex.getOwnerRecord(), tom.getOwnerRecord());
+        assertEquals(1, pets.getOwners().size());
+        assertEquals(List.of(1, 2), rex.getOwnerRecord().getPetIds());
+
+        rex.setOwnerContact("555.999.0000");
+        assertEquals("555.999.0000", tom.getOwnerContact());
+        assertEquals(List.of(1, 2), pets.getIndex().findByContact("(555) 999-0000"));
+        assertTrue(pets.getIndex().findByContact("555-123-4567").isEmpty());
+    }
+
+    @Test
+    void indexFollowsSettersAndReplacement() {
+        PetRegistry pets = new PetRegistry();
+        Pet rex = annsPet("Rex");
+        pets.put(1, rex);
+        assertEquals(List.of(1), pets.getIndex().findByOwner("smi"));
+        assertEquals(List.of(1), pets.getIndex().findByType("dog"));
+
+        rex.setType("Cat");
+        assertTrue(pets.getIndex().findByType("Dog").isEmpty());
+        assertEquals(List.of(1), pets.getIndex().findByType("CAT"));
+
+        pets.put(1, new Pet("Bo", "Bird", "Parrot", "Bob Jones", "2 Main St", "556"));
+        assertTrue(pets.getIndex().findByOwner("ann").isEmpty());
+        assertEquals(List.of(1), pets.getIndex().findByOwner("jon"));
+        assertEquals(1, pets.getOwners().size()); // Ann had no pets left
+    }
+
+    @Test
+    void movingOnePetLeavesTheOthers() {
+        PetRegistry pets = new PetRegistry();
+        Pet rex = annsPet("Rex");
+        Pet tom = annsPet("Tom");
+        pets.put(1, rex);
+        pets.put(2, tom);
+
+        rex.setOwnerRecord(new Owner("Bob Jones", "2 Main St", "556"));
+        assertEquals("Bob Jones", rex.getOwner());
+        assertEquals("Ann Smith", tom.getOwner());
+        assertNotSame(rex.getOwnerRecord(), tom.getOwnerRecord());
+        assertEquals(2, pets.getOwners().size());
+        assertEquals(List.of(1), pets.getIndex().findByOwner("bob"));
+        assertEquals(List.of(2), pets.getIndex().findByOwner("ann"));
+    }
+
+    @Test
+    void replacedPetKeepsItsOwnCopyOfTheOwner() {
+        PetRegistry pets = new PetRegistry();
+        Pet rex = annsPet("Rex");
+        Pet tom = annsPet("Tom");
+        pets.put(1, rex);
+        pets.put(2, tom);
+        pets.put(1, annsPet("Rex II"));
+
+        rex.setOwner("Someone Else");
+        assertEquals("Ann Smith", tom.getOwner());
+        assertEquals(List.of(1, 2), pets.getIndex().findByOwner("ann"));
+    }
+
+    @Test
+    void clearEmptiesEverything() {
+        PetRegistry pets = new PetRegistry();
+        pets.put(1, annsPet("Rex"));
+        pets.clear();
+        assertTrue(pets.isEmpty());
+        assertNull(pets.get(1));
+        assertEquals(0, pets.getOwners().size());
+        assertTrue(pets.getIndex().findByOwner("ann").isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for a pet's past visits: the order they are kept in and paging through them.
+ */
+class PetTest {
+    /**
+     * Returns the IDs of visits in order.
+     * @param visits List<Visit> to read
+     * @return List<Integer> of the IDs
+     */
+    private static List<Integer> ids(List<Visit> visits) {
+        List<Integer> ids = new ArrayList<>();
+        for (Visit v : visits) {
+            ids.add(v.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Makes a pet with no visits.
+     * @return Pet with an empty history
+     */
+    private static Pet pet() {
+        return new Pet("Rex", "Dog", "Lab", "Ann", "1 Main St", "555", new VisitHistory());
+    }
+
+    @Test
+    void visitsAddedOutOfOrderComeBackInDateOrder() {
+        Pet rex = pet();
+        rex.addVisit(new Visit(1, "03-01-2025", "9:00AM", 1, "March."));
+        rex.addVisit(new Visit(2, "01-15-2025", "2:00PM", 1, "January."));
+        rex.addVisit(new Visit(3, "03-01-2025", "8:00AM", 1, "Earlier the same day."));
+        rex.addVisit(new Visit(4, "12-20-2024", "9:00AM", 1, "Last year."));
+        rex.addVisit(new Visit(5, "03-01-2025", "9:00AM", 1, "Same time, added after."));
+        assertEquals(List.of(4, 2, 3, 1, 5), ids(rex.getSortedPastVisits()));
+        assertThrows(UnsupportedOperationException.class, () -> rex.getSortedPastVisits().remove(0));
+    }
+
+    @Test
+    void pastVisitsStackIsACopy() {
+        Pet rex = pet();
+        rex.addVisit(new Visit(1, "02-01-2025", "9:00AM", 1, ""));
+        rex.addVisit(new Visit(2, "01-01-2025", "9:00AM", 1, ""));
+        Stack<Visit> visits = rex.getPastVisits();
+        assertEquals(1, visits.peek().getId()); // newest on top
+        visits.push(new Visit(3, "03-01-2025", "9:00AM", 1, ""));
+        assertEquals(2, rex.getPastVisits().size()); // pushing doesn't add to the pet
+
+        Stack<Visit> given = new Stack<>();
+        given.push(new Visit(7, "05-01-2025", "9:00AM", 1, ""));
+        given.push(new Visit(6, "04-01-2025", "9:00AM", 1, ""));
+        rex.setPastVisits(given);
+        assertEquals(List.of(6, 7), ids(rex.getSortedPastVisits()));
+    }
+
+    @Test
+    void recentVisitsPageNewestFirst() {
+        Pet rex = pet();
+        for (int day = 10; day >= 1; day--) { // oldest last, every add goes in at the front
+            rex.addVisit(new Visit(day, String.format("01-%02d-2025", day), "9:00AM", 1, ""));
+        }
+        assertEquals(List.of(10, 9, 8, 7), ids(rex.getRecentVisits(0, 4)));
+        assertEquals(List.of(6, 5, 4, 3), ids(rex.getRecentVisits(1, 4)));
+        assertEquals(List.of(2, 1), ids(rex.getRecentVisits(2, 4))); // last page is short
+        assertEquals(List.of(), rex.getRecentVisits(3, 4));
+        assertEquals(List.of(), rex.getRecentVisits(0, 0));
+
+        List<Visit> first = rex.getRecentVisits(0, 2);
+        rex.addVisit(new Visit(11, "01-11-2025", "9:00AM", 1, ""));
+        assertEquals(List.of(10, 9), ids(first)); // a page doesn't change once made
+        assertEquals(List.of(11, 10), ids(rex.getRecentVisits(0, 2)));
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the ring buffer Queue.
+ */
+class QueueTest {
+    @Test
+    void emptyQueueHandsBackNull() {
+        Queue<Integer> queue = new Queue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.dequeue());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    void wrapsAroundTheEndOfTheBuffer() {
+        Queue<Integer> queue = new Queue<>();
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 100; round++) { // the front walks the whole buffer many times over
+            for (int i = 0; i < 10; i++) {
+                queue.enqueue(next++);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected, queue.peek());
+                assertEquals(expected++, queue.dequeue());
+            }
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void growsPastItsCapacityWhileWrapped() {
+        Queue<Integer> queue = new Queue<>();
+        for (int i = 0; i < 12; i++) {
+            queue.enqueue(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.dequeue(); // the front is now near the end of the buffer
+        }
+        for (int i = 12; i < 100; i++) {
+            queue.enqueue(i); // wraps, then grows more than once
+        }
+        assertEquals(90, queue.size());
+        List<Integer> seen = new ArrayList<>();
+        for (int i : queue) {
+            seen.add(i);
+        }
+        assertEquals(queue.toList(), seen);
+        for (int i = 10; i < 100; i++) {
+            assertEquals(i, queue.dequeue());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void addAllKeepsOrderAcrossAGrow() {
+        Queue<Integer> queue = new Queue<>();
+        queue.enqueue(-1);
+        List<Integer> more = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            more.add(i);
+        }
+        queue.addAll(more);
+        assertEquals(41, queue.size());
+        assertEquals(-1, queue.dequeue());
+        assertEquals(more, queue.toList());
+    }
+
+    @Test
+    void viewLooksIntoTheQueueAndCanNotChangeIt() {
+        Queue<String> queue = new Queue<>();
+        queue.enqueue("a");
+        queue.enqueue("b");
+        List<String> view = queue.view();
+        List<String> copy = queue.toList();
+        queue.dequeue();
+        queue.enqueue("c");
+        assertEquals(List.of("b", "c"), view);
+        assertEquals(List.of("a", "b"), copy);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(2));
+        assertThrows(UnsupportedOperationException.class, () -> view.add("d"));
+        assertFalse(view.isEmpty());
+    }
+}
@@ -0,0 +1,190 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the text file parsers: RecordParser, DateTimeKeys and the MappedLoader.
+ */
+class RecordParserTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsFieldsOnTabs() {
+        RecordParser data = new RecordParser().reset("12\tRex\tDog\t\tLab");
+        assertEquals(5, data.fieldCount());
+        assertEquals("Rex", data.field(1));
+        assertEquals("", data.field(3));
+        assertEquals("Lab", data.field(4));
+    }
+
+    @Test
+    void dropsCarriageReturnFromWindowsFiles() {
+        RecordParser data = new RecordParser().reset("1\tlast\r");
+        assertEquals("last", data.field(1));
+    }
+
+    @Test
+    void blankLineIsBlank() {
+        assertTrue(new RecordParser().reset("").isBlank());
+        assertTrue(new RecordParser().reset("\r").isBlank());
+        assertFalse(new RecordParser().reset("\t").isBlank());
+    }
+
+    @Test
+    void readsNumbersWithSignsAndSpaces() {
+        RecordParser data = new RecordParser().reset(" 42 \t-7\t+3\t2147483647\t-2147483648");
+        assertEquals(42, data.intField(0));
+        assertEquals(-7, data.intField(1));
+        assertEquals(3, data.intField(2));
+        assertEquals(Integer.MAX_VALUE, data.intField(3));
+        assertEquals(Integer.MIN_VALUE, data.intField(4));
+    }
+
+    @Test
+    void rejectsBadNumbers() {
+        RecordParser data = new RecordParser().reset("\t12a\t-\t2147483648");
+        assertThrows(NumberFormatException.class, () -> data.intField(0));
+        assertThrows(NumberFormatException.class, () -> data.intField(1));
+        assertThrows(NumberFormatException.class, () -> data.intField(2));
+        assertThrows(NumberFormatException.class, () -> data.intField(3));
+    }
+
+    @Test
+    void missingFieldIsAnError() {
+        RecordParser data = new RecordParser().reset("only");
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> data.field(1));
+    }
+
+    @Test
+    void detailsTurnMarkersIntoNewLinesAndDropTrailingOnes() {
+        RecordParser data = new RecordParser().reset("1\tRegular check up.~Meds current.~~");
+        assertEquals("Regular check up.\nMeds current.", data.detailsField(1));
+    }
+
+    @Test
+    void manyFieldsGrowTheParser() {
+        RecordParser data = new RecordParser().reset("0\t1\t2\t3\t4\t5\t6\t7\t8\t9\t10");
+        assertEquals(11, data.fieldCount());
+        assertEquals(10, data.intField(10));
+    }
+
+    @Test
+    void datesRoundTrip() {
+        assertEquals(0, DateTimeKeys.epochDay("01-01-1970"));
+        for (String date : new String[] {"02-29-2024", "12-31-1999", "06-15-2025", "03-01-2100"}) {
+            assertEquals(date, DateTimeKeys.formatDate(DateTimeKeys.epochDay(date)));
+        }
+        assertEquals(DateTimeKeys.epochDay("03-01-2024") - 1, DateTimeKeys.epochDay("02-29-2024"));
+    }
+
+    @Test
+    void badDatesAreInvalid() {
+        for (String date : new String[] {null, "", "2-3-2024", "02-30-2024", "02-29-2023", "13-01-2024", "00-10-2024", "ab-cd-efgh"}) {
+            assertEquals(DateTimeKeys.INVALID, DateTimeKeys.epochDay(date), String.valueOf(date));
+        }
+    }
+
+    @Test
+    void timesInEveryTypedForm() {
+        assertEquals(16 * 60, DateTimeKeys.minuteOfDay("4:00PM"));
+        assertEquals(16 * 60, DateTimeKeys.minuteOfDay("4:00 pm"));
+        assertEquals(16 * 60, DateTimeKeys.minuteOfDay("4pm"));
+        assertEquals(16 * 60, DateTimeKeys.minuteOfDay("16:00"));
+        assertEquals(0, DateTimeKeys.minuteOfDay("12:00AM"));
+        assertEquals(12 * 60 + 30, DateTimeKeys.minuteOfDay("12:30 p.m."));
+        for (String time : new String[] {null, "", "13pm", "0am", "25:00", "4:6PM", "4:60", "noon"}) {
+            assertEquals(DateTimeKeys.INVALID, DateTimeKeys.minuteOfDay(time), String.valueOf(time));
+        }
+    }
+
+    @Test
+    void timesFormatTheWayTheyAreTyped() {
+        assertEquals("12:00AM", DateTimeKeys.formatTime(0));
+        assertEquals("9:05AM", DateTimeKeys.formatTime(9 * 60 + 5));
+        assertEquals("12:00PM", DateTimeKeys.formatTime(12 * 60));
+        assertEquals("11:59PM", DateTimeKeys.formatTime(24 * 60 - 1));
+    }
+
+    @Test
+    void visitRecordWithAndWithoutExtraFields() {
+        StringDictionary dictionary = new StringDictionary(16);
+        Visit old = Visit.fromRecord(new RecordParser().reset("5\t06-15-2025\t9:00AM\t7\tShots.~Fine."), 0, dictionary);
+        assertEquals(5, old.getId());
+        assertEquals(7, old.getAnimalID());
+        assertEquals("Shots.\nFine.", old.getDetails());
+        assertEquals(Visit.DEFAULT_DURATION, old.getDuration());
+        assertEquals("", old.getVet());
+
+        Visit full = Visit.fromRecord(new RecordParser().reset("V\t6\t06-15-2025\t9:00AM\t7\tShots.\t45\tDr. Lee"), 1, dictionary);
+        assertEquals(6, full.getId());
+        assertEquals(45, full.getDuration());
+        assertEquals("Dr. Lee", full.getVet());
+        assertEquals(9 * 60 + 45, full.getEndMinute());
+    }
+
+    @Test
+    void mappedLoaderKeepsTheLastDuplicatePetAndTakesEachHistoryOnce() throws IOException {
+        Path pets = dir.resolve("PetList.txt");
+        Files.writeString(pets, "ID\tName\tType\tSubtype\tOwner\tAddress\tContact\n" +
+                "1\tRex\tDog\tLab\tAnn\t1 Main St\t555\n" +
+                "2\tTom\tCat\tTabby\tBob\t2 Main St\t556\n" +
+                "1\tRexy\tDog\tLab\tAnn\t1 Main St\t555\n");
+        HashMap<Integer, VisitHistory> visits = new HashMap<>();
+        visits.put(1, VisitHistory.of(List.of(new Visit(9, "06-15-2025", "9:00AM", 1, "Shots."))));
+        PetRegistry into = new PetRegistry();
+        new MappedLoader(new StringDictionary(16)).readPets(pets.toString(), visits, into);
+
+        assertEquals(2, into.size());
+        assertEquals("Rexy", into.get(1).getName()); // last line wins, like the text reader
+        assertEquals(0, into.get(1).getPastVisits().size()); // the first line took the visits
+        assertTrue(visits.isEmpty());
+    }
+
+    @Test
+    void plainAndMappedReadersAgreeOnAccentedText() throws IOException {
+        Path pets = Path.of("PetList.txt"); // the VetDB only reads its files from the working directory
+        Files.writeString(pets, "ID\tName\tType\tSubtype\tOwner\tAddress\tContact\n" +
+                "1\tZoë\tDog\tLab\tRenée Müller\t1 Straße\t555\n", RecordParser.CHARSET);
+        try {
+            VetDB plain = new VetDB("06-15-2025.txt");
+            plain.readPets();
+            VetDB mapped = new VetDB("06-15-2025.txt");
+            mapped.setMappedLoad(true);
+            mapped.readPets();
+            assertEquals("Zoë", plain.getPet(1).getName());
+            assertEquals(plain.getPet(1).getName(), mapped.getPet(1).getName());
+            assertEquals(plain.getPet(1).getOwner(), mapped.getPet(1).getOwner());
+            assertEquals(plain.getPet(1).getOwnerAddress(), mapped.getPet(1).getOwnerAddress());
+        }
+        finally {
+            Files.delete(pets);
+        }
+    }
+
+    @Test
+    void mappedLoaderReadsVisitsAndTheNextId() throws IOException {
+        Path file = dir.resolve("CompletedVisit.txt");
+        Files.writeString(file, RecordRenderer.VISIT_FILE_HEADER + "\n" +
+                "3\t06-14-2025\t9:00AM\t1\tShots.\t30\t\n" +
+                "4\t06-15-2025\t10:00AM\t2\tCheck up.~Fine.\t15\tDr. Lee\n" +
+                "5\n");
+        List<Visit> into = new ArrayList<>();
+        int next = new MappedLoader(new StringDictionary(16)).readPastVisits(file.toString(), into::add, -1);
+        assertEquals(5, next);
+        assertEquals(2, into.size());
+        assertEquals("Check up.\nFine.", into.get(1).getDetails());
+        assertEquals("Dr. Lee", into.get(1).getVet());
+    }
+}
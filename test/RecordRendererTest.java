@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that the RecordRenderer writes the files and printouts the way the String building
+ * code it replaced did. The old code is copied in here as the expected output; the only
+ * change allowed is the duration and vet columns added to the end of visit and day lines.
+ */
+class RecordRendererTest {
+    private static final String OLD_VISIT_FILE_HEADER = "ID\tDate\tTime\tAnimal ID\tdetails";
+    private static final String OLD_DAY_FILE_HEADER = "ID\tTime\tanimalID\tdetails";
+    private static final String OLD_PET_FILE_HEADER = "ID\tName\tType\tSubtype\tOwner\townerAddress\townerContact";
+
+    /**
+     * The details the way the old Visit.getDetailsFileOut() wrote them.
+     * @param details String of the details
+     * @return String with '~' for each new line
+     */
+    private static String oldDetailsFileOut(String details) {
+        String deets = "";
+        for (String d : details.split("\n")) {
+            deets += d + "~";
+        }
+        return deets.substring(0, deets.length() - 1);
+    }
+
+    /**
+     * Renders through a Writer, the way the files are written.
+     * @param rendering RecordRenderer.Rendering to run
+     * @return String of what it wrote
+     * @throws Exception if the write fails
+     */
+    private static String toWriter(RecordRenderer.Rendering rendering) throws Exception {
+        StringWriter out = new StringWriter();
+        rendering.to(out);
+        return out.toString();
+    }
+
+    @Test
+    void headersOnlyGainTheDurationAndVetColumns() {
+        assertEquals(OLD_VISIT_FILE_HEADER + "\tduration\tvet", RecordRenderer.VISIT_FILE_HEADER);
+        assertEquals(OLD_DAY_FILE_HEADER + "\tduration\tvet", RecordRenderer.DAY_FILE_HEADER);
+        assertEquals(OLD_PET_FILE_HEADER, RecordRenderer.PET_FILE_HEADER);
+    }
+
+    @Test
+    void petLineIsUnchanged() throws Exception {
+        Pet p = new Pet("Rex", "Dog", "Lab", "Ann Smith", "1 Main St, Apt 2", "555-0100", new VisitHistory());
+        String old = 17 + "\t" + p.getName() + "\t" + p.getType() + "\t" + p.getSubtype() + "\t" + p.getOwner() + "\t" +
+                p.getOwnerAddress() + "\t" + p.getOwnerContact();
+        assertEquals(old, RecordRenderer.render(out -> RecordRenderer.petLine(out, 17, p)));
+        assertEquals(old, toWriter(out -> RecordRenderer.petLine(out, 17, p)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Shots.", "", "Check up.\nAll fine.", "\nStarts with a new line.", "Ends with new lines.\n\n",
+            "Tabs\tand ~ kept as typed.", "Üñíçødé ok."})
+    void visitAndDayLinesStartLikeTheOldOnes(String details) throws Exception {
+        Visit v = new Visit(1234, "06-15-2025", "9:30AM", -7, details, 45, "Dr. Lee");
+        String extra = "\t45\tDr. Lee";
+
+        String oldVisit = v.getId() + "\t" + v.getDate() + "\t" + v.getTime() + "\t" + v.getAnimalID() + "\t" +
+                oldDetailsFileOut(v.getDetails());
+        assertEquals(oldVisit + extra, RecordRenderer.render(out -> RecordRenderer.visitLine(out, v)));
+        assertEquals(oldVisit + extra, toWriter(out -> RecordRenderer.visitLine(out, v)));
+
+        // the old day writer copied the details as they were, which split the line on a new
+        // line and didn't match its reader splitting on '~', so '~' is expected here too
+        String oldDay = v.getId() + "\t" + v.getTime() + "\t" + v.getAnimalID() + "\t" + oldDetailsFileOut(v.getDetails());
+        assertEquals(oldDay + extra, RecordRenderer.render(out -> RecordRenderer.dayLine(out, v)));
+        assertEquals(oldDay + extra, toWriter(out -> RecordRenderer.dayLine(out, v)));
+    }
+
+    @Test
+    void visitWithDefaultsStillGetsTheColumns() {
+        Visit v = new Visit(5, "06-15-2025", "9:00AM", 3, "Shots.");
+        assertEquals("5\t06-15-2025\t9:00AM\t3\tShots.\t" + Visit.DEFAULT_DURATION + "\t",
+                RecordRenderer.render(out -> RecordRenderer.visitLine(out, v)));
+        assertEquals("5\t9:00AM\t3\tShots.\t" + Visit.DEFAULT_DURATION + "\t",
+                RecordRenderer.render(out -> RecordRenderer.dayLine(out, v)));
+    }
+
+    @Test
+    void linesReadBackTheSame() {
+        Visit v = new Visit(8, "06-15-2025", "2:15PM", 3, "Limping.\nX-ray booked.", 60, "Dr. Park");
+        RecordParser data = new RecordParser();
+        data.reset(RecordRenderer.render(out -> RecordRenderer.visitLine(out, v)));
+        Visit read = Visit.fromRecord(data, 0, new StringDictionary(16));
+        assertEquals(v.getDetails(), read.getDetails());
+        assertEquals(60, read.getDuration());
+        assertEquals("Dr. Park", read.getVet());
+
+        data.reset("8\t06-15-2025\t2:15PM\t3\tWritten before the new columns.");
+        Visit old = Visit.fromRecord(data, 0, new StringDictionary(16));
+        assertEquals(Visit.DEFAULT_DURATION, old.getDuration());
+        assertEquals("", old.getVet());
+    }
+
+    @Test
+    void printoutsAreUnchanged() {
+        Pet p = new Pet("Rex", "Dog", "Lab", "Ann", "1 Main St", "555", new VisitHistory());
+        Visit v = new Visit(3, "06-14-2025", "9:00AM", 7, "Shots.\nCalm.");
+        p.addVisit(v);
+        assertEquals(" Time: " + v.getTime() + "\nDetails:\n" + v.getDetails(),
+                RecordRenderer.render(out -> RecordRenderer.animalVisit(out, v)));
+        assertEquals("Name: Rex - Type: Dog - Subtype: Lab - Owner: Ann", p.basicPetString());
+        assertEquals("Name: Rex\nType: Dog - Subtype: Lab\nOwner:   Ann\nAddress: 1 Main St\nContact: 555\n" +
+                "Visit: \n Time: 9:00AM\nDetails:\nShots.\nCalm.", p.toString());
+    }
+}
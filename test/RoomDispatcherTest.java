@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the RoomDispatcher: which room a visit goes to and which visit goes first.
+ */
+class RoomDispatcherTest {
+    private static final String DAY = "06-15-2025";
+
+    /**
+     * Makes a visit on DAY.
+     * @param id int for the visit ID
+     * @param time String for the start time
+     * @return Visit on DAY
+     */
+    private static Visit visit(int id, String time) {
+        return new Visit(id, DAY, time, 1, "Booked", 30, "");
+    }
+
+    @Test
+    void lowestFreeRoomFirst() {
+        RoomDispatcher rooms = new RoomDispatcher(3);
+        for (int id = 1; id <= 3; id++) {
+            rooms.submit(visit(id, "9:00AM"), false);
+        }
+        assertEquals(1, rooms.dispatch());
+        assertEquals(2, rooms.dispatch());
+        assertEquals(3, rooms.dispatch());
+        rooms.submit(visit(4, "9:00AM"), false);
+        assertEquals(0, rooms.dispatch()); // all full, it keeps waiting
+        assertEquals(1, rooms.getWaitingCount());
+
+        assertEquals(2, rooms.release(2).getId());
+        assertNull(rooms.release(2));
+        assertEquals(2, rooms.dispatch());
+        assertEquals(4, rooms.getVisitInRoom(2).getId());
+        assertThrows(IllegalArgumentException.class, () -> rooms.release(4));
+    }
+
+    @Test
+    void earliestFirstThenByArrival() {
+        RoomDispatcher rooms = new RoomDispatcher(1);
+        rooms.submit(visit(1, "10:00AM"), false);
+        rooms.submit(visit(2, "9:00AM"), false);
+        rooms.submit(visit(3, "10:00AM"), false);
+        assertEquals(List.of(2, 1, 3), ids(rooms.getWaiting()));
+    }
+
+    @Test
+    void urgentGoesAheadOfEarlierVisits() {
+        RoomDispatcher rooms = new RoomDispatcher(1);
+        rooms.submit(visit(1, "9:00AM"), false);
+        rooms.submit(visit(2, "3:00PM"), true);
+        rooms.submit(visit(3, "8:00AM"), false);
+        assertEquals(1, rooms.dispatch());
+        assertEquals(2, rooms.getVisitInRoom(1).getId());
+    }
+
+    @Test
+    void markUrgentWhileWaitingOrBeforeArriving() {
+        RoomDispatcher rooms = new RoomDispatcher(1);
+        rooms.submit(visit(1, "9:00AM"), false);
+        rooms.submit(visit(2, "11:00AM"), false);
+        rooms.markUrgent(2);
+        rooms.markUrgent(5); // not here yet
+        rooms.submit(visit(5, "4:00PM"), false);
+        rooms.submit(visit(6, "8:00AM"), false);
+        assertEquals(List.of(2, 5, 6, 1), ids(rooms.getWaiting()));
+    }
+
+    @Test
+    void fillTakesTheWholeSchedule() {
+        ArrayDeque<Visit> schedule = new ArrayDeque<>(List.of(visit(1, "9:00AM"), visit(2, "9:30AM"), visit(3, "10:00AM")));
+        RoomDispatcher rooms = new RoomDispatcher(2);
+        rooms.markUrgent(3);
+        assertEquals(3, rooms.fill(schedule::poll));
+        assertEquals(0, rooms.fill(schedule::poll)); // an empty schedule gives null, nothing is submitted
+        assertEquals(List.of(3, 1, 2), ids(rooms.getWaiting()));
+        rooms.dispatch();
+        assertEquals(3, rooms.getVisitInRoom(1).getId());
+    }
+
+    @Test
+    void nullVisitIsRejected() {
+        RoomDispatcher rooms = new RoomDispatcher(1);
+        assertThrows(NullPointerException.class, () -> rooms.submit(null, false));
+        assertEquals(0, rooms.getWaitingCount());
+        assertThrows(IllegalArgumentException.class, () -> new RoomDispatcher(0));
+    }
+
+    /**
+     * Lists the IDs of some visits.
+     * @param visits List<Visit> to take the IDs of
+     * @return List<Integer> of the IDs in the same order
+     */
+    private static List<Integer> ids(List<Visit> visits) {
+        return visits.stream().map(Visit::getId).toList();
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the SlotCalendar's minute by minute conflict checks and free slot search.
+ */
+class SlotCalendarTest {
+    private static final String DAY = "01-10-2099";
+
+    @Test
+    void visitTakesEveryMinuteOfItsLength() {
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.book(DAY, "9:00AM", 30);
+        assertTrue(calendar.isBooked(DAY, "9:00AM", 1));
+        assertTrue(calendar.isBooked(DAY, "9:29AM", 1));
+        assertTrue(calendar.isBooked(DAY, "8:31AM", 30)); // last minute runs into it
+        assertFalse(calendar.isBooked(DAY, "9:30AM", 30)); // starts as it ends
+        assertFalse(calendar.isBooked(DAY, "8:30AM", 30)); // ends as it starts
+        assertFalse(calendar.isBooked("01-11-2099", "9:00AM", 30));
+    }
+
+    @Test
+    void visitPastMidnightStopsAtTheEndOfTheDay() {
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.book(DAY, "11:45PM", 60);
+        assertTrue(calendar.isBooked(DAY, "11:59PM", 1));
+        assertFalse(calendar.isBooked("01-11-2099", "12:00AM", 30));
+    }
+
+    @Test
+    void oddTimesOnlyClashWithTheSameText() {
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.book(DAY, "after lunch", 30);
+        assertTrue(calendar.isBooked(DAY, " AFTER LUNCH ", 30));
+        assertFalse(calendar.isBooked(DAY, "before lunch", 30));
+        assertFalse(calendar.isBooked(DAY, "1:00PM", 30));
+    }
+
+    @Test
+    void loadAndForget() {
+        SlotCalendar calendar = new SlotCalendar();
+        assertFalse(calendar.isLoaded(DAY));
+        calendar.load(DAY, List.of(new Visit(1, DAY, "9:00AM", 1, "Booked", 45, "")));
+        assertTrue(calendar.isLoaded(DAY));
+        assertTrue(calendar.isBooked(DAY, "9:44AM", 1));
+        calendar.forget(DAY);
+        assertFalse(calendar.isLoaded(DAY));
+        assertFalse(calendar.isBooked(DAY, "9:00AM", 1));
+    }
+
+    @Test
+    void findFreeJumpsOverBookingsAndRoundsToTheStep() {
+        SlotCalendar calendar = new SlotCalendar();
+        assertEquals(9 * 60, calendar.findFree(DAY, 9 * 60, 17 * 60, 30, 15)); // empty day
+        calendar.book(DAY, "9:00AM", 40);
+        calendar.book(DAY, "10:00AM", 30);
+        assertEquals(9 * 60 + 45, calendar.findFree(DAY, 9 * 60, 17 * 60, 15, 15));
+        assertEquals(10 * 60 + 30, calendar.findFree(DAY, 9 * 60, 17 * 60, 20, 15)); // 9:45 to 10:00 is too short
+        assertEquals(9 * 60 + 40, calendar.findFree(DAY, 9 * 60, 17 * 60, 20, 1));
+        assertEquals(DateTimeKeys.INVALID, calendar.findFree(DAY, 9 * 60, 10 * 60 + 45, 20, 15));
+    }
+}
@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for which words and details the StringDictionary keeps.
+ */
+class StringDictionaryTest {
+    @Test
+    void wordsAreSharedFromTheFirstOne() {
+        StringDictionary dictionary = new StringDictionary(16);
+        String dog = new String("Dog");
+        assertSame(dog, dictionary.intern(dog));
+        assertSame(dog, dictionary.intern(new String("Dog")));
+        assertNull(dictionary.intern(null));
+        assertEquals(1, dictionary.getWordCount());
+        assertEquals(1, dictionary.getSharedCount());
+    }
+
+    @Test
+    void phraseIsKeptOnItsSecondSighting() {
+        StringDictionary dictionary = new StringDictionary(16);
+        String first = new String("Regular check up.");
+        assertSame(first, dictionary.internPhrase(first));
+        assertFalse(dictionary.hasPhrase(first)); // a one off note takes no slot
+
+        String second = new String("Regular check up.");
+        assertSame(second, dictionary.internPhrase(second));
+        assertTrue(dictionary.hasPhrase(first));
+        assertSame(second, dictionary.internPhrase(new String("Regular check up.")));
+        assertEquals(1, dictionary.getPhraseCount());
+    }
+
+    @Test
+    void keepPhraseSkipsTheWait() {
+        StringDictionary dictionary = new StringDictionary(16);
+        String shots = new String("Shots.");
+        assertSame(shots, dictionary.keepPhrase(shots));
+        assertSame(shots, dictionary.internPhrase(new String("Shots.")));
+    }
+
+    @Test
+    void longAndOverflowingPhrasesAreNotKept() {
+        StringDictionary dictionary = new StringDictionary(2);
+        String notes = "x".repeat(StringDictionary.MAX_PHRASE_LENGTH + 1);
+        dictionary.keepPhrase(notes);
+        assertFalse(dictionary.hasPhrase(notes));
+
+        dictionary.keepPhrase("one");
+        dictionary.keepPhrase("two");
+        String three = new String("three");
+        dictionary.internPhrase(three);
+        assertSame(three, dictionary.internPhrase(three));
+        assertNotSame(three, dictionary.internPhrase(new String("three")));
+        assertEquals(2, dictionary.getPhraseCount());
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for VetDB used by several terminals at once: visit IDs, double bookings and the
+ * pet list. Bookings go on days far in the future and the day files are removed after.
+ */
+class VetDBConcurrencyTest {
+    private static final String TODAY = "06-15-2025";
+    private static final String[] DAYS = {"02-10-2099", "02-11-2099", "02-12-2099", "02-13-2099"};
+    private static final int THREADS = 8;
+
+    @AfterEach
+    void deleteDayFiles() {
+        for (String day : DAYS) {
+            new File(day + ".txt").delete();
+        }
+    }
+
+    /**
+     * Runs the same task on every thread at once and waits for them all.
+     * @param task Callable to run on each thread, given nothing
+     * @return List<T> of what each thread gave back
+     * @throws Exception if a task failed
+     */
+    private static <T> List<T> runTogether(Callable<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<T>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                tasks.add(task);
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+            return results;
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void newVisitsGetUniqueIdsWithNoGaps() throws Exception {
+        VetDB db = new VetDB(TODAY + ".txt");
+        db.setNextVisitID(100);
+        AtomicInteger slot = new AtomicInteger();
+        List<Visit> booked = new ArrayList<>();
+        for (List<Visit> mine : runTogether(() -> {
+            List<Visit> visits = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                int n = slot.getAndIncrement();
+                String day = DAYS[n % DAYS.length];
+                String time = DateTimeKeys.formatTime(8 * 60 + 15 * (n / DAYS.length));
+                Visit v = new Visit(0, day, time, 1, "Booked", 15, "");
+                assertTrue(db.addNewVisit(v));
+                visits.add(v);
+            }
+            return visits;
+        })) {
+            booked.addAll(mine);
+        }
+
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (Visit v : booked) {
+            assertTrue(ids.add(v.getId()), "ID " + v.getId() + " given twice");
+        }
+        assertEquals(THREADS * 25, ids.size());
+        assertEquals(100, ids.first());
+        assertEquals(100 + THREADS * 25 - 1, ids.last());
+        assertEquals(100 + THREADS * 25, db.getNextVisitID());
+    }
+
+    @Test
+    void onlyOneTerminalGetsTheSameSlot() throws Exception {
+        VetDB db = new VetDB(TODAY + ".txt");
+        int before = db.getNextVisitID();
+        List<Boolean> results = runTogether(() -> db.addNewVisit(new Visit(0, DAYS[0], "9:00AM", 1, "Booked", 30, "Dr. Lee")));
+        assertEquals(1, results.stream().filter(b -> b).count());
+        assertEquals(before + 1, db.getNextVisitID()); // the losers never took an ID
+    }
+
+    @Test
+    void petListCanBeReadWhilePetsAreAdded() throws Exception {
+        VetDB db = new VetDB(TODAY + ".txt");
+        AtomicInteger nextPet = new AtomicInteger();
+        runTogether(() -> {
+            for (int i = 0; i < 500; i++) {
+                int id = nextPet.getAndIncrement();
+                db.addPet(new Pet("Pet" + id, "Cat", "Tabby", "Owner" + id, "Street", "" + id), id);
+                Map<Integer, Pet> pets = db.getPetList();
+                for (Map.Entry<Integer, Pet> e : pets.entrySet()) {
+                    assertEquals((int) e.getKey(), e.getValue().getId());
+                }
+            }
+            return null;
+        });
+        assertEquals(THREADS * 500, db.getPetList().size());
+    }
+}
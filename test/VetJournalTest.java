@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for writing and replaying the VetJournal.
+ */
+class VetJournalTest {
+    private static final String TODAY = "06-15-2025";
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes a pet, a visit booked for today and a completed visit.
+     * @param file Path of the journal
+     * @throws IOException if the journal can't be written
+     */
+    private void writeRecords(Path file) throws IOException {
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            journal.logPet(7, new Pet("Rex", "Dog", "Lab", "Ann", "1 Main St", "555"));
+            journal.logVisit(new Visit(20, TODAY, "9:00AM", 7, "Shots.", 45, "Dr. Lee"));
+            journal.logComplete(new Visit(21, "06-14-2025", "10:00AM", 7, "Check up.\nFine.", 30, ""));
+            assertEquals(3, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    void replayAppliesEveryRecord() throws IOException {
+        Path file = dir.resolve("journal.log");
+        writeRecords(file);
+
+        VetDB db = new VetDB(TODAY + ".txt");
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            assertEquals(3, journal.replay(db));
+        }
+        Pet rex = db.getPet(7);
+        assertNotNull(rex);
+        assertEquals("Ann", rex.getOwner());
+
+        List<Visit> today = db.getDailySchedule();
+        assertEquals(1, today.size());
+        assertEquals(45, today.get(0).getDuration());
+        assertEquals("Dr. Lee", today.get(0).getVet());
+
+        assertEquals(1, db.getPastVisitList().size());
+        assertEquals("Check up.\nFine.", db.getPastVisitList().get(0).getDetails());
+        assertEquals(1, rex.getPastVisits().size());
+        assertEquals(21, db.getNextVisitID()); // only bookings move the next ID, completed visits were booked first
+    }
+
+    @Test
+    void replaySkipsLinesThatFailTheirCrc() throws IOException {
+        Path file = dir.resolve("journal.log");
+        writeRecords(file);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        String pet = lines.get(0);
+        lines.set(0, pet.replace("Rex", "Max")); // same length, wrong CRC
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        VetDB db = new VetDB(TODAY + ".txt");
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            assertEquals(2, journal.replay(db));
+        }
+        assertNull(db.getPet(7));
+        assertEquals(1, db.getPastVisitList().size());
+    }
+
+    @Test
+    void tornLastLineIsSkippedAndNewRecordsStartClean() throws IOException {
+        Path file = dir.resolve("journal.log");
+        writeRecords(file);
+        Files.writeString(file, "P\t8\tTo", StandardCharsets.UTF_8, StandardOpenOption.APPEND); // crash mid write
+
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            journal.logPet(9, new Pet("Tom", "Cat", "Tabby", "Bob", "2 Main St", "556"));
+        }
+        VetDB db = new VetDB(TODAY + ".txt");
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            assertEquals(4, journal.replay(db));
+        }
+        assertNull(db.getPet(8));
+        assertEquals("Tom", db.getPet(9).getName());
+    }
+
+    @Test
+    void replayingTwiceDoesNotDoubleUp() throws IOException {
+        Path file = dir.resolve("journal.log");
+        writeRecords(file);
+
+        VetDB db = new VetDB(TODAY + ".txt");
+        try (VetJournal journal = new VetJournal(file.toString(), 1, 0)) {
+            journal.replay(db);
+            journal.replay(db);
+        }
+        assertEquals(1, db.getDailySchedule().size());
+        assertEquals(1, db.getPastVisitList().size());
+    }
+
+    @Test
+    void resetEmptiesTheJournal() throws IOException {
+        Path file = dir.resolve("journal.log");
+        try (VetJournal journal = new VetJournal(file.toString(), 10, 0)) {
+            journal.logPet(7, new Pet("Rex", "Dog", "Lab", "Ann", "1 Main St", "555"));
+            journal.reset();
+            assertEquals(0, journal.getRecordCount());
+        }
+        assertEquals(0, Files.size(file));
+    }
+}
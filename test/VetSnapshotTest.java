@@ -0,0 +1,292 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for VetSnapshot: loading every older version and a full round trip of the current one.
+ */
+class VetSnapshotTest {
+    private static final int MAGIC = 0x56455453;
+    private static final String TODAY = "06-15-2025";
+    private static final String YESTERDAY = "06-14-2025";
+    private static final String[] WORDS = {"9:00AM", "", "Dr. Lee", "Rex", "Dog", "Lab", "10:00AM"};
+    private static final int PHRASE_CODE = WORDS.length; // "Shots." is the one phrase
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes a snapshot the way an older version laid it out: one pet with two past visits
+     * and one visit on today's schedule.
+     * @param version int for the version to write, 1 to 5
+     * @param file Path to write to
+     * @throws IOException if the write fails
+     */
+    private static void writeOldSnapshot(int version, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.writeInt(MAGIC);
+            out.writeInt(version);
+            writeString(out, TODAY);
+            out.writeInt(10);
+            if (version >= 5) {
+                out.writeInt(1);
+                out.writeUTF("PetList.txt");
+                out.writeLong(0);
+                out.writeLong(0); // no checksum in version 5
+            }
+            out.writeInt(WORDS.length);
+            for (String s : WORDS) {
+                writeString(out, s);
+            }
+            if (version >= 3) {
+                out.writeInt(1);
+                writeString(out, "Shots.");
+            }
+
+            out.writeInt(2);
+            writeVisit(out, version, 3, YESTERDAY, 0, version >= 3 ? null : "Shots.", 45, 2);
+            writeVisit(out, version, 4, YESTERDAY, 6, "Check up.\nFine.", 15, 1);
+            out.writeInt(1);
+            writeVisit(out, version, 5, TODAY, 0, "Booked", 30, 2);
+
+            if (version >= 4) {
+                out.writeInt(1);
+                writeOwner(out);
+            }
+            out.writeInt(1);
+            out.writeInt(7);
+            if (version >= 3) {
+                out.writeInt(3);
+            }
+            else {
+                writeString(out, "Rex");
+            }
+            out.writeInt(4);
+            out.writeInt(5);
+            if (version >= 4) {
+                out.writeInt(0);
+            }
+            else {
+                writeOwner(out);
+            }
+        }
+    }
+
+    /**
+     * Writes one visit of an older snapshot for pet 7.
+     * @param out DataOutputStream to write to
+     * @param version int for the version being written
+     * @param id int for the visit ID
+     * @param date String for the visit date
+     * @param timeCode int for the time in WORDS
+     * @param details String for the details, null for the coded phrase
+     * @param duration int for the length, left out before version 2
+     * @param vetCode int for the vet in WORDS, left out before version 2
+     * @throws IOException if the write fails
+     */
+    private static void writeVisit(DataOutputStream out, int version, int id, String date, int timeCode, String details,
+                                   int duration, int vetCode) throws IOException {
+        out.writeInt(id);
+        out.writeInt(DateTimeKeys.epochDay(date));
+        out.writeInt(timeCode);
+        out.writeInt(7);
+        if (details == null) {
+            out.writeInt(-1 - PHRASE_CODE);
+        }
+        else {
+            writeString(out, details);
+        }
+        if (version >= 2) {
+            out.writeInt(duration);
+            out.writeInt(vetCode);
+        }
+    }
+
+    /**
+     * Writes Ann's owner details.
+     * @param out DataOutputStream to write to
+     * @throws IOException if the write fails
+     */
+    private static void writeOwner(DataOutputStream out) throws IOException {
+        writeString(out, "Ann");
+        writeString(out, "1 Main St");
+        writeString(out, "555");
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string.
+     * @param out DataOutputStream to write to
+     * @param s String to write
+     * @throws IOException if the write fails
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5})
+    void readsOlderVersions(int version) throws IOException {
+        Path file = dir.resolve("old.snap");
+        writeOldSnapshot(version, file);
+        VetDB db = new VetDB(TODAY + ".txt");
+        assertTrue(VetSnapshot.read(db, TODAY, file.toString()));
+        assertFalse(VetSnapshot.isCurrent(db, file.toString())); // no stamps, or none that can be checked
+
+        assertEquals(10, db.getNextVisitID());
+        Pet rex = db.getPetList().get(7);
+        assertEquals("Rex", rex.getName());
+        assertEquals("Dog", rex.getType());
+        assertEquals("Lab", rex.getSubtype());
+        assertEquals("Ann", rex.getOwner());
+        assertEquals("555", rex.getOwnerContact());
+
+        List<Visit> past = db.getPastVisitList();
+        assertEquals(2, past.size());
+        assertEquals("Shots.", past.get(0).getDetails());
+        assertEquals("Check up.\nFine.", past.get(1).getDetails());
+        assertEquals(YESTERDAY, past.get(1).getDate());
+        assertEquals("10:00AM", past.get(1).getTime());
+        assertEquals(10 * 60, past.get(1).getMinuteOfDay());
+        assertEquals(2, rex.getPastVisits().size());
+        if (version >= 2) {
+            assertEquals(45, past.get(0).getDuration());
+            assertEquals("Dr. Lee", past.get(0).getVet());
+        }
+        else {
+            assertEquals(Visit.DEFAULT_DURATION, past.get(0).getDuration());
+            assertEquals("", past.get(0).getVet());
+        }
+
+        List<Visit> today = db.getDailySchedule();
+        assertEquals(1, today.size());
+        assertEquals(5, today.get(0).getId());
+    }
+
+    @Test
+    void scheduleFromAnotherDayIsLeftOut() throws IOException {
+        Path file = dir.resolve("old.snap");
+        writeOldSnapshot(4, file);
+        VetDB db = new VetDB("06-16-2025.txt");
+        assertFalse(VetSnapshot.read(db, "06-16-2025", file.toString()));
+        assertEquals(0, db.getDailyScheduleSize());
+        assertEquals(2, db.getPastVisitList().size());
+    }
+
+    @Test
+    void rejectsOtherFilesAndNewerVersions() throws IOException {
+        Path file = dir.resolve("bad.snap");
+        Files.writeString(file, "not a snapshot at all");
+        assertThrows(IOException.class, () -> VetSnapshot.readDate(file.toString()));
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.writeInt(MAGIC);
+            out.writeInt(99);
+        }
+        assertThrows(IOException.class, () -> VetSnapshot.read(new VetDB(TODAY + ".txt"), TODAY, file.toString()));
+    }
+
+    @Test
+    void currentVersionRoundTrips() throws IOException {
+        VetDB db = new VetDB(TODAY + ".txt");
+        Owner ann = new Owner("Ann", "1 Main St", "555");
+        db.getPetRegistry().put(7, new Pet("Rex", "Dog", "Lab", ann, new VisitHistory()));
+        db.getPetRegistry().put(8, new Pet("Tom", "Cat", "Tabby", ann, new VisitHistory()));
+        db.getPetRegistry().put(9, new Pet("Bo", "Bird", "Parrot", new Owner("Bob", "2 Main St", "556"), new VisitHistory()));
+        db.getPastVisitList().add(new Visit(1, YESTERDAY, "9:00AM", 7, "Shots.", 45, "Dr. Lee"));
+        db.getPastVisitList().add(new Visit(2, YESTERDAY, "10:00AM", 9, "Wing clip.\nCalm.", 15, ""));
+        db.getPastVisitList().add(new Visit(3, "someday", "noon", 8, "Odd date kept as typed.", 30, ""));
+        db.enqueueToday(new Visit(4, TODAY, "9:00AM", 8, "Booked", 30, "Dr. Park"));
+        db.setNextVisitID(5);
+        Path file = dir.resolve("vet.snap");
+        VetSnapshot.write(db, TODAY, file.toString());
+
+        assertEquals(TODAY, VetSnapshot.readDate(file.toString()));
+        VetDB copy = new VetDB(TODAY + ".txt");
+        assertTrue(VetSnapshot.read(copy, TODAY, file.toString()));
+        assertEquals(5, copy.getNextVisitID());
+        assertEquals(3, copy.getPetList().size());
+        assertSame(copy.getPetList().get(7).getOwnerRecord(), copy.getPetList().get(8).getOwnerRecord()); // household kept
+        assertEquals("Bob", copy.getPetList().get(9).getOwner());
+
+        List<Visit> past = copy.getPastVisitList();
+        assertEquals(3, past.size());
+        for (int i = 0; i < past.size(); i++) {
+            Visit was = db.getPastVisitList().get(i);
+            Visit now = past.get(i);
+            assertEquals(was.getId(), now.getId());
+            assertEquals(was.getDate(), now.getDate());
+            assertEquals(was.getTime(), now.getTime());
+            assertEquals(was.getAnimalID(), now.getAnimalID());
+            assertEquals(was.getDetails(), now.getDetails());
+            assertEquals(was.getDuration(), now.getDuration());
+            assertEquals(was.getVet(), now.getVet());
+        }
+        assertEquals(1, copy.getPetList().get(7).getPastVisits().size());
+        assertEquals(1, copy.getPetList().get(8).getPastVisits().size());
+        assertEquals("Dr. Park", copy.getDailySchedule().get(0).getVet());
+    }
+
+    @Test
+    void sameDaySnapshotReadsTodayLikeTheTextFiles() throws IOException {
+        String day = "01-20-2099";
+        File dayFile = new File(day + ".txt");
+        Path file = dir.resolve("vet.snap");
+        try {
+            VetDB db = new VetDB(day + ".txt");
+            db.setSnapshotFile(file.toString());
+            assertTrue(db.addVisit(new Visit(1, day, "9:00AM", 7, "Booked", 30, "")));
+            assertTrue(db.addVisit(new Visit(2, day, "10:00AM", 7, "Booked", 30, "")));
+            assertEquals(1, db.getNextVisit().getId()); // taken off the queue, still in the day file
+            assertTrue(db.writeSnapshot());
+
+            VetDB fromText = new VetDB(day + ".txt");
+            fromText.readDaySchedule();
+            VetDB fromSnapshot = new VetDB(day + ".txt");
+            fromSnapshot.setSnapshotFile(file.toString());
+            assertTrue(fromSnapshot.readSnapshot());
+            assertEquals(2, fromText.getDailyScheduleSize());
+            assertEquals(fromText.getDailyScheduleSize(), fromSnapshot.getDailyScheduleSize());
+            assertEquals(1, fromSnapshot.getDailySchedule().get(0).getId());
+        }
+        finally {
+            dayFile.delete();
+        }
+    }
+
+    @Test
+    void stampsNoticeChangedTextFiles() throws IOException {
+        VetDB db = new VetDB(TODAY + ".txt");
+        Path file = dir.resolve("vet.snap");
+        File pets = new File(db.getBaseFileNames()[0]);
+        try {
+            Files.writeString(pets.toPath(), "ID\tName\tType\tSubtype\tOwner\tAddress\tContact\n");
+            VetSnapshot.write(db, TODAY, file.toString());
+            assertTrue(VetSnapshot.isCurrent(db, file.toString()));
+
+            Files.writeString(pets.toPath(), "1\tRex\tDog\tLab\tAnn\t1 Main St\t555\n", StandardOpenOption.APPEND);
+            assertFalse(VetSnapshot.isCurrent(db, file.toString()));
+        }
+        finally {
+            pets.delete();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for VisitColumns: sorting the rows, keeping every column and index in step when
+ * rows move, and getting details back out of the blob.
+ */
+class VisitColumnsTest {
+    /**
+     * Some visits out of date order, with two at the same time, a time that can't be read,
+     * a pet with a negative ID and details that go in the blob and as shared codes.
+     * @return List<Visit> in the order to add them
+     */
+    private static List<Visit> visits() {
+        return new ArrayList<>(List.of(
+                new Visit(1, "03-01-2025", "9:00AM", 7, "Shots.", 30, "Dr. Lee"),
+                new Visit(2, "01-15-2025", "2:00PM", 8, "Limping.\nX-ray booked.", 60, ""),
+                new Visit(3, "03-01-2025", "9:00AM", 8, "Same time as 1, added after.", 15, "Dr. Park"),
+                new Visit(4, "12-20-2024", "noon", -2, "Time kept as typed.", 30, ""),
+                new Visit(5, "03-01-2025", "8:00AM", 7, "Shots.", 30, "Dr. Lee"),
+                new Visit(6, "02-10-2025", "10:30AM", 9, "Ünïcödé – ok ✓", 45, "Dr. Lee"),
+                new Visit(7, "01-01-2025", "9:00AM", 7, "", 30, "")));
+    }
+
+    /**
+     * Makes columns holding some visits, with "Shots." kept as a shared phrase.
+     * @param visits List<Visit> to add in order
+     * @return VisitColumns holding them
+     */
+    private static VisitColumns columns(List<Visit> visits) {
+        StringDictionary dictionary = new StringDictionary(16);
+        dictionary.keepPhrase("Shots.");
+        VisitColumns columns = new VisitColumns(dictionary);
+        for (Visit v : visits) {
+            columns.add(v);
+        }
+        return columns;
+    }
+
+    /**
+     * Checks two visits have the same fields.
+     * @param expected Visit that was added
+     * @param actual Visit made from a row
+     */
+    private static void assertSameVisit(Visit expected, Visit actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getEpochDay(), actual.getEpochDay());
+        assertEquals(expected.getMinuteOfDay(), actual.getMinuteOfDay());
+        assertEquals(expected.getAnimalID(), actual.getAnimalID());
+        assertEquals(expected.getDetails(), actual.getDetails());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getVet(), actual.getVet());
+    }
+
+    @Test
+    void sortsLikeTheVisitsDoKeepingTies() {
+        List<Visit> visits = visits();
+        VisitColumns columns = columns(visits);
+        columns.sort();
+        Collections.sort(visits); // stable, the order the columns should end up in
+        assertEquals(visits.size(), columns.size());
+        for (int row = 0; row < visits.size(); row++) {
+            assertEquals(visits.get(row).getId(), columns.getId(row));
+        }
+
+        columns.sort(); // already sorted, nothing moves
+        for (int row = 0; row < visits.size(); row++) {
+            assertEquals(visits.get(row).getId(), columns.getId(row));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> columns.getVisit(visits.size()));
+    }
+
+    @Test
+    void sortMovesEveryColumnAndIndexTogether() {
+        List<Visit> visits = visits();
+        VisitColumns columns = columns(visits);
+        columns.trimToSize(); // grouped by animal before the sort moves the rows
+        columns.sort();
+        Map<Integer, Visit> byId = new HashMap<>();
+        for (Visit v : visits) {
+            byId.put(v.getId(), v);
+        }
+        for (int row = 0; row < columns.size(); row++) {
+            Visit added = byId.get(columns.getId(row));
+            assertSameVisit(added, columns.getVisit(row));
+            assertEquals(added.getEpochDay(), columns.getEpochDay(row));
+            assertEquals(added.getMinuteOfDay(), columns.getMinuteOfDay(row));
+            assertEquals(added.getAnimalID(), columns.getAnimalID(row));
+        }
+
+        List<Visit> found = columns.getByIds(new int[] {2, 5, 6});
+        assertEquals(List.of(2, 6, 5), found.stream().map(Visit::getId).toList()); // row order, which is date order now
+        assertEquals(List.of(7, 5, 1), columns.getHistory(7).sorted().stream().map(Visit::getId).toList());
+        assertEquals(List.of(2, 3), columns.getHistory(8).sorted().stream().map(Visit::getId).toList());
+        assertEquals(4, columns.getHistory(-2).getLatest().getId());
+        assertEquals(0, columns.getHistory(99).size());
+    }
+
+    @Test
+    void detailsComeBackOutOfTheBlob() {
+        StringBuilder longDetails = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longDetails.append("Long note ").append(i).append(i % 10 == 0 ? "\n" : " ");
+        }
+        List<Visit> visits = visits();
+        visits.add(new Visit(8, "02-11-2025", "9:00AM", 9, longDetails.toString(), 30, "")); // past the blob's first size
+        VisitColumns columns = columns(visits);
+        columns.trimToSize();
+        columns.sort();
+        columns.add(new Visit(9, "03-02-2025", "9:00AM", 9, "Added after the trim, ✓.", 30, "")); // blob grows again
+        List<Visit> made = new ArrayList<>();
+        columns.forEachVisit(made::add);
+
+        Collections.sort(visits);
+        visits.add(new Visit(9, "03-02-2025", "9:00AM", 9, "Added after the trim, ✓.", 30, ""));
+        assertEquals(visits.size(), made.size());
+        for (int i = 0; i < visits.size(); i++) {
+            assertSameVisit(visits.get(i), made.get(i));
+        }
+        assertTrue(columns.footprintBytes() > longDetails.length());
+    }
+
+    @Test
+    void rowsAddedAfterGroupingAreFound() {
+        VisitColumns columns = columns(visits());
+        columns.trimToSize();
+        columns.append(new Visit(20, "03-05-2025", "9:00AM", 7, "Booster.", 30, ""));
+        columns.append(new Visit(21, "03-05-2025", "10:00AM", 50, "New pet.", 30, ""));
+        assertEquals(4, columns.getHistory(7).size());
+        assertEquals(21, columns.getHistory(50).getLatest().getId());
+
+        for (int i = 0; i < 2000; i++) { // enough to group them all again
+            columns.add(new Visit(100 + i, "04-01-2025", "9:00AM", 50 + i % 3, "Check up " + i + ".", 30, ""));
+        }
+        assertEquals(668, columns.getHistory(50).size());
+        assertEquals(4, columns.getHistory(7).size());
+
+        columns.clear();
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.getHistory(7).size());
+    }
+
+    @Test
+    void columnarVetDBWritesTheSameVisitFile() throws IOException {
+        Path file = Path.of("CompletedVisit.txt"); // the VetDB only uses its files from the working directory
+        Path index = Path.of("CompletedVisit.idx");
+        StringBuilder text = new StringBuilder(RecordRenderer.VISIT_FILE_HEADER + "\n");
+        for (Visit v : visits()) {
+            text.append(RecordRenderer.render(out -> RecordRenderer.visitLine(out, v))).append('\n');
+        }
+        text.append("8\n");
+        try {
+            Map<String, String> written = new HashMap<>();
+            for (String mode : List.of("list", "columns", "mapped columns")) {
+                Files.writeString(file, text.toString(), RecordParser.CHARSET);
+                VetDB db = new VetDB("06-15-2025.txt");
+                db.setColumnarHistory(mode.contains("columns"));
+                db.setMappedLoad(mode.startsWith("mapped"));
+                db.readPastVisits();
+                assertEquals(7, db.getPastVisitCount());
+                assertEquals(db.getPastVisitList().get(3).getId(), db.getPastVisit(3).getId());
+                assertTrue(db.writeOutPastVisits());
+                written.put(mode, Files.readString(file, RecordParser.CHARSET));
+            }
+            assertEquals(written.get("list"), written.get("columns"));
+            assertEquals(written.get("list"), written.get("mapped columns"));
+        }
+        finally {
+            file.toFile().delete();
+            index.toFile().delete();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for reading visits through the VisitHistoryStore, saving the next visit ID and
+ * compacting its file.
+ */
+class VisitHistoryStoreTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes a visit file like the ones in the repo: a lone next ID after the visits and
+     * one ID written twice.
+     * @return Path of the file
+     * @throws IOException if the write fails
+     */
+    private Path writeVisitFile() throws IOException {
+        Path file = dir.resolve("CompletedVisit.txt");
+        Files.writeString(file, RecordRenderer.VISIT_FILE_HEADER + "\n" +
+                "3\t06-14-2025\t9:00AM\t1\tShots.\t30\t\n" +
+                "-1\n" +
+                "4\t06-14-2025\t10:00AM\t2\tCheck up.\t15\tDr. Lee\n" +
+                "3\t06-15-2025\t9:00AM\t1\tSecond line.\t30\t\n" +
+                "5\n", StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void readsVisitsByIdAndByPet() throws IOException {
+        VisitHistoryStore store = new VisitHistoryStore(writeVisitFile().toString(), 4, new StringDictionary(16));
+        try {
+            assertEquals(5, store.open(-1));
+            assertEquals(3, store.size());
+            assertEquals("Shots.", store.readVisit(3).getDetails()); // first line of a repeated ID
+            assertEquals("Dr. Lee", store.readVisit(4).getVet());
+            assertNull(store.readVisit(9));
+            assertEquals(2, store.getHistory(1).size());
+            assertEquals(1, store.getHistory(2).size());
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void appendIsFoundStraightAway() throws IOException {
+        VisitHistoryStore store = new VisitHistoryStore(writeVisitFile().toString(), 4, new StringDictionary(16));
+        try {
+            store.open(-1);
+            assertEquals(1, store.getHistory(2).size()); // cached before the append
+            assertFalse(store.contains(6));
+            store.append(new Visit(6, "06-15-2025", "11:00AM", 2, "Booster.", 30, ""));
+            assertTrue(store.contains(6));
+            assertEquals("Booster.", store.readVisit(6).getDetails());
+            assertEquals(2, store.getHistory(2).size());
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void compactDropsTheLoneIdsAndKeepsEveryVisit() throws IOException {
+        Path file = writeVisitFile();
+        VisitHistoryStore store = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        try {
+            store.open(-1);
+            store.append(new Visit(6, "06-15-2025", "11:00AM", 2, "Booster.", 30, ""));
+            store.compact(7);
+            assertEquals(4, store.size());
+            assertEquals("Booster.", store.readVisit(6).getDetails());
+        }
+        finally {
+            store.close();
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(6, lines.size());
+        assertEquals("7", lines.get(5));
+        assertFalse(lines.contains("-1"));
+        assertFalse(Files.exists(dir.resolve("CompletedVisit.txt.tmp")));
+
+        VisitHistoryStore again = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        try {
+            assertEquals(7, again.open(-1));
+            assertEquals(4, again.size());
+        }
+        finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void savingTheNextIdOnlyAppendsIt() throws IOException {
+        Path file = writeVisitFile();
+        String before = Files.readString(file, StandardCharsets.UTF_8);
+        VisitHistoryStore store = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        try {
+            store.open(-1);
+            assertEquals(3, store.getDeadBytes()); // the "-1" line, "5" is the one in use
+            assertFalse(store.saveNextVisitID(5)); // already the last one
+            assertEquals(before, Files.readString(file, StandardCharsets.UTF_8));
+            assertFalse(store.saveNextVisitID(6));
+            assertEquals(before + "6", Files.readString(file, StandardCharsets.UTF_8));
+            assertEquals(5, store.getDeadBytes()); // "5" is dead now
+            store.append(new Visit(6, "06-15-2025", "11:00AM", 2, "Booster.", 30, ""));
+            assertFalse(store.saveNextVisitID(7));
+            assertEquals(7, store.getDeadBytes()); // the "6" line is dead now
+        }
+        finally {
+            store.close();
+        }
+        VisitHistoryStore again = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        try {
+            assertEquals(7, again.open(-1));
+            assertEquals(4, again.size());
+            assertEquals(7, again.getDeadBytes());
+        }
+        finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void compactsOnceTheDeadLinesAddUp() throws IOException {
+        Path file = writeVisitFile();
+        VisitHistoryStore store = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        int next = 6;
+        try {
+            store.open(-1);
+            while (!store.saveNextVisitID(next)) {
+                next++;
+            }
+            assertTrue(next > 500, "compacted after " + (next - 6) + " saves"); // not on every save
+            assertEquals(0, store.getDeadBytes());
+            assertEquals(3, store.size());
+            assertEquals("Dr. Lee", store.readVisit(4).getVet());
+        }
+        finally {
+            store.close();
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertEquals(String.valueOf(next), lines.get(4));
+
+        VisitHistoryStore again = new VisitHistoryStore(file.toString(), 4, new StringDictionary(16));
+        try {
+            assertEquals(next, again.open(-1));
+        }
+        finally {
+            again.close();
+        }
+    }
+}
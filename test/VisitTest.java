@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for how visits sort by their date and time keys.
+ */
+class VisitTest {
+    /**
+     * Returns the IDs of visits in order.
+     * @param visits List<Visit> to read
+     * @return List<Integer> of the IDs
+     */
+    private static List<Integer> ids(List<Visit> visits) {
+        List<Integer> ids = new ArrayList<>();
+        for (Visit v : visits) {
+            ids.add(v.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void sortsByDateThenTime() {
+        List<Visit> visits = new ArrayList<>(List.of(
+                new Visit(1, "01-02-2025", "9:00AM", 1, ""),
+                new Visit(2, "12-31-2024", "4:00PM", 1, ""),
+                new Visit(3, "01-02-2025", "12:30PM", 1, ""),
+                new Visit(4, "01-02-2025", "12:00AM", 1, ""),
+                new Visit(5, "02-01-2024", "11:00AM", 1, ""),
+                new Visit(6, "01-02-2025", "10:00", 1, "")));
+        Collections.sort(visits);
+        assertEquals(List.of(5, 2, 4, 1, 6, 3), ids(visits)); // year before month before day, then the time
+    }
+
+    @Test
+    void unreadableDatesSortFirstByTime() {
+        List<Visit> visits = new ArrayList<>(List.of(
+                new Visit(1, "01-02-2025", "9:00AM", 1, ""),
+                new Visit(2, "someday", "9:00AM", 1, ""),
+                new Visit(3, "02-30-2025", "8:00AM", 1, ""),
+                new Visit(4, "01-01-1970", "12:00AM", 1, "")));
+        Collections.sort(visits);
+        assertEquals(List.of(3, 2, 4, 1), ids(visits)); // before the earliest real day, by time among themselves
+        assertTrue(visits.get(0).getSortKey() < visits.get(2).getSortKey());
+    }
+
+    @Test
+    void unreadableTimesSortAtTheStartOfTheirDay() {
+        List<Visit> visits = new ArrayList<>(List.of(
+                new Visit(1, "01-02-2025", "12:00AM", 1, ""),
+                new Visit(2, "01-02-2025", "after lunch", 1, ""),
+                new Visit(3, "01-01-2025", "11:59PM", 1, "")));
+        Collections.sort(visits);
+        assertEquals(List.of(3, 1, 2), ids(visits)); // ties with midnight, the sort keeps file order
+        assertEquals(0, visits.get(1).compareTo(visits.get(2)));
+    }
+
+    @Test
+    void settersMoveTheVisit() {
+        Visit v = new Visit(1, "01-02-2025", "9:00AM", 1, "");
+        Visit other = new Visit(2, "01-02-2025", "10:00AM", 1, "");
+        assertTrue(v.compareTo(other) < 0);
+        v.setTime("11:00AM");
+        assertTrue(v.compareTo(other) > 0);
+        v.setDate("01-01-2025");
+        assertTrue(v.compareTo(other) < 0);
+        assertEquals(DateTimeKeys.epochDay("01-01-2025"), v.getEpochDay());
+        assertEquals(11 * 60, v.getMinuteOfDay());
+    }
+}
@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the VisitTextIndex queries, its packed posting lists and how VetDB keeps it.
+ */
+class VisitTextIndexTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Makes a visit with some details.
+     * @param id int for the visit ID
+     * @param details String for the details
+     * @return Visit for pet 1
+     */
+    private static Visit visit(int id, String details) {
+        return new Visit(id, "06-14-2025", "9:00AM", 1, details, 30, "");
+    }
+
+    /**
+     * Index over a few visits with overlapping words.
+     * @return VisitTextIndex of five visits
+     */
+    private static VisitTextIndex sample() {
+        return VisitTextIndex.build(List.of(
+                visit(1, "Heartworm test. Negative."),
+                visit(2, "Teeth cleaning, no extractions."),
+                visit(3, "Cleaning of the ears; teeth fine."),
+                visit(4, "Heartworm pills given.\nTeeth cleaning next time."),
+                visit(5, "Limping on the left leg.")));
+    }
+
+    @Test
+    void wordsAreAndedWhateverTheCase() {
+        VisitTextIndex index = sample();
+        assertArrayEquals(new int[] {1, 4}, index.search("heartworm"));
+        assertArrayEquals(new int[] {1}, index.search("HEARTWORM Test"));
+        assertArrayEquals(new int[] {2, 3, 4}, index.search("teeth cleaning"));
+        assertArrayEquals(new int[0], index.search("heartworm limping"));
+        assertArrayEquals(new int[0], index.search("nothing"));
+    }
+
+    @Test
+    void phrasesHaveToBeInOrder() {
+        VisitTextIndex index = sample();
+        assertArrayEquals(new int[] {2, 4}, index.search("\"teeth cleaning\""));
+        assertArrayEquals(new int[0], index.search("\"cleaning teeth\""));
+        assertArrayEquals(new int[] {4}, index.search("\"given teeth\"")); // a new line doesn't break a phrase
+        assertArrayEquals(new int[] {4}, index.search("heartworm \"teeth cleaning\""));
+    }
+
+    @Test
+    void orJoinsGroups() {
+        VisitTextIndex index = sample();
+        assertArrayEquals(new int[] {1, 2, 4, 5}, index.search("heartworm OR \"teeth cleaning\" OR limping"));
+        assertArrayEquals(new int[] {1, 5}, index.search("heartworm test OR left leg"));
+        assertArrayEquals(new int[] {2, 3, 4}, index.search("OR teeth OR")); // empty groups are dropped
+        assertArrayEquals(new int[0], index.search("heartworm or teeth")); // only OR in capitals joins, "or" is a word
+    }
+
+    @Test
+    void postingsSurviveAWriteAndRead() throws IOException {
+        VisitTextIndex index = new VisitTextIndex();
+        index.add(visit(1_000_000_000, "big id"));
+        index.add(visit(7, "small id after a big one"));
+        index.add(visit(-5, "negative id"));
+        index.add(visit(7, "id seen twice"));
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            many.append(i % 2 == 0 ? "ear " : "filler ");
+        }
+        many.append("last word");
+        index.add(visit(8, many.toString())); // positions past 127 need two bytes
+
+        Path visits = dir.resolve("CompletedVisit.txt");
+        Files.writeString(visits, "anything");
+        Path file = dir.resolve("CompletedVisit.idx");
+        index.write(file.toString(), FileStamp.of(visits.toString()));
+        VisitTextIndex read = VisitTextIndex.read(file.toString());
+
+        assertEquals(index.getTermCount(), read.getTermCount());
+        assertEquals(index.getPostingBytes(), read.getPostingBytes());
+        assertTrue(read.getSource().isCurrent());
+        assertArrayEquals(new int[] {-5, 7, 1_000_000_000}, read.search("id"));
+        assertArrayEquals(new int[] {7}, read.search("\"seen twice\""));
+        assertArrayEquals(new int[] {7}, read.search("\"small id\""));
+        assertArrayEquals(new int[] {8}, read.search("\"filler last word\""));
+        assertArrayEquals(new int[] {8}, read.search("\"ear filler ear\""));
+    }
+
+    @Test
+    void savedWithTheVisitFileEvenWithoutASearch() {
+        Path visits = Path.of("CompletedVisit.txt"); // the VetDB only uses its files from the working directory
+        Path saved = Path.of("CompletedVisit.idx");
+        try {
+            Files.writeString(visits, RecordRenderer.VISIT_FILE_HEADER + "\n" +
+                    "3\t06-14-2025\t9:00AM\t1\tHeartworm test.\t30\t\n" +
+                    "4\n", RecordParser.CHARSET);
+            VetDB db = new VetDB("06-15-2025.txt");
+            db.readPastVisits();
+            assertTrue(db.writeOutPastVisits());
+            assertTrue(Files.exists(saved));
+
+            VetDB next = new VetDB("06-15-2025.txt");
+            next.readPastVisits();
+            assertEquals(3, next.searchVisitNotes("heartworm").get(0).getId());
+        }
+        catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        finally {
+            visits.toFile().delete();
+            saved.toFile().delete();
+        }
+    }
+
+    @Test
+    void visitsAPetAddsInColumnarModeAreSearchable() throws IOException {
+        Path pets = Path.of("PetList.txt");
+        Path visits = Path.of("CompletedVisit.txt");
+        try {
+            Files.writeString(pets, "ID\tName\tType\tSubtype\tOwner\tAddress\tContact\n" +
+                    "1\tRex\tDog\tLab\tAnn\t1 Main St\t555\n", RecordParser.CHARSET);
+            Files.writeString(visits, RecordRenderer.VISIT_FILE_HEADER + "\n" +
+                    "3\t06-14-2025\t9:00AM\t1\tHeartworm test.\t30\t\n" +
+                    "4\n", RecordParser.CHARSET);
+            VetDB db = new VetDB("06-15-2025.txt");
+            db.setColumnarHistory(true);
+            db.readPastVisits();
+            db.readPets();
+            assertEquals(1, db.searchVisitNotes("heartworm").size()); // the index is loaded now
+
+            db.getPet(1).addVisit(visit(9, "Limping on the left leg."));
+            List<Visit> found = db.searchVisitNotes("limping");
+            assertEquals(1, found.size());
+            assertEquals(9, found.get(0).getId());
+            assertEquals(2, db.getPet(1).getPastVisits().size());
+            assertFalse(db.searchVisitNotes("heartworm OR limping").isEmpty());
+        }
+        finally {
+            pets.toFile().delete();
+            visits.toFile().delete();
+        }
+    }
+}